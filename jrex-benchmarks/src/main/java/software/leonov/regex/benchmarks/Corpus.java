@@ -0,0 +1,132 @@
+package software.leonov.regex.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Synthetic text corpora generated locally, so that the benchmarks neither need network access nor ship large data
+ * files.
+ * <p>
+ * Every corpus is generated from a fixed seed and is therefore identical across runs and machines. The text is built
+ * line by line until the requested size is reached, and mimics the structure of real-world inputs closely enough for the
+ * patterns in {@link Workload} to match at a realistic rate.
+ *
+ * @author Zhenya Leonov
+ */
+public enum Corpus {
+
+    /**
+     * Application log lines with timestamps, levels, thread names, messages and the occasional e-mail address.
+     */
+    LOGS {
+        private final String[] levels = { "INFO", "INFO", "INFO", "DEBUG", "DEBUG", "WARN", "ERROR", "FATAL" };
+        private final String[] messages = { "request completed in %d ms", "connection refused by %s", "user %s logged in", "cache miss for key %s", "timeout after %d ms", "retrying request to %s" };
+
+        @Override
+        void line(final Random random, final StringBuilder sb) {
+            sb.append(String.format(Locale.ROOT, "2019-%02d-%02d %02d:%02d:%02d.%03d ", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000)));
+            sb.append(levels[random.nextInt(levels.length)]).append(" [worker-").append(random.nextInt(16)).append("] ");
+            final String message = messages[random.nextInt(messages.length)];
+            sb.append(String.format(Locale.ROOT, message, message.contains("%d") ? (Object) random.nextInt(5000) : word(random) + "@" + word(random) + ".com"));
+            sb.append('\n');
+        }
+    },
+
+    /**
+     * Comma separated records with identifiers, names, amounts, currencies and ISO dates.
+     */
+    CSV {
+        private final String[] currencies = { "USD", "EUR", "GBP", "JPY", "CHF" };
+
+        @Override
+        void line(final Random random, final StringBuilder sb) {
+            sb.append(random.nextInt(1_000_000)).append(',');
+            sb.append(capitalize(word(random))).append(' ').append(capitalize(word(random))).append(',');
+            sb.append(random.nextInt(10_000)).append('.').append(String.format(Locale.ROOT, "%02d", random.nextInt(100))).append(',');
+            sb.append(currencies[random.nextInt(currencies.length)]).append(',');
+            sb.append(String.format(Locale.ROOT, "2019-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28))).append('\n');
+        }
+    },
+
+    /**
+     * HTML markup with nested elements, attributes, links and {@code mailto} addresses.
+     */
+    HTML {
+        @Override
+        void line(final Random random, final StringBuilder sb) {
+            switch (random.nextInt(4)) {
+            case 0:
+                sb.append("<div class=\"").append(word(random)).append("\"><p>").append(sentence(random)).append("</p></div>\n");
+                break;
+            case 1:
+                sb.append("<a href=\"https://").append(word(random)).append(".example.com/").append(word(random)).append("\">").append(word(random)).append("</a>\n");
+                break;
+            case 2:
+                sb.append("<a href=\"mailto:").append(word(random)).append('@').append(word(random)).append(".org\">contact</a>\n");
+                break;
+            default:
+                sb.append("<li><span id=\"").append(word(random)).append(random.nextInt(100)).append("\">").append(sentence(random)).append("</span></li>\n");
+            }
+        }
+    },
+
+    /**
+     * Prose mixing Latin, accented Latin, Greek, Cyrillic and CJK words, including characters outside the Basic
+     * Multilingual Plane.
+     */
+    UNICODE {
+        private final String[] words = { "caf\u00e9", "na\u00efve", "stra\u00dfe", "\u03b1\u03bb\u03c6\u03b1", "\u03bb\u03cc\u03b3\u03bf\u03c2", "\u043c\u0438\u0440", "\u0441\u043b\u043e\u0432\u043e", "\u6587\u5b57", "\u65e5\u672c\u8a9e", "\ud840\udc0b\ud840\udc0c", "text", "regex" };
+
+        @Override
+        void line(final Random random, final StringBuilder sb) {
+            final int count = 5 + random.nextInt(10);
+            for (int i = 0; i < count; i++)
+                sb.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? ", " : " ");
+            sb.append(random.nextInt(4) == 0 ? "\ud83d\ude00" : ".").append('\n');
+        }
+    };
+
+    private static final long SEED = 0x5EED;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    /**
+     * Returns text of this corpus whose length is exactly the specified number of characters, possibly ending with a
+     * truncated line.
+     *
+     * @param size the number of characters
+     * @return text of this corpus of the specified length
+     */
+    public String generate(final int size) {
+        final Random random = new Random(SEED);
+        final StringBuilder sb = new StringBuilder(size + 256);
+        while (sb.length() < size)
+            line(random, sb);
+        sb.setLength(size);
+        if (size > 0 && Character.isHighSurrogate(sb.charAt(size - 1)))
+            sb.setCharAt(size - 1, '\n');
+        return sb.toString();
+    }
+
+    abstract void line(final Random random, final StringBuilder sb);
+
+    private static String word(final Random random) {
+        final int length = 3 + random.nextInt(7);
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+            chars[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        return new String(chars);
+    }
+
+    private static String capitalize(final String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String sentence(final Random random) {
+        final StringBuilder sb = new StringBuilder(capitalize(word(random)));
+        final int count = 3 + random.nextInt(8);
+        for (int i = 0; i < count; i++)
+            sb.append(' ').append(word(random));
+        return sb.append('.').toString();
+    }
+
+}
@@ -0,0 +1,137 @@
+package software.leonov.regex.benchmarks;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import software.leonov.regex.BatchMatch;
+import software.leonov.regex.RegexEngine;
+import software.leonov.regex.RegexEngines;
+import software.leonov.regex.RegexOption;
+import software.leonov.regex.RegularExpression;
+import software.leonov.regex.StringMatcher;
+
+/**
+ * Compares the {@link RegexEngine}s on every {@link Workload} and input size.
+ * <p>
+ * Expressions are compiled through {@link RegexEngine#compile(String, Set)}, so that every engine evaluates the same
+ * expression written in the syntax of the {@link java.util.regex.Pattern} class. Combinations which an engine does not
+ * support, for example capturing groups with the dk.brics automaton, fail in the setup or benchmark method and are
+ * reported as errors by JMH, which moves on to the next combination.
+ * <p>
+ * Run a subset of the combinations by overriding the parameters on the command line, for example:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar EngineBenchmark.find -p engine=jdk,re2j -p workload=KEYWORDS -p size=1048576
+ * </pre>
+ *
+ * @author Zhenya Leonov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    @Param({ "jdk", "re2j", "joni", "tcl", "jregex", "automaton" })
+    public String engine;
+
+    @Param
+    public Workload workload;
+
+    @Param({ "1024", "65536", "1048576" })
+    public int size;
+
+    private RegexEngine regexEngine;
+    private RegularExpression regex;
+    private String input;
+    private String[] lines;
+
+    @Setup
+    public void setup() {
+        regexEngine = RegexEngines.forName(engine);
+        regex = regexEngine.compile(workload.regex(), NONE);
+        input = workload.corpus().generate(size);
+        lines = input.split("\n");
+    }
+
+    /**
+     * Measures the time to compile the expression.
+     */
+    @Benchmark
+    public RegularExpression compile() {
+        return regexEngine.compile(workload.regex(), NONE);
+    }
+
+    /**
+     * Measures {@link StringMatcher#matches()} on every line of the input.
+     */
+    @Benchmark
+    public int matches() throws Throwable {
+        int count = 0;
+        for (final String line : lines)
+            if (regex.matcher(line).matches())
+                count++;
+        return count;
+    }
+
+    /**
+     * Measures {@link BatchMatch#matchesAll(RegularExpression, java.util.List)} on every line of the input.
+     */
+    @Benchmark
+    public BitSet matchesAll() throws Throwable {
+        return BatchMatch.matchesAll(regex, Arrays.asList(lines));
+    }
+
+    /**
+     * Measures a loop of {@link StringMatcher#find()} over the entire input.
+     */
+    @Benchmark
+    public int find() throws Throwable {
+        final StringMatcher<?> matcher = regex.matcher(input);
+        int count = 0;
+        while (matcher.find())
+            count++;
+        return count;
+    }
+
+    /**
+     * Measures {@link StringMatcher#replaceAll(String)} over the entire input.
+     */
+    @Benchmark
+    public String replaceAll() throws Throwable {
+        return regex.matcher(input).replaceAll("<$0>");
+    }
+
+    /**
+     * Measures extracting the first capturing group, or the entire match if there are no groups, of every match in the
+     * input.
+     */
+    @Benchmark
+    public void groups(final Blackhole blackhole) throws Throwable {
+        final StringMatcher<?> matcher = regex.matcher(input);
+        final int group = matcher.groupCount() > 0 ? 1 : 0;
+        while (matcher.find())
+            blackhole.consume(group == 0 ? matcher.group() : matcher.group(group));
+    }
+
+}
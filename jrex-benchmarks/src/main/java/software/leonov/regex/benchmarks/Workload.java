@@ -0,0 +1,76 @@
+package software.leonov.regex.benchmarks;
+
+/**
+ * Classes of regular-expressions paired with the {@link Corpus} they are typically run against.
+ * <p>
+ * Each workload exercises a different strength or weakness of the engines: plain literals, alternations of keywords,
+ * bounded repetitions of character classes with capturing groups, negated classes, and Unicode properties. Not every
+ * engine supports every workload; for example the dk.brics automaton cannot report capturing groups and some engines do
+ * not support Unicode properties.
+ *
+ * @author Zhenya Leonov
+ */
+public enum Workload {
+
+    /**
+     * A single literal.
+     */
+    LITERAL(Corpus.LOGS, "ERROR"),
+
+    /**
+     * An alternation of keywords.
+     */
+    KEYWORDS(Corpus.LOGS, "ERROR|FATAL|timeout|refused|retrying"),
+
+    /**
+     * Timestamps split into their components by capturing groups.
+     */
+    TIMESTAMP(Corpus.LOGS, "(\\d{4})-(\\d{2})-(\\d{2}) (\\d{2}):(\\d{2}):(\\d{2})"),
+
+    /**
+     * Amounts followed by a currency code.
+     */
+    CSV_AMOUNT(Corpus.CSV, "(\\d+\\.\\d{2}),([A-Z]{3})"),
+
+    /**
+     * The targets of HTML links, extracted with a negated character class.
+     */
+    HTML_LINK(Corpus.HTML, "<a href=\"([^\"]*)\""),
+
+    /**
+     * E-mail addresses.
+     */
+    EMAIL(Corpus.HTML, "([a-z0-9._%+-]+)@([a-z0-9.-]+\\.[a-z]{2,})"),
+
+    /**
+     * Words of any script, matched with a Unicode property.
+     */
+    UNICODE_WORD(Corpus.UNICODE, "(\\p{L}+)");
+
+    private final Corpus corpus;
+    private final String regex;
+
+    private Workload(final Corpus corpus, final String regex) {
+        this.corpus = corpus;
+        this.regex = regex;
+    }
+
+    /**
+     * Returns the corpus this workload is run against.
+     *
+     * @return the corpus this workload is run against
+     */
+    public Corpus corpus() {
+        return corpus;
+    }
+
+    /**
+     * Returns the regular-expression, written in the syntax of the {@link java.util.regex.Pattern} class.
+     *
+     * @return the regular-expression
+     */
+    public String regex() {
+        return regex;
+    }
+
+}
@@ -0,0 +1,262 @@
+package software.leonov.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton which finds occurrences of a set of literal strings in a single scan of the input.
+ * <p>
+ * The trie is stored in primitive arrays: the transitions of each state are sorted by character and searched with a
+ * binary search, except for the transitions of the root on ASCII characters, which are looked up directly. Every state
+ * records the pattern which ends in it, if any, and a link to the nearest state on its failure path which ends a
+ * pattern.
+ * <p>
+ * Besides testing which patterns occur, the automaton can find the leftmost occurrence of any pattern, preferring either
+ * the pattern listed first or the longest pattern among those which start at the same index. The scan stops as soon as
+ * no occurrence further to the left can be found, which is the case once the current state is shallower than the
+ * distance to the start of the best occurrence so far.
+ * <p>
+ * Instances of this class are immutable and safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+final class AhoCorasick {
+
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+
+    /*
+     * The transitions of state s are keys[i] and targets[i] for offsets[s] <= i < offsets[s + 1], sorted by key.
+     */
+    private final int[] offsets;
+    private final char[] keys;
+    private final int[] targets;
+
+    private final int[] rootAscii;
+    private final int[] fail;
+
+    /*
+     * The index of the pattern which ends in each state, or -1.
+     */
+    private final int[] output;
+
+    /*
+     * The nearest state on the failure path of each state whose output is not -1, or -1.
+     */
+    private final int[] outputLink;
+
+    /*
+     * The length of the prefix which leads to each state.
+     */
+    private final int[] depth;
+
+    private final int[] lengths;
+
+    /**
+     * Creates an automaton which finds the specified patterns. Duplicate patterns are reported under the index of their
+     * first occurrence.
+     *
+     * @param patterns the non-empty patterns to find
+     */
+    AhoCorasick(final List<String> patterns) {
+        final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        final List<Integer> outputs = new ArrayList<>();
+        final List<Integer> depths = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(-1);
+        depths.add(0);
+
+        lengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            final String pattern = patterns.get(p);
+            lengths[p] = pattern.length();
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                Integer next = trie.get(state).get(pattern.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(pattern.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    outputs.add(-1);
+                    depths.add(i + 1);
+                }
+                state = next;
+            }
+            if (outputs.get(state) == -1)
+                outputs.set(state, p);
+        }
+
+        final int size = trie.size();
+        offsets = new int[size + 1];
+        int transitions = 0;
+        for (int s = 0; s < size; s++) {
+            offsets[s] = transitions;
+            transitions += trie.get(s).size();
+        }
+        offsets[size] = transitions;
+
+        keys = new char[transitions];
+        targets = new int[transitions];
+        output = new int[size];
+        depth = new int[size];
+        for (int s = 0; s < size; s++) {
+            int i = offsets[s];
+            for (final Map.Entry<Character, Integer> entry : trie.get(s).entrySet()) {
+                keys[i] = entry.getKey();
+                targets[i++] = entry.getValue();
+            }
+            output[s] = outputs.get(s);
+            depth[s] = depths.get(s);
+        }
+
+        rootAscii = new int[ASCII];
+        for (int c = 0; c < ASCII; c++)
+            rootAscii[c] = Math.max(ROOT, child(ROOT, (char) c));
+
+        fail = new int[size];
+        outputLink = new int[size];
+        outputLink[ROOT] = -1;
+
+        final Queue<Integer> queue = new ArrayDeque<>();
+        for (int i = offsets[ROOT]; i < offsets[ROOT + 1]; i++) {
+            fail[targets[i]] = ROOT;
+            outputLink[targets[i]] = -1;
+            queue.add(targets[i]);
+        }
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            for (int i = offsets[state]; i < offsets[state + 1]; i++) {
+                final int target = targets[i];
+                final int f = next(fail[state], keys[i]);
+                fail[target] = f;
+                outputLink[target] = output[f] != -1 ? f : outputLink[f];
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of patterns.
+     *
+     * @return the number of patterns
+     */
+    int size() {
+        return lengths.length;
+    }
+
+    /**
+     * Returns the length of the specified pattern.
+     *
+     * @param pattern the index of the pattern
+     * @return the length of the specified pattern
+     */
+    int length(final int pattern) {
+        return lengths[pattern];
+    }
+
+    /**
+     * Returns whether any of the patterns occurs in the input.
+     *
+     * @param input the input
+     * @return {@code true} if any of the patterns occurs in the input
+     */
+    boolean containsAny(final CharSequence input) {
+        int state = ROOT;
+        for (int i = 0; i < input.length(); i++) {
+            state = next(state, input.charAt(i));
+            if (output[state] != -1 || outputLink[state] != -1)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indexes of the patterns which occur in the input.
+     *
+     * @param input the input
+     * @return the indexes of the patterns which occur in the input
+     */
+    BitSet occurrences(final CharSequence input) {
+        final BitSet result = new BitSet();
+        int state = ROOT;
+        for (int i = 0; i < input.length(); i++) {
+            state = next(state, input.charAt(i));
+            for (int s = output[state] != -1 ? state : outputLink[state]; s != -1; s = outputLink[s])
+                result.set(output[s]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the leftmost occurrence of any pattern which starts at or after the specified index. Among the occurrences
+     * which start at the leftmost index the longest pattern is chosen if {@code longest} is {@code true}, otherwise the
+     * pattern with the smallest index.
+     *
+     * @param input   the input
+     * @param from    the index at which to start the search
+     * @param longest whether to prefer the longest pattern rather than the first
+     * @return the start of the occurrence in the upper 32 bits and the index of the pattern in the lower 32 bits, or
+     *         {@code -1} if no pattern occurs
+     */
+    long find(final CharSequence input, final int from, final boolean longest) {
+        int start = -1;
+        int pattern = -1;
+        int state = ROOT;
+        for (int i = from; i < input.length(); i++) {
+            state = next(state, input.charAt(i));
+            if (start != -1 && i + 1 - depth[state] > start)
+                break;
+            for (int s = output[state] != -1 ? state : outputLink[state]; s != -1; s = outputLink[s]) {
+                final int p = output[s];
+                final int begin = i + 1 - depth[s];
+                if (start == -1 || begin < start || begin == start && (longest ? lengths[p] > lengths[pattern] : p < pattern)) {
+                    start = begin;
+                    pattern = p;
+                }
+            }
+        }
+        return start == -1 ? -1 : (long) start << 32 | pattern;
+    }
+
+    /**
+     * Returns the index of the pattern equal to the entire input, or -1.
+     *
+     * @param input the input
+     * @return the index of the pattern equal to the entire input, or -1
+     */
+    int lookup(final CharSequence input) {
+        int state = ROOT;
+        for (int i = 0; i < input.length() && state != -1; i++)
+            state = child(state, input.charAt(i));
+        return state == -1 ? -1 : output[state];
+    }
+
+    /*
+     * Returns the state reached from the specified state on the specified character, following failure links.
+     */
+    private int next(int state, final char c) {
+        for (;;) {
+            if (state == ROOT)
+                return c < ASCII ? rootAscii[c] : Math.max(ROOT, child(ROOT, c));
+            final int child = child(state, c);
+            if (child != -1)
+                return child;
+            state = fail[state];
+        }
+    }
+
+    /*
+     * Returns the child of the specified state on the specified character, or -1.
+     */
+    private int child(final int state, final char c) {
+        final int index = Arrays.binarySearch(keys, offsets[state], offsets[state + 1], c);
+        return index < 0 ? -1 : targets[index];
+    }
+
+}
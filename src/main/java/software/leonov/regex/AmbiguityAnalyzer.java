@@ -0,0 +1,430 @@
+package software.leonov.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import software.leonov.regex.RegexNode.Alternation;
+import software.leonov.regex.RegexNode.Anchor;
+import software.leonov.regex.RegexNode.Backreference;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Repeat;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * Estimates the worst-case backtracking {@link RegexComplexity complexity} of a {@link RegexNode} tree by testing the
+ * ambiguity of an equivalent nondeterministic automaton.
+ * <p>
+ * The tree is converted into a position (Glushkov) automaton in which every literal and character class is a state.
+ * Transitions which are derived more than once, for example through both the inner and the outer quantifier of
+ * {@code (a+)+}, are counted separately since a backtracking engine explores each derivation. The automaton is then
+ * tested for exponential and infinite degrees of ambiguity following Allauzen, Mohri and Rastogi, <i>General algorithms
+ * for testing the ambiguity of finite automata</i>:
+ * <ul>
+ * <li>it is exponentially ambiguous if a strongly connected component of the product automaton A<sup>2</sup> contains a
+ * pair {@code (q, q)} and either a pair {@code (p, r)} with {@code p != r} or a repeated transition</li>
+ * <li>otherwise it is polynomially ambiguous if there are states {@code p != q} for which the triple product
+ * A<sup>3</sup> has a path from {@code (p, p, q)} to {@code (p, q, q)}</li>
+ * </ul>
+ * <p>
+ * The analysis is approximate. Anchors and backreferences are treated as matching the empty string, atomic groups and
+ * possessive quantifiers are treated as matching a single character, large counted repetitions are treated as unbounded,
+ * and lookaround assertions are analyzed separately.
+ *
+ * @author Zhenya Leonov
+ */
+final class AmbiguityAnalyzer {
+
+    /**
+     * The maximum number of states in an automaton which will be analyzed.
+     */
+    static final int MAX_POSITIONS = 160;
+
+    /**
+     * Counted repetitions with larger bounds are treated as unbounded.
+     */
+    private static final int MAX_EXPANDED_REPEAT = 4;
+
+    // state 0 is the initial state
+    private final List<CodePointSet> labels = new ArrayList<>();
+    private final List<int[]> transitions = new ArrayList<>(); // counts indexed by the target state
+    private final List<RegexNode> lookarounds = new ArrayList<>();
+
+    private int[][] count;
+    private int[][] successors;
+
+    private AmbiguityAnalyzer() {
+        position(CodePointSet.EMPTY);
+    }
+
+    /**
+     * Returns the worst-case backtracking complexity of the specified tree.
+     *
+     * @param root the root of the tree
+     * @throws IllegalArgumentException if the tree is too large to analyze
+     * @return the worst-case backtracking complexity of the specified tree
+     */
+    static RegexComplexity analyze(final RegexNode root) {
+        final AmbiguityAnalyzer analyzer = new AmbiguityAnalyzer();
+        analyzer.connect(new int[] { 0 }, analyzer.build(root).first);
+
+        RegexComplexity complexity = analyzer.complexity();
+        for (int i = 0; i < analyzer.lookarounds.size() && complexity != RegexComplexity.EXPONENTIAL; i++) {
+            final RegexComplexity lookaround = analyze(analyzer.lookarounds.get(i));
+            if (lookaround.compareTo(complexity) > 0)
+                complexity = lookaround;
+        }
+        return complexity;
+    }
+
+    private Fragment build(final RegexNode node) {
+        if (node instanceof Literal)
+            return position(CodePointSet.of(((Literal) node).codePoint));
+        else if (node instanceof CharClass) {
+            final CodePointSet set = ((CharClass) node).set;
+            return position(set == null ? CodePointSet.ALL : set);
+        } else if (node instanceof Sequence) {
+            Fragment fragment = Fragment.EMPTY;
+            for (final RegexNode child : ((Sequence) node).nodes)
+                fragment = concatenate(fragment, build(child));
+            return fragment;
+        } else if (node instanceof Alternation) {
+            Fragment fragment = null;
+            for (final RegexNode child : ((Alternation) node).alternatives) {
+                final Fragment alternative = build(child);
+                fragment = fragment == null ? alternative : new Fragment(union(fragment.first, alternative.first), union(fragment.last, alternative.last), fragment.nullable || alternative.nullable);
+            }
+            return fragment;
+        } else if (node instanceof Group) {
+            final Group group = (Group) node;
+            if (group.kind == Group.Kind.ATOMIC)
+                return opaque(group);
+            else if (group.kind.isLookaround()) {
+                lookarounds.add(group.child);
+                return Fragment.EMPTY;
+            } else
+                return build(group.child);
+        } else if (node instanceof Repeat) {
+            final Repeat repeat = (Repeat) node;
+            if (repeat.mode == Repeat.Mode.POSSESSIVE)
+                return opaque(repeat);
+            else if (repeat.max == Repeat.UNBOUNDED || repeat.max > MAX_EXPANDED_REPEAT)
+                return loop(repeat.child, Math.min(repeat.min, 1));
+            else
+                return expand(repeat.child, repeat.min, repeat.max);
+        } else if (node instanceof Anchor || node instanceof Backreference)
+            return Fragment.EMPTY;
+        else
+            throw new AssertionError(node);
+    }
+
+    /*
+     * x{min,} where min is 0 or 1
+     */
+    private Fragment loop(final RegexNode child, final int min) {
+        final Fragment fragment = build(child);
+        connect(fragment.last, fragment.first);
+        return new Fragment(fragment.first, fragment.last, fragment.nullable || min == 0);
+    }
+
+    /*
+     * x{min,max} as xxx(x(x)?)?
+     */
+    private Fragment expand(final RegexNode child, final int min, final int max) {
+        Fragment fragment = Fragment.EMPTY;
+        for (int i = 0; i < min; i++)
+            fragment = concatenate(fragment, build(child));
+
+        Fragment optional = Fragment.EMPTY;
+        for (int i = min; i < max; i++) {
+            final Fragment copy = concatenate(build(child), optional);
+            optional = new Fragment(copy.first, copy.last, true);
+        }
+        return concatenate(fragment, optional);
+    }
+
+    /*
+     * Atomic groups and possessive quantifiers never give back what they match, so they are modeled as a single state.
+     */
+    private Fragment opaque(final RegexNode node) {
+        final CodePointSet set = characters(node);
+        if (set.isEmpty())
+            return Fragment.EMPTY;
+        final Fragment fragment = position(set);
+        return new Fragment(fragment.first, fragment.last, nullable(node));
+    }
+
+    private Fragment concatenate(final Fragment a, final Fragment b) {
+        connect(a.last, b.first);
+        return new Fragment(a.nullable ? union(a.first, b.first) : a.first, b.nullable ? union(a.last, b.last) : b.last, a.nullable && b.nullable);
+    }
+
+    private Fragment position(final CodePointSet label) {
+        if (labels.size() > MAX_POSITIONS)
+            throw new IllegalArgumentException("expression is too large to analyze");
+        labels.add(label);
+        transitions.add(new int[0]);
+        final int[] state = { labels.size() - 1 };
+        return new Fragment(state, state, false);
+    }
+
+    private void connect(final int[] sources, final int[] targets) {
+        for (final int source : sources) {
+            int[] counts = transitions.get(source);
+            for (final int target : targets) {
+                if (target >= counts.length)
+                    transitions.set(source, counts = Arrays.copyOf(counts, Math.max(target + 1, counts.length * 2)));
+                counts[target]++;
+            }
+        }
+    }
+
+    private RegexComplexity complexity() {
+        final int n = labels.size();
+        count = new int[n][];
+        successors = new int[n][];
+        for (int p = 0; p < n; p++) {
+            count[p] = Arrays.copyOf(transitions.get(p), n);
+            int size = 0;
+            for (int q = 0; q < n; q++)
+                if (count[p][q] > 0 && !labels.get(q).isEmpty())
+                    size++;
+            successors[p] = new int[size];
+            for (int q = 0, i = 0; q < n; q++)
+                if (count[p][q] > 0 && !labels.get(q).isEmpty())
+                    successors[p][i++] = q;
+        }
+
+        final int[] components = components(n, p -> successors[p]);
+
+        if (exponential(n, components))
+            return RegexComplexity.EXPONENTIAL;
+        else if (polynomial(n, components))
+            return RegexComplexity.POLYNOMIAL;
+        else
+            return RegexComplexity.LINEAR;
+    }
+
+    private boolean exponential(final int n, final int[] components) {
+        // a cycle in A^2 through (q, q) projects onto cycles through q, so only pairs in the same component are relevant
+        final int[][] pairs = new int[n * n][];
+        for (int p = 0; p < n; p++)
+            for (int r = 0; r < n; r++) {
+                if (components[p] != components[r])
+                    continue;
+                final List<Integer> targets = new ArrayList<>();
+                for (final int p1 : successors[p])
+                    for (final int r1 : successors[r])
+                        if (components[p1] == components[p] && components[r1] == components[p] && labels.get(p1).intersects(labels.get(r1)))
+                            targets.add(p1 * n + r1);
+                pairs[p * n + r] = targets.stream().mapToInt(Integer::intValue).toArray();
+            }
+
+        final int[] product = components(n * n, pair -> pairs[pair] == null ? new int[0] : pairs[pair]);
+
+        final BitSet diagonal = new BitSet();
+        for (int q = 0; q < n; q++)
+            if (pairs[q * n + q] != null)
+                diagonal.set(product[q * n + q]);
+
+        for (int p = 0; p < n; p++)
+            for (int r = 0; r < n; r++) {
+                if (pairs[p * n + r] == null || !diagonal.get(product[p * n + r]))
+                    continue;
+                if (p != r && cyclic(product, pairs, p * n + r))
+                    return true;
+                if (p == r)
+                    for (final int q : successors[p])
+                        if (count[p][q] > 1 && product[q * n + q] == product[p * n + p])
+                            return true;
+            }
+        return false;
+    }
+
+    private static boolean cyclic(final int[] components, final int[][] edges, final int node) {
+        for (final int target : edges[node])
+            if (components[target] == components[node])
+                return true;
+        return false;
+    }
+
+    private boolean polynomial(final int n, final int[] components) {
+        final int[] sizes = new int[n];
+        for (int p = 0; p < n; p++)
+            sizes[components[p]]++;
+
+        final BitSet looping = new BitSet(n);
+        for (int p = 0; p < n; p++)
+            if (sizes[components[p]] > 1 || count[p][p] > 0)
+                looping.set(p);
+
+        final CodePointSet[][] intersections = new CodePointSet[n][n];
+        final BitSet visited = new BitSet();
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (int p = looping.nextSetBit(0); p >= 0; p = looping.nextSetBit(p + 1))
+            for (int q = looping.nextSetBit(0); q >= 0; q = looping.nextSetBit(q + 1)) {
+                if (components[p] == components[q])
+                    continue;
+
+                visited.clear();
+                queue.clear();
+
+                final int start = (p * n + p) * n + q;
+                final int target = (p * n + q) * n + q;
+                visited.set(start);
+                queue.add(start);
+
+                while (!queue.isEmpty()) {
+                    final int node = queue.poll();
+                    final int a = node / (n * n);
+                    final int b = node / n % n;
+                    final int c = node % n;
+
+                    for (final int a1 : successors[a]) {
+                        if (components[a1] != components[p])
+                            continue;
+                        for (final int b1 : successors[b]) {
+                            if (!labels.get(a1).intersects(labels.get(b1)))
+                                continue;
+                            if (intersections[a1][b1] == null)
+                                intersections[a1][b1] = labels.get(a1).intersection(labels.get(b1));
+                            for (final int c1 : successors[c]) {
+                                if (components[c1] != components[q] || !intersections[a1][b1].intersects(labels.get(c1)))
+                                    continue;
+                                final int next = (a1 * n + b1) * n + c1;
+                                if (next == target)
+                                    return true;
+                                if (!visited.get(next)) {
+                                    visited.set(next);
+                                    queue.add(next);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        return false;
+    }
+
+    /*
+     * Tarjan's algorithm, iterative to avoid overflowing the stack on large product automata.
+     */
+    private static int[] components(final int n, final IntFunction<int[]> edges) {
+        final int[] index = new int[n];
+        final int[] low = new int[n];
+        final int[] component = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] stack = new int[n];
+        final int[] callStack = new int[n];
+        final int[] edge = new int[n];
+        Arrays.fill(index, -1);
+
+        int counter = 0;
+        int components = 0;
+        int sp = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0)
+                continue;
+            int csp = 0;
+            callStack[csp++] = root;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            edge[root] = 0;
+
+            while (csp > 0) {
+                final int v = callStack[csp - 1];
+                final int[] targets = edges.apply(v);
+                if (edge[v] < targets.length) {
+                    final int w = targets[edge[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        edge[w] = 0;
+                        callStack[csp++] = w;
+                    } else if (onStack[w])
+                        low[v] = Math.min(low[v], index[w]);
+                } else {
+                    csp--;
+                    if (csp > 0)
+                        low[callStack[csp - 1]] = Math.min(low[callStack[csp - 1]], low[v]);
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            component[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                }
+            }
+        }
+        return component;
+    }
+
+    private static CodePointSet characters(final RegexNode node) {
+        if (node instanceof Literal)
+            return CodePointSet.of(((Literal) node).codePoint);
+        else if (node instanceof CharClass)
+            return ((CharClass) node).set == null ? CodePointSet.ALL : ((CharClass) node).set;
+        else if (node instanceof Group && ((Group) node).kind.isLookaround())
+            return CodePointSet.EMPTY;
+
+        CodePointSet set = CodePointSet.EMPTY;
+        for (final RegexNode child : node.children())
+            set = set.union(characters(child));
+        return set;
+    }
+
+    private static boolean nullable(final RegexNode node) {
+        if (node instanceof Literal || node instanceof CharClass)
+            return false;
+        else if (node instanceof Sequence) {
+            for (final RegexNode child : ((Sequence) node).nodes)
+                if (!nullable(child))
+                    return false;
+            return true;
+        } else if (node instanceof Alternation) {
+            for (final RegexNode child : ((Alternation) node).alternatives)
+                if (nullable(child))
+                    return true;
+            return false;
+        } else if (node instanceof Group)
+            return ((Group) node).kind.isLookaround() || nullable(((Group) node).child);
+        else if (node instanceof Repeat)
+            return ((Repeat) node).min == 0 || nullable(((Repeat) node).child);
+        else
+            return true;
+    }
+
+    private static int[] union(final int[] a, final int[] b) {
+        final int[] union = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, union, a.length, b.length);
+        return union;
+    }
+
+    private static final class Fragment {
+
+        private static final Fragment EMPTY = new Fragment(new int[0], new int[0], true);
+
+        private final int[] first;
+        private final int[] last;
+        private final boolean nullable;
+
+        private Fragment(final int[] first, final int[] last, final boolean nullable) {
+            this.first = first;
+            this.last = last;
+            this.nullable = nullable;
+        }
+    }
+
+}
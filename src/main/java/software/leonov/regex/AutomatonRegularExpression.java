@@ -3,7 +3,11 @@ package software.leonov.regex;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 
 import dk.brics.automaton.AutomatonMatcher;
 import dk.brics.automaton.RegExp;
@@ -13,26 +17,52 @@ import software.leonov.common.base.Str;
 /**
  * An implementation of the {@code RegularExpression} interface using the
  * <a href="http://www.brics.dk/automaton/" target="_blank">http://www.brics.dk/automaton</a> package.
+ * <p>
+ * The expression is converted into a minimal deterministic automaton when it is compiled. The resulting
+ * {@link RunAutomaton} is immutable and shared by all matchers created from this {@code AutomatonRegularExpression}, so
+ * the cost of determinization is paid once rather than for every input.
  * 
  * @author Zhenya Leonov
  */
 public final class AutomatonRegularExpression implements RegularExpression {
 
-    private final RegExp pattern;
+    private final RunAutomaton automaton;
     private final String regex;
     private final int flags;
+    private final boolean translated;
 
     private AutomatonRegularExpression(final String regex, final int flags) {
+        this(regex, regex, flags, false);
+    }
+
+    private AutomatonRegularExpression(final String regex, final String expression, final int flags, final boolean translated) {
         this.flags = flags;
         this.regex = regex;
-        pattern = new RegExp(regex, flags);
+        this.translated = translated;
+        automaton = new RunAutomaton(new RegExp(expression, flags).toAutomaton());
     }
 
+    /**
+     * Compiles the given regular-expression.
+     * 
+     * @param regex the expression to be compiled
+     * @throws IllegalArgumentException if the expression's syntax is invalid
+     * @return a new {@code AutomatonRegularExpression} instance
+     */
     public static AutomatonRegularExpression compile(final String regex) {
         checkNotNull(regex, "regex == null");
         return new AutomatonRegularExpression(regex, 0);
     }
 
+    /**
+     * Compiles the given regular-expression with the specified syntax flags.
+     * 
+     * @param regex the expression to be compiled
+     * @param flags syntax flags, a bit mask of the {@link RegExp} constants such as {@link RegExp#ALL} or
+     *              {@link RegExp#NONE}
+     * @throws IllegalArgumentException if the expression's syntax is invalid
+     * @return a new {@code AutomatonRegularExpression} instance
+     */
     public static AutomatonRegularExpression compile(final String regex, final int flags) {
         checkNotNull(regex, "regex == null");
         return new AutomatonRegularExpression(regex, flags);
@@ -40,19 +70,31 @@ public final class AutomatonRegularExpression implements RegularExpression {
 
     @Override
     public StringMatcher<AutomatonMatcher> matcher(final String input) {
-        checkNotNull(input, "input == null");
+        return matcher((CharSequence) input);
+    }
 
-        final RunAutomaton automaton = new RunAutomaton(pattern.toAutomaton());
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<AutomatonMatcher> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
 
         return new StringMatcher<AutomatonMatcher>() {
 
+            private CharSequence target = input;
             private AutomatonMatcher matcher = automaton.newMatcher(input);
 
             private boolean find = false;
 
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return target;
             }
 
             @Override
@@ -76,7 +118,7 @@ public final class AutomatonRegularExpression implements RegularExpression {
 
             @Override
             public boolean matchesImpl() {
-                match = automaton.run(input);
+                match = run(target);
                 return match;
             }
 
@@ -111,7 +153,7 @@ public final class AutomatonRegularExpression implements RegularExpression {
             public int end() {
                 checkState(match | find, "no match available");
                 if (match)
-                    return input.length();
+                    return target.length();
                 else
                     return matcher.end();
             }
@@ -119,7 +161,13 @@ public final class AutomatonRegularExpression implements RegularExpression {
             @Override
             public void reset() {
                 super.reset();
-                matcher = automaton.newMatcher(input);
+                find = false;
+                matcher = automaton.newMatcher(target);
+            }
+
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                target = input; // the AutomatonMatcher is bound to its input and is replaced by reset()
             }
 
             @Override
@@ -134,6 +182,21 @@ public final class AutomatonRegularExpression implements RegularExpression {
         return regex;
     }
 
+    /**
+     * Returns {@code true} if this expression was compiled by the {@link Engine} and its {@link #pattern() pattern} is
+     * written in the syntax of the {@link java.util.regex.Pattern} class rather than the {@link RegExp} syntax.
+     */
+    boolean isTranslated() {
+        return translated;
+    }
+
+    private boolean run(final CharSequence input) {
+        int state = automaton.getInitialState();
+        for (int i = 0; i < input.length() && state != -1; i++)
+            state = automaton.step(state, input.charAt(i));
+        return state != -1 && automaton.isAccept(state);
+    }
+
     /**
      * Returns the match {@link #compile(String, int) flags} specified when this {@code RegularExpression} was compiled.
      *
@@ -148,4 +211,55 @@ public final class AutomatonRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    /**
+     * The {@link RegexEngine} backed by the dk.brics.automaton package, registered under the name {@code "automaton"}.
+     * <p>
+     * Unlike the static {@code compile} methods, this engine accepts expressions written in the syntax of the
+     * {@link java.util.regex.Pattern} class, so that it can be used interchangeably with the other engines. Expressions
+     * are translated into the {@link RegExp} syntax before they are compiled. Only regular expressions can be translated:
+     * anchors, backreferences, lookaround, atomic groups, possessive quantifiers and Unicode character classes are
+     * rejected with an {@code IllegalArgumentException}. All {@link RegexOption}s are supported.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.JAVA_SEMANTICS, Capability.LINEAR_TIME);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(EnumSet.allOf(RegexOption.class));
+
+        /**
+         * Creates a new {@code Engine}.
+         *
+         * @throws NoClassDefFoundError if the underlying library is not on the class path
+         */
+        public Engine() {
+            RunAutomaton.class.getName(); // fail fast when loaded by the ServiceLoader
+        }
+
+        @Override
+        public String name() {
+            return "automaton";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public AutomatonRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+            return new AutomatonRegularExpression(regex, AutomatonSyntax.translate(RegexParser.parse(regex, options)), RegExp.NONE, true);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
@@ -0,0 +1,163 @@
+package software.leonov.regex;
+
+import software.leonov.regex.RegexNode.Alternation;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Repeat;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * Translates {@link RegexNode} trees into the syntax of the dk.brics.automaton {@link dk.brics.automaton.RegExp RegExp}
+ * class, compiled without any of the optional syntax extensions.
+ * <p>
+ * Only the regular subset of the {@code java.util.regex} syntax can be translated. Anchors, backreferences, lookaround,
+ * atomic groups, possessive quantifiers and unresolved Unicode classes cause an {@code IllegalArgumentException}. Lazy
+ * quantifiers are translated as greedy quantifiers since an automaton does not distinguish between them. Supplementary
+ * code points are translated to surrogate pairs; unpaired surrogates in the input are never matched by a character
+ * class.
+ *
+ * @author Zhenya Leonov
+ */
+final class AutomatonSyntax {
+
+    private static final int MIN_SUPPLEMENTARY = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+
+    private static final CodePointSet BMP = CodePointSet.range(0, Character.MAX_VALUE).difference(CodePointSet.range(Character.MIN_SURROGATE, Character.MAX_SURROGATE));
+
+    private AutomatonSyntax() {
+    }
+
+    /**
+     * Returns the dk.brics.automaton expression equivalent to the specified tree.
+     *
+     * @param node the root of the tree
+     * @throws IllegalArgumentException if the tree contains a construct which cannot be represented by an automaton
+     * @return the dk.brics.automaton expression equivalent to the specified tree
+     */
+    static String translate(final RegexNode node) {
+        final StringBuilder sb = new StringBuilder();
+        translate(node, sb);
+        return sb.toString();
+    }
+
+    private static void translate(final RegexNode node, final StringBuilder sb) {
+        if (node instanceof Literal)
+            appendCodePoint(((Literal) node).codePoint, sb);
+        else if (node instanceof CharClass)
+            appendClass(((CharClass) node).set, sb);
+        else if (node instanceof Sequence) {
+            final Sequence sequence = (Sequence) node;
+            if (sequence.nodes.isEmpty())
+                sb.append("()");
+            for (final RegexNode child : sequence.nodes)
+                translate(child, sb);
+        } else if (node instanceof Alternation) {
+            final Alternation alternation = (Alternation) node;
+            sb.append('(');
+            for (int i = 0; i < alternation.alternatives.size(); i++) {
+                if (i > 0)
+                    sb.append('|');
+                translate(alternation.alternatives.get(i), sb);
+            }
+            sb.append(')');
+        } else if (node instanceof Group) {
+            final Group group = (Group) node;
+            if (group.kind != Group.Kind.CAPTURING && group.kind != Group.Kind.NON_CAPTURING)
+                throw unsupported(node);
+            sb.append('(');
+            translate(group.child, sb);
+            sb.append(')');
+        } else if (node instanceof Repeat) {
+            final Repeat repeat = (Repeat) node;
+            if (repeat.mode == Repeat.Mode.POSSESSIVE)
+                throw unsupported(node);
+            sb.append('(');
+            translate(repeat.child, sb);
+            sb.append(')');
+            if (repeat.max == Repeat.UNBOUNDED)
+                sb.append(repeat.min == 0 ? "*" : repeat.min == 1 ? "+" : "{" + repeat.min + ",}");
+            else if (repeat.min == 0 && repeat.max == 1)
+                sb.append('?');
+            else if (repeat.min == repeat.max)
+                sb.append('{').append(repeat.min).append('}');
+            else
+                sb.append('{').append(repeat.min).append(',').append(repeat.max).append('}');
+        } else
+            throw unsupported(node);
+    }
+
+    private static void appendClass(final CodePointSet set, final StringBuilder sb) {
+        if (set == null)
+            throw new IllegalArgumentException("Unicode character classes are not supported");
+
+        final CodePointSet bmp = set.intersection(BMP);
+        final CodePointSet supplementary = set.intersection(CodePointSet.range(MIN_SUPPLEMENTARY, Character.MAX_CODE_POINT));
+
+        if (bmp.isEmpty() && supplementary.isEmpty())
+            throw new IllegalArgumentException("empty character classes are not supported");
+
+        sb.append('(');
+        boolean first = true;
+        if (!bmp.isEmpty()) {
+            appendRanges(bmp, sb);
+            first = false;
+        }
+        for (int i = 0; i < supplementary.rangeCount(); i++) {
+            final int lo = supplementary.lo(i);
+            final int hi = supplementary.hi(i);
+            final char loHigh = Character.highSurrogate(lo);
+            final char hiHigh = Character.highSurrogate(hi);
+
+            if (loHigh == hiHigh)
+                first = appendPair(loHigh, loHigh, Character.lowSurrogate(lo), Character.lowSurrogate(hi), first, sb);
+            else {
+                first = appendPair(loHigh, loHigh, Character.lowSurrogate(lo), Character.MAX_LOW_SURROGATE, first, sb);
+                if (hiHigh - loHigh > 1)
+                    first = appendPair(loHigh + 1, hiHigh - 1, Character.MIN_LOW_SURROGATE, Character.MAX_LOW_SURROGATE, first, sb);
+                first = appendPair(hiHigh, hiHigh, Character.MIN_LOW_SURROGATE, Character.lowSurrogate(hi), first, sb);
+            }
+        }
+        sb.append(')');
+    }
+
+    private static boolean appendPair(final int highLo, final int highHi, final int lowLo, final int lowHi, final boolean first, final StringBuilder sb) {
+        if (!first)
+            sb.append('|');
+        appendRanges(CodePointSet.range(highLo, highHi), sb);
+        appendRanges(CodePointSet.range(lowLo, lowHi), sb);
+        return false;
+    }
+
+    private static void appendRanges(final CodePointSet set, final StringBuilder sb) {
+        if (set.rangeCount() == 1 && set.lo(0) == set.hi(0)) {
+            appendChar((char) set.lo(0), sb);
+            return;
+        }
+        sb.append('[');
+        for (int i = 0; i < set.rangeCount(); i++) {
+            appendChar((char) set.lo(i), sb);
+            if (set.hi(i) != set.lo(i)) {
+                sb.append('-');
+                appendChar((char) set.hi(i), sb);
+            }
+        }
+        sb.append(']');
+    }
+
+    private static void appendCodePoint(final int codePoint, final StringBuilder sb) {
+        for (final char c : Character.toChars(codePoint))
+            appendChar(c, sb);
+    }
+
+    private static void appendChar(final char c, final StringBuilder sb) {
+        if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'))
+            sb.append('\\');
+        sb.append(c);
+    }
+
+    private static IllegalArgumentException unsupported(final RegexNode node) {
+        return new IllegalArgumentException(node + " cannot be represented by an automaton");
+    }
+
+}
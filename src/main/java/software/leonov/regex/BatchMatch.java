@@ -0,0 +1,193 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Matches a regular-expression against many inputs, returning the results of all the inputs at once.
+ * <p>
+ * The results are primitive: a {@code BitSet} for {@link StringMatcher#matches()} and an array of offsets for the
+ * first {@link StringMatcher#find()} of each input, so that matching millions of short records does not allocate a
+ * result object per record. A single {@code StringMatcher} is created for each batch of inputs and is
+ * {@link StringMatcher#reset(CharSequence) reset} with every input of the batch. The inputs may be matched concurrently
+ * on a supplied {@code ExecutorService}, in batches of {@link #BATCH} consecutive inputs.
+ * <p>
+ * The inputs are read through an iterator, so lists without random access are acceptable. Neither the list nor its
+ * elements may change while they are being matched.
+ *
+ * @author Zhenya Leonov
+ */
+public final class BatchMatch {
+
+    /**
+     * The number of consecutive inputs matched by each task submitted to an {@code ExecutorService}.
+     */
+    public static final int BATCH = 4096; // a multiple of 64 so that no two tasks share a word of the result
+
+    private BatchMatch() {
+    }
+
+    /**
+     * Attempts to match each of the specified inputs in its entirety against the given expression.
+     *
+     * @param regex  the expression
+     * @param inputs the inputs
+     * @return a {@code BitSet} whose bit {@code i} is set if, and only if, the input at index {@code i} matches
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public static BitSet matchesAll(final RegularExpression regex, final List<? extends CharSequence> inputs) throws Throwable {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(inputs, "inputs == null");
+
+        final long[] words = new long[words(inputs.size())];
+        matches(regex, inputs, 0, inputs.size(), words);
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Attempts to match each of the specified inputs in its entirety against the given expression, matching batches of
+     * inputs concurrently on the specified executor.
+     *
+     * @param regex    the expression
+     * @param inputs   the inputs
+     * @param executor the executor on which the batches are matched
+     * @return a {@code BitSet} whose bit {@code i} is set if, and only if, the input at index {@code i} matches
+     * @throws InterruptedException if current thread is interrupted while waiting for the batches to be matched
+     * @throws Throwable            if any errors occurs while matching a batch
+     */
+    public static BitSet matchesAll(final RegularExpression regex, final List<? extends CharSequence> inputs, final ExecutorService executor) throws Throwable {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(inputs, "inputs == null");
+        checkNotNull(executor, "executor == null");
+
+        final long[] words = new long[words(inputs.size())];
+        run(executor, inputs.size(), (from, to) -> matches(regex, inputs, from, to, words));
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Attempts to find the first match of the given expression in each of the specified inputs.
+     *
+     * @param regex  the expression
+     * @param inputs the inputs
+     * @return an array whose element {@code i} is the start index of the first match in the input at index {@code i}, or
+     *         {@code -1} if there is no match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public static int[] findFirstAll(final RegularExpression regex, final List<? extends CharSequence> inputs) throws Throwable {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(inputs, "inputs == null");
+
+        final int[] offsets = new int[inputs.size()];
+        find(regex, inputs, 0, inputs.size(), offsets);
+        return offsets;
+    }
+
+    /**
+     * Attempts to find the first match of the given expression in each of the specified inputs, matching batches of
+     * inputs concurrently on the specified executor.
+     *
+     * @param regex    the expression
+     * @param inputs   the inputs
+     * @param executor the executor on which the batches are matched
+     * @return an array whose element {@code i} is the start index of the first match in the input at index {@code i}, or
+     *         {@code -1} if there is no match
+     * @throws InterruptedException if current thread is interrupted while waiting for the batches to be matched
+     * @throws Throwable            if any errors occurs while matching a batch
+     */
+    public static int[] findFirstAll(final RegularExpression regex, final List<? extends CharSequence> inputs, final ExecutorService executor) throws Throwable {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(inputs, "inputs == null");
+        checkNotNull(executor, "executor == null");
+
+        final int[] offsets = new int[inputs.size()];
+        run(executor, inputs.size(), (from, to) -> find(regex, inputs, from, to, offsets));
+        return offsets;
+    }
+
+    private static int words(final int size) {
+        return (size + 63) >>> 6;
+    }
+
+    private static void matches(final RegularExpression regex, final List<? extends CharSequence> inputs, final int from, final int to, final long[] words) throws Throwable {
+        final Iterator<? extends CharSequence> itr = inputs.subList(from, to).iterator();
+        StringMatcher<?> matcher = null;
+        for (int i = from; i < to; i++) {
+            matcher = matcher(regex, matcher, itr.next());
+            if (matcher.matches())
+                words[i >>> 6] |= 1L << i;
+        }
+    }
+
+    private static void find(final RegularExpression regex, final List<? extends CharSequence> inputs, final int from, final int to, final int[] offsets) throws Throwable {
+        final Iterator<? extends CharSequence> itr = inputs.subList(from, to).iterator();
+        StringMatcher<?> matcher = null;
+        for (int i = from; i < to; i++) {
+            matcher = matcher(regex, matcher, itr.next());
+            offsets[i] = matcher.find() ? matcher.start() : -1;
+        }
+    }
+
+    /*
+     * Resets the matcher of the batch with the specified input, or creates a new matcher for the first input of the batch
+     * and for implementations which cannot replace the input of a matcher.
+     */
+    private static StringMatcher<?> matcher(final RegularExpression regex, final StringMatcher<?> matcher, final CharSequence input) {
+        if (matcher != null)
+            try {
+                return matcher.reset(input);
+            } catch (final UnsupportedOperationException e) { // a new matcher is created below
+            }
+        return regex.matcher(input);
+    }
+
+    /*
+     * Matches the batches on the executor and waits for all of them to complete. Each batch writes to its own range of
+     * the result.
+     */
+    private static void run(final ExecutorService executor, final int size, final Batch batch) throws Throwable {
+        final List<Future<Void>> futures = new ArrayList<>((size + BATCH - 1) / BATCH);
+        try {
+            for (int from = 0; from < size; from += BATCH) {
+                final int start = from;
+                final int end = Math.min(size, from + BATCH);
+                futures.add(executor.submit(() -> {
+                    try {
+                        batch.match(start, end);
+                        return null;
+                    } catch (final Throwable t) {
+                        Throwables.throwIfInstanceOf(t, Exception.class);
+                        Throwables.throwIfUnchecked(t);
+                        throw new AssertionError(t);
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures)
+                future.get();
+        } catch (final ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            for (final Future<?> future : futures)
+                future.cancel(false);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        void match(final int from, final int to) throws Throwable;
+    }
+
+}
@@ -0,0 +1,76 @@
+package software.leonov.regex;
+
+/**
+ * Regular-expression features and guarantees which are supported by some, but not all, regular-expression engines.
+ *
+ * @author Zhenya Leonov
+ * @see RegexEngine#capabilities()
+ */
+public enum Capability {
+
+    /**
+     * Boundary assertions such as {@code ^}, {@code $}, {@code \A}, {@code \z} and {@code \b}. Engines may not support
+     * every boundary assertion of the {@code java.util.regex} syntax.
+     */
+    ANCHORS,
+
+    /**
+     * Atomic groups and possessive quantifiers, such as {@code (?>a+)} and {@code a++}.
+     */
+    ATOMIC_GROUPS,
+
+    /**
+     * Backreferences to previously captured groups, such as {@code (a)\1}.
+     */
+    BACKREFERENCES,
+
+    /**
+     * The boundaries of capturing groups are reported by {@link StringMatcher#start(int)}, {@link StringMatcher#end(int)}
+     * and {@link StringMatcher#group(int)}.
+     */
+    CAPTURING_GROUPS,
+
+    /**
+     * Timed match operations, such as {@link StringMatcher#find(java.time.Duration)}, are abandoned once their deadline
+     * elapses. Engines without this guarantee may not notice the deadline and run the operation to completion.
+     */
+    INTERRUPTIBLE,
+
+    /**
+     * Constructs whose meaning differs among engines accepting the {@code java.util.regex} syntax are evaluated with their
+     * {@code java.util.regex} meaning: {@code .}, {@code ^} and {@code $} recognize every line terminator, {@code $}
+     * matches before a final line terminator, {@code \b} and {@code \s} use the {@code java.util.regex} word and
+     * whitespace characters, classes may be nested and intersected, and case-insensitive matching folds only ASCII
+     * characters unless {@link RegexOption#UNICODE_CASE} is set.
+     */
+    JAVA_SEMANTICS,
+
+    /**
+     * Alternatives and quantifiers are preferred in the same order as {@code java.util.regex}, so that
+     * {@link StringMatcher#find()} reports the same match boundaries. Engines without this capability may report a
+     * different, for example the longest, match starting at the same index.
+     */
+    LEFTMOST_FIRST,
+
+    /**
+     * Matching completes in time linear in the length of the input, regardless of the expression. Engines with this
+     * guarantee are immune to catastrophic backtracking.
+     */
+    LINEAR_TIME,
+
+    /**
+     * Lookahead assertions, such as {@code (?=a)} and {@code (?!a)}.
+     */
+    LOOKAHEAD,
+
+    /**
+     * Lookbehind assertions, such as {@code (?<=a)} and {@code (?<!a)}.
+     */
+    LOOKBEHIND,
+
+    /**
+     * Unicode character classes, such as {@code \p{L}} and {@code \p{IsGreek}}.
+     */
+    UNICODE_CLASSES;
+
+}
@@ -0,0 +1,48 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A read-only view of a range of characters of another {@code CharSequence}.
+ * <p>
+ * The characters are not copied until {@link #toString()} is called, so the underlying sequence must not change while
+ * the view is in use. Like other {@code CharSequence}s, views do not override {@code equals} and {@code hashCode}.
+ *
+ * @author Zhenya Leonov
+ */
+final class CharSlice implements CharSequence {
+
+    private final CharSequence input;
+    private final int start;
+    private final int end;
+
+    CharSlice(final CharSequence input, final int start, final int end) {
+        this.input = input;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        checkElementIndex(index, length());
+        return input.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        checkPositionIndexes(start, end, length());
+        return new CharSlice(input, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        return input.subSequence(start, end).toString();
+    }
+
+}
@@ -0,0 +1,278 @@
+package software.leonov.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable set of Unicode code points, stored as a sorted array of disjoint, non-adjacent, inclusive ranges.
+ * <p>
+ * Used to represent character classes after their ranges, nested classes, intersections, negations and case folding have
+ * been resolved.
+ *
+ * @author Zhenya Leonov
+ */
+final class CodePointSet {
+
+    static final CodePointSet EMPTY = new CodePointSet(new int[0]);
+    static final CodePointSet ALL = new CodePointSet(new int[] { Character.MIN_CODE_POINT, Character.MAX_CODE_POINT });
+
+    // lo0, hi0, lo1, hi1, ...
+    private final int[] ranges;
+
+    private CodePointSet(final int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    static CodePointSet of(final int codePoint) {
+        return range(codePoint, codePoint);
+    }
+
+    static CodePointSet range(final int lo, final int hi) {
+        return lo > hi ? EMPTY : new CodePointSet(new int[] { lo, hi });
+    }
+
+    /**
+     * Returns the set described by the specified ranges, which need not be sorted or disjoint.
+     */
+    static CodePointSet ranges(final int... ranges) {
+        final Builder builder = new Builder();
+        for (int i = 0; i < ranges.length; i += 2)
+            builder.add(ranges[i], ranges[i + 1]);
+        return builder.build();
+    }
+
+    int rangeCount() {
+        return ranges.length / 2;
+    }
+
+    int lo(final int range) {
+        return ranges[range * 2];
+    }
+
+    int hi(final int range) {
+        return ranges[range * 2 + 1];
+    }
+
+    boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * Returns the number of code points in this set.
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2)
+            size += ranges[i + 1] - ranges[i] + 1;
+        return size;
+    }
+
+    boolean contains(final int codePoint) {
+        int lo = 0;
+        int hi = rangeCount() - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (codePoint < lo(mid))
+                hi = mid - 1;
+            else if (codePoint > hi(mid))
+                lo = mid + 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if every code point in the specified range is in this set.
+     */
+    boolean containsAll(final int lo, final int hi) {
+        for (int i = 0; i < ranges.length; i += 2)
+            if (ranges[i] <= lo && hi <= ranges[i + 1])
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this set and the specified set have at least one code point in common.
+     */
+    boolean intersects(final CodePointSet other) {
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length && j < other.ranges.length) {
+            if (ranges[i + 1] < other.ranges[j])
+                i += 2;
+            else if (other.ranges[j + 1] < ranges[i])
+                j += 2;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    CodePointSet union(final CodePointSet other) {
+        final Builder builder = new Builder();
+        builder.addAll(this);
+        builder.addAll(other);
+        return builder.build();
+    }
+
+    CodePointSet complement() {
+        final Builder builder = new Builder();
+        int next = Character.MIN_CODE_POINT;
+        for (int i = 0; i < ranges.length; i += 2) {
+            builder.add(next, ranges[i] - 1);
+            next = ranges[i + 1] + 1;
+        }
+        builder.add(next, Character.MAX_CODE_POINT);
+        return builder.build();
+    }
+
+    CodePointSet intersection(final CodePointSet other) {
+        return complement().union(other.complement()).complement();
+    }
+
+    CodePointSet difference(final CodePointSet other) {
+        return intersection(other.complement());
+    }
+
+    /**
+     * Returns the case-insensitive closure of this set, as computed by {@code java.util.regex} for the
+     * {@code CASE_INSENSITIVE} flag: only US-ASCII letters are folded unless {@code unicode} is {@code true}, in which case
+     * the closure includes every code point {@code java.util.regex} considers equal to a member ignoring case, such as
+     * the Kelvin sign (U+212A) for {@code k}.
+     */
+    CodePointSet fold(final boolean unicode) {
+        final Builder builder = new Builder();
+        builder.addAll(this);
+        if (unicode) {
+            for (int i = 0; i < CaseClasses.CODE_POINTS.length; i++)
+                if (contains(CaseClasses.CODE_POINTS[i]))
+                    for (final int c : CaseClasses.CLASSES[i])
+                        builder.add(c, c);
+        } else
+            for (int i = 0; i < ranges.length && ranges[i] <= 0x7F; i += 2)
+                for (int c = ranges[i]; c <= Math.min(ranges[i + 1], 0x7F); c++)
+                    if (c >= 'a' && c <= 'z')
+                        builder.add(c - 32, c - 32);
+                    else if (c >= 'A' && c <= 'Z')
+                        builder.add(c + 32, c + 32);
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj == this || obj instanceof CodePointSet && Arrays.equals(ranges, ((CodePointSet) obj).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            sb.append(String.format("\\x{%X}", ranges[i]));
+            if (ranges[i + 1] != ranges[i])
+                sb.append(String.format("-\\x{%X}", ranges[i + 1]));
+        }
+        return sb.append(']').toString();
+    }
+
+    /*
+     * The classes of code points which java.util.regex matches to each other with UNICODE_CASE. A code point matches
+     * another if their upper cases, or the lower cases of their upper cases, are equal, or if one is the upper case of
+     * the other. Computed once, over every code point, and limited to the code points which match at least one other.
+     */
+    private static final class CaseClasses {
+
+        // sorted, and the class of CODE_POINTS[i] is CLASSES[i]
+        static final int[] CODE_POINTS;
+        static final int[][] CLASSES;
+
+        static {
+            final Map<Integer, Integer> parents = new HashMap<>();
+            for (int c = Character.MIN_CODE_POINT; c <= Character.MAX_CODE_POINT; c++) {
+                final int upper = Character.toUpperCase(c);
+                final int lower = Character.toLowerCase(upper);
+                if (upper != c)
+                    union(parents, c, upper);
+                if (lower != c)
+                    union(parents, c, lower);
+            }
+
+            final Map<Integer, List<Integer>> classes = new HashMap<>();
+            for (final Integer c : parents.keySet())
+                classes.computeIfAbsent(find(parents, c), root -> new ArrayList<>()).add(c);
+
+            CODE_POINTS = parents.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            CLASSES = new int[CODE_POINTS.length][];
+            for (int i = 0; i < CODE_POINTS.length; i++)
+                CLASSES[i] = classes.get(find(parents, CODE_POINTS[i])).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static int find(final Map<Integer, Integer> parents, final int c) {
+            int root = c;
+            while (parents.get(root) != root)
+                root = parents.get(root);
+            return root;
+        }
+
+        private static void union(final Map<Integer, Integer> parents, final int a, final int b) {
+            parents.putIfAbsent(a, a);
+            parents.putIfAbsent(b, b);
+            parents.put(find(parents, a), find(parents, b));
+        }
+    }
+
+    static final class Builder {
+
+        private int[] ranges = new int[16];
+        private int size = 0;
+
+        Builder add(final int lo, final int hi) {
+            if (lo > hi)
+                return this;
+            if (size == ranges.length)
+                ranges = Arrays.copyOf(ranges, size * 2);
+            ranges[size++] = lo;
+            ranges[size++] = hi;
+            return this;
+        }
+
+        Builder addAll(final CodePointSet set) {
+            for (int i = 0; i < set.ranges.length; i += 2)
+                add(set.ranges[i], set.ranges[i + 1]);
+            return this;
+        }
+
+        CodePointSet build() {
+            if (size == 0)
+                return EMPTY;
+
+            final long[] sorted = new long[size / 2];
+            for (int i = 0; i < size; i += 2)
+                sorted[i / 2] = (long) ranges[i] << 32 | ranges[i + 1];
+            Arrays.sort(sorted);
+
+            final int[] merged = new int[size];
+            int n = 0;
+            for (final long range : sorted) {
+                final int lo = (int) (range >>> 32);
+                final int hi = (int) range;
+                if (n > 0 && lo <= merged[n - 1] + 1)
+                    merged[n - 1] = Math.max(merged[n - 1], hi);
+                else {
+                    merged[n++] = lo;
+                    merged[n++] = hi;
+                }
+            }
+            return new CodePointSet(Arrays.copyOf(merged, n));
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * A replacement string which has been parsed into literal segments and references to captured groups.
+ * <p>
+ * The {@link StringMatcher#replaceAll(String)} family of methods interprets the replacement string anew every time it
+ * is applied. A {@code CompiledReplacement} is parsed once and can be applied to any number of matches, by any number of
+ * matchers, appending the text of the referenced groups directly from the input without creating intermediate strings.
+ * <p>
+ * The replacement string may contain references to captured groups. Each occurrence of {@code $} followed by an integer
+ * will be replaced by the text of the corresponding group; a multi-digit reference is shortened until it refers to an
+ * existing group and the remaining digits are treated as literal text. A {@code \} escapes the character which follows
+ * it. Named capturing groups are not supported.
+ * <p>
+ * Instances of this class are immutable and safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class CompiledReplacement {
+
+    private final String replacement;
+
+    /*
+     * The literal text preceding each group reference, followed by the literal text following the last reference.
+     */
+    private final String[] literals;
+
+    /*
+     * The digits following each $.
+     */
+    private final String[] references;
+
+    private CompiledReplacement(final String replacement, final String[] literals, final String[] references) {
+        this.replacement = replacement;
+        this.literals = literals;
+        this.references = references;
+    }
+
+    /**
+     * Parses the given replacement string.
+     *
+     * @param replacement the replacement string
+     * @throws IllegalArgumentException if the replacement string contains an illegal group reference or ends with an
+     *                                  unescaped {@code \}
+     * @return a new {@code CompiledReplacement} instance
+     */
+    public static CompiledReplacement compile(final String replacement) {
+        checkNotNull(replacement, "replacement == null");
+
+        final List<String> literals = new ArrayList<>();
+        final List<String> references = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+
+        int index = 0;
+        while (index < replacement.length()) {
+            final char ch = replacement.charAt(index++);
+            if (ch == '$') {
+                final int from = index;
+                while (index < replacement.length() && isDigit(replacement.charAt(index)))
+                    index++;
+                checkArgument(index > from, "illegal group reference");
+                literals.add(literal.toString());
+                references.add(replacement.substring(from, index));
+                literal.setLength(0);
+            } else if (ch == '\\') {
+                checkArgument(index < replacement.length(), "character to be escaped is missing");
+                literal.append(replacement.charAt(index++));
+            } else
+                literal.append(ch);
+        }
+        literals.add(literal.toString());
+
+        return new CompiledReplacement(replacement, literals.toArray(new String[0]), references.toArray(new String[0]));
+    }
+
+    /**
+     * Returns the replacement string from which this {@code CompiledReplacement} was parsed.
+     *
+     * @return the replacement string from which this {@code CompiledReplacement} was parsed
+     */
+    public String replacement() {
+        return replacement;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("replacement()", Str.truncate(replacement(), 200, "...")).toString();
+    }
+
+    /**
+     * Appends this replacement, evaluated against the current match of the specified matcher, to the given string
+     * builder.
+     *
+     * @param matcher the matcher
+     * @param sb      the target string builder
+     */
+    void appendTo(final StringMatcher<?> matcher, final StringBuilder sb) {
+        sb.append(literals[0]);
+
+        if (references.length == 0)
+            return;
+
+        final CharSequence input = matcher.getInput();
+        final int groupCount = matcher.groupCount();
+
+        for (int i = 0; i < references.length; i++) {
+            final String digits = references[i];
+
+            int group = digits.charAt(0) - '0';
+            int index = 1;
+            for (; index < digits.length(); index++) {
+                final int n = group * 10 + digits.charAt(index) - '0';
+                if (n > groupCount)
+                    break;
+                group = n;
+            }
+
+            final int start = group == 0 ? matcher.start() : matcher.start(group);
+            if (start != -1)
+                sb.append(input, start, group == 0 ? matcher.end() : matcher.end(group));
+
+            sb.append(digits, index, digits.length()).append(literals[i + 1]);
+        }
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
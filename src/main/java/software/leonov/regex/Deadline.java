@@ -0,0 +1,19 @@
+package software.leonov.regex;
+
+/**
+ * A time limit imposed on a single timed {@link StringMatcher} operation.
+ *
+ * @author Zhenya Leonov
+ */
+interface Deadline {
+
+    /**
+     * Disarms this deadline.
+     * <p>
+     * Once this method returns the match operation will no longer be abandoned on behalf of this deadline.
+     *
+     * @return {@code true} if this deadline expired before it was disarmed
+     */
+    boolean disarm();
+
+}
@@ -0,0 +1,136 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values, such as latencies in nanoseconds or input lengths.
+ * <p>
+ * Like HdrHistogram, values are counted in log-linear buckets: values below {@value #SUB_BUCKETS} are counted exactly,
+ * and every power-of-two range above is split into {@value #SUB_BUCKETS} / 2 buckets of equal width. The relative error
+ * of a reported value is therefore below {@code 1 / 16}, the histogram covers the entire range of {@code long} values in
+ * {@value #BUCKETS} counters, and recording a value is a few arithmetic operations followed by an atomic increment.
+ * <p>
+ * Instances of this class are safe for use by multiple concurrent threads. Values recorded concurrently with a query may
+ * or may not be reflected in its result.
+ *
+ * @author Zhenya Leonov
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(-1);
+
+    /**
+     * Creates a new empty histogram.
+     */
+    public Histogram() {
+    }
+
+    /**
+     * Records the specified value.
+     *
+     * @param value the value
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public void record(final long value) {
+        checkArgument(value >= 0, "value < 0");
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get())
+            max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the arithmetic mean of the recorded values, or {@code 0} if no values have been recorded.
+     *
+     * @return the arithmetic mean of the recorded values
+     */
+    public double mean() {
+        final long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the largest recorded value, or {@code 0} if no values have been recorded.
+     *
+     * @return the largest recorded value
+     */
+    public long max() {
+        return Math.max(max.get(), 0);
+    }
+
+    /**
+     * Returns the value below or at which the specified percentage of the recorded values fall, or {@code 0} if no values
+     * have been recorded. The result is the largest value counted in the same bucket, but never exceeds {@link #max()}.
+     *
+     * @param percentile the percentile, between {@code 0} and {@code 100} inclusive
+     * @return the value at the specified percentile
+     * @throws IllegalArgumentException if {@code percentile} is not between {@code 0} and {@code 100}
+     */
+    public long percentile(final double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "percentile < 0 or percentile > 100");
+        final long total = count.sum();
+        if (total == 0)
+            return 0;
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(highest(i), max());
+        }
+        return max();
+    }
+
+    /*
+     * Values below SUB_BUCKETS are their own index. Larger values are shifted right until SUB_BUCKET_BITS significant bits
+     * remain, the top one of which is always set, leaving HALF buckets for every shift.
+     */
+    static int index(final long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    /*
+     * The largest value counted in the specified bucket.
+     */
+    static long highest(final int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        final int shift = (index - SUB_BUCKETS) / HALF + 1;
+        final long sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("count()", count()).add("mean()", mean()).add("percentile(50)", percentile(50)).add("percentile(99)", percentile(99)).add("max()", max()).toString();
+    }
+
+}
@@ -0,0 +1,68 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * A {@code RegularExpression} whose matchers report the outcome, latency and input length of every match operation to a
+ * {@link MetricsSink}.
+ *
+ * @author Zhenya Leonov
+ */
+final class InstrumentedRegularExpression implements RegularExpression {
+
+    static final MetricsSink NOOP = new MetricsSink() {
+        @Override
+        public String toString() {
+            return "MetricsSink.noop()";
+        }
+    };
+
+    private final RegularExpression delegate;
+    private final MetricsSink sink;
+    private final String pattern;
+
+    InstrumentedRegularExpression(final RegularExpression delegate, final MetricsSink sink) {
+        this.delegate = delegate;
+        this.sink = sink;
+        this.pattern = delegate.pattern();
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final String input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.instrumentation = this;
+        return matcher;
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.instrumentation = this;
+        return matcher;
+    }
+
+    @Override
+    public String pattern() {
+        return pattern;
+    }
+
+    void matched(final MetricsSink.Operation operation, final int inputLength, final long nanos, final boolean hit) {
+        sink.matched(pattern, operation, inputLength, nanos, hit);
+    }
+
+    void timedOut(final MetricsSink.Operation operation, final int inputLength, final long nanos) {
+        sink.timedOut(pattern, operation, inputLength, nanos);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("sink", sink).add("delegate", delegate).toString();
+    }
+
+}
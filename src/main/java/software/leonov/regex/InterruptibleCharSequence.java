@@ -0,0 +1,91 @@
+package software.leonov.regex;
+
+import java.time.Duration;
+
+/**
+ * A {@code CharSequence} which allows a regular-expression engine that reads its input through {@link #charAt(int)} to
+ * be cancelled cooperatively, without the help of another thread.
+ * <p>
+ * Every {@value #CHECK_INTERVAL} calls to {@code charAt(int)} this sequence checks whether the current thread has been
+ * interrupted or the {@link #arm(Duration) armed} deadline has passed, and if so throws a
+ * {@link MatchInterruptedException} which unwinds the engine on the calling thread. The check is amortized to a counter
+ * increment per character read.
+ * <p>
+ * Instances are not thread-safe, just like the matchers which read them.
+ *
+ * @author Zhenya Leonov
+ */
+final class InterruptibleCharSequence implements CharSequence, Deadline {
+
+    static final int CHECK_INTERVAL = 1024;
+
+    private CharSequence input;
+
+    private int reads = 0;
+    private boolean armed = false;
+    private boolean expired = false;
+    private long deadline = 0;
+
+    InterruptibleCharSequence(final CharSequence input) {
+        this.input = input;
+    }
+
+    /**
+     * Replaces the sequence read through this sequence.
+     *
+     * @param input the new sequence
+     */
+    void reset(final CharSequence input) {
+        this.input = input;
+    }
+
+    /**
+     * Arms a deadline which expires after the specified duration.
+     *
+     * @param duration the time allowed before the match operation is abandoned
+     * @return this deadline
+     */
+    Deadline arm(final Duration duration) {
+        deadline = System.nanoTime() + duration.toNanos();
+        armed = true;
+        expired = false;
+        return this;
+    }
+
+    @Override
+    public boolean disarm() {
+        armed = false;
+        return expired;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if ((++reads & (CHECK_INTERVAL - 1)) == 0)
+            check();
+        return input.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return input.length();
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return input.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return input.toString();
+    }
+
+    private void check() {
+        if (armed && System.nanoTime() - deadline >= 0) {
+            expired = true;
+            throw new MatchInterruptedException();
+        } else if (Thread.interrupted())
+            throw new MatchInterruptedException();
+    }
+
+}
@@ -5,11 +5,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 
 import software.leonov.common.base.Str;
 
@@ -25,8 +29,14 @@ public final class JDKRegularExpression implements RegularExpression {
 
     private final Pattern pattern;
 
+    /**
+     * The text matched by the expression if it consists only of literal characters, otherwise {@code null}.
+     */
+    private final String literal;
+
     private JDKRegularExpression(final String regex, final int flags) {
         pattern = Pattern.compile(regex, flags);
+        literal = literal(regex, flags);
     }
 
     /**
@@ -67,14 +77,48 @@ public final class JDKRegularExpression implements RegularExpression {
 
     @Override
     public StringMatcher<Matcher> matcher(final String input) {
+        return matcher((CharSequence) input);
+    }
+
+    /**
+     * Lazily splits the given input around matches of this regular-expression.
+     * <p>
+     * Expressions which consist only of literal characters are split with a plain substring search, without invoking the
+     * regular-expression engine. See {@link RegularExpression#split(CharSequence, int)} for details.
+     * 
+     * @param input the character sequence to be split
+     * @param limit the result threshold, as described in {@link RegularExpression#split(CharSequence, int)}
+     * @return the pieces of the input
+     */
+    @Override
+    public Iterable<CharSequence> split(final CharSequence input, final int limit) {
+        checkNotNull(input, "input == null");
+        if (literal == null)
+            return RegularExpression.super.split(input, limit);
+        return () -> SplitIterator.literal(literal, input, limit);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<Matcher> matcher(final CharSequence input) {
         checkNotNull(input, "input == null");
 
-        final Matcher matcher = pattern.matcher(input);
+        final InterruptibleCharSequence interruptible = new InterruptibleCharSequence(input);
+        final Matcher matcher = pattern.matcher(interruptible);
         return new StringMatcher<Matcher>() {
 
+            private CharSequence target = input;
+
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return target;
             }
 
             @Override
@@ -127,6 +171,13 @@ public final class JDKRegularExpression implements RegularExpression {
                 return match;
             }
 
+            @Override
+            boolean findImpl(final int from) {
+                matcher.region(from, target.length()).useTransparentBounds(true).useAnchoringBounds(false);
+                match = matcher.find();
+                return match;
+            }
+
             @Override
             public int end(final int index) {
                 checkState(match, "no match available");
@@ -141,12 +192,24 @@ public final class JDKRegularExpression implements RegularExpression {
                 return matcher.end();
             }
 
+            @Override
+            Deadline arm(final Duration duration) {
+                return interruptible.arm(duration);
+            }
+
             @Override
             public void reset() {
                 super.reset();
                 matcher.reset();
             }
 
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                target = input;
+                interruptible.reset(input);
+                matcher.reset(interruptible);
+            }
+
             @Override
             public Matcher delegate() {
                 return matcher;
@@ -173,4 +236,76 @@ public final class JDKRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    private static String literal(final String regex, final int flags) {
+        if (regex.isEmpty() || (flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0)
+            return null;
+        if ((flags & Pattern.LITERAL) != 0)
+            return regex;
+        for (int i = 0; i < regex.length(); i++)
+            if (".$|()[]{}^?*+\\".indexOf(regex.charAt(i)) != -1)
+                return null;
+        return regex;
+    }
+
+    /**
+     * The {@link RegexEngine} backed by the {@code java.util.regex} package, registered under the name {@code "jdk"}.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.ANCHORS, Capability.ATOMIC_GROUPS, Capability.BACKREFERENCES, Capability.CAPTURING_GROUPS, Capability.INTERRUPTIBLE, Capability.JAVA_SEMANTICS, Capability.LEFTMOST_FIRST, Capability.LOOKAHEAD, Capability.LOOKBEHIND, Capability.UNICODE_CLASSES);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(EnumSet.allOf(RegexOption.class));
+
+        @Override
+        public String name() {
+            return "jdk";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public JDKRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+
+            int flags = 0;
+
+            for (final RegexOption option : options)
+                switch (option) {
+                case CASE_INSENSITIVE:
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                case COMMENTS:
+                    flags |= Pattern.COMMENTS;
+                    break;
+                case DOTALL:
+                    flags |= Pattern.DOTALL;
+                    break;
+                case LITERAL:
+                    flags |= Pattern.LITERAL;
+                    break;
+                case MULTILINE:
+                    flags |= Pattern.MULTILINE;
+                    break;
+                case UNICODE_CASE:
+                    flags |= Pattern.UNICODE_CASE;
+                    break;
+                }
+
+            return JDKRegularExpression.compile(regex, flags);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
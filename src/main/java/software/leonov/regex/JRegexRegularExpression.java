@@ -5,7 +5,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.nio.CharBuffer;
+import java.util.Set;
+
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 
 import jregex.Matcher;
 import jregex.Pattern;
@@ -66,14 +70,62 @@ public final class JRegexRegularExpression implements RegularExpression {
     @Override
     public StringMatcher<Matcher> matcher(final String input) {
         checkNotNull(input, "input == null");
+        return matcher(input, pattern.matcher(input));
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The JRegex library reads its input from a {@code char[]}. The backing array of a {@code CharBuffer} is matched in
+     * place. Any other character sequence is copied into a new array once, without creating an intermediate
+     * {@code String}. The contents of the input must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<Matcher> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
 
-        final Matcher matcher = pattern.matcher(input);
+        if (input instanceof String)
+            return matcher((String) input);
 
+        if (input instanceof CharBuffer && ((CharBuffer) input).hasArray()) {
+            final CharBuffer buffer = (CharBuffer) input;
+            return matcher(input, pattern.matcher(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+        }
+
+        final char[] chars = copy(input, null);
+        return matcher(input, pattern.matcher(chars, 0, chars.length));
+    }
+
+    /*
+     * Copies the specified input into the given array, or into a new array if it is null or too short.
+     */
+    private static char[] copy(final CharSequence input, final char[] buffer) {
+        final int length = input.length();
+        final char[] chars = buffer != null && buffer.length >= length ? buffer : new char[length];
+        if (input instanceof StringBuilder)
+            ((StringBuilder) input).getChars(0, length, chars, 0);
+        else if (input instanceof StringBuffer)
+            ((StringBuffer) input).getChars(0, length, chars, 0);
+        else if (input instanceof CharBuffer)
+            ((CharBuffer) input).duplicate().get(chars, 0, length);
+        else
+            for (int i = 0; i < length; i++)
+                chars[i] = input.charAt(i);
+        return chars;
+    }
+
+    private StringMatcher<Matcher> matcher(final CharSequence input, final Matcher matcher) {
         return new StringMatcher<Matcher>() {
 
+            private CharSequence target = input;
+            private char[] buffer = null;
+
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return target;
             }
 
             @Override
@@ -81,7 +133,7 @@ public final class JRegexRegularExpression implements RegularExpression {
                 checkState(match, "no match available");
                 checkArgument(index >= 0, "index < 0");
                 checkPositionIndex(index, groupCount(), "index > groupCount()");
-                return matcher.start(index);
+                return matcher.isCaptured(index) ? matcher.start(index) : -1;
             }
 
             @Override
@@ -128,12 +180,19 @@ public final class JRegexRegularExpression implements RegularExpression {
                 return match;
             }
 
+            @Override
+            boolean findImpl(final int from) {
+                matcher.setPosition(from);
+                match = matcher.find();
+                return match;
+            }
+
             @Override
             public int end(final int index) {
                 checkState(match, "no match available");
                 checkArgument(index >= 0, "index < 0");
                 checkPositionIndex(index, groupCount(), "index > groupCount()");
-                return matcher.end(index);
+                return matcher.isCaptured(index) ? matcher.end(index) : -1;
             }
 
             @Override
@@ -148,6 +207,20 @@ public final class JRegexRegularExpression implements RegularExpression {
                 matcher.setPosition(0);
             }
 
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                if (input instanceof String)
+                    matcher.setTarget((String) input);
+                else if (input instanceof CharBuffer && ((CharBuffer) input).hasArray()) {
+                    final CharBuffer chars = (CharBuffer) input;
+                    matcher.setTarget(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+                } else {
+                    buffer = copy(input, buffer); // the copies of successive inputs share a buffer
+                    matcher.setTarget(buffer, 0, input.length());
+                }
+                target = input;
+            }
+
             @Override
             public Matcher delegate() {
                 return matcher;
@@ -174,4 +247,70 @@ public final class JRegexRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    /**
+     * The {@link RegexEngine} backed by the JRegex library, registered under the name {@code "jregex"}.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.ANCHORS, Capability.BACKREFERENCES, Capability.CAPTURING_GROUPS, Capability.LEFTMOST_FIRST, Capability.LOOKAHEAD, Capability.LOOKBEHIND, Capability.UNICODE_CLASSES);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(RegexOption.CASE_INSENSITIVE, RegexOption.COMMENTS, RegexOption.DOTALL, RegexOption.MULTILINE);
+
+        /**
+         * Creates a new {@code Engine}.
+         *
+         * @throws NoClassDefFoundError if the underlying library is not on the class path
+         */
+        public Engine() {
+            Pattern.class.getName(); // fail fast when loaded by the ServiceLoader
+        }
+
+        @Override
+        public String name() {
+            return "jregex";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public JRegexRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+
+            int flags = REFlags.DEFAULT;
+
+            for (final RegexOption option : options)
+                switch (option) {
+                case CASE_INSENSITIVE:
+                    flags |= REFlags.IGNORE_CASE;
+                    break;
+                case COMMENTS:
+                    flags |= REFlags.IGNORE_SPACES;
+                    break;
+                case DOTALL:
+                    flags |= REFlags.DOTALL;
+                    break;
+                case MULTILINE:
+                    flags |= REFlags.MULTILINE;
+                    break;
+                default:
+                    throw RegexEngines.unsupported(this, option);
+                }
+
+            return JRegexRegularExpression.compile(regex, flags);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
@@ -3,9 +3,15 @@ package software.leonov.regex;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 import org.jcodings.specific.UTF8Encoding;
 import org.joni.Config;
@@ -16,6 +22,7 @@ import org.joni.Syntax;
 import org.joni.WarnCallback;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 
 import software.leonov.common.base.Str;
 
@@ -32,7 +39,8 @@ public final class JoniRegularExpression implements RegularExpression {
     private final int flags;
 
     private JoniRegularExpression(final String regex, final int flags) {
-        pattern = new Regex(regex.getBytes(StandardCharsets.UTF_8), 0, regex.length(), flags, Config.ENC_CASE_FOLD_MIN, UTF8Encoding.INSTANCE, Syntax.Java, WarnCallback.DEFAULT);
+        final byte[] bytes = regex.getBytes(StandardCharsets.UTF_8);
+        pattern = new Regex(bytes, 0, bytes.length, flags, Config.ENC_CASE_FOLD_MIN, UTF8Encoding.INSTANCE, Syntax.Java, WarnCallback.DEFAULT);
         this.regex = regex;
         this.flags = flags;
     }
@@ -78,19 +86,105 @@ public final class JoniRegularExpression implements RegularExpression {
 
     @Override
     public StringMatcher<Matcher> matcher(final String input) {
+        return matcher((CharSequence) input);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The Joni library matches UTF-8 encoded bytes. The input is encoded directly into a byte array, without creating an
+     * intermediate {@code String}. The contents of the input must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<Matcher> matcher(final CharSequence input) {
         checkNotNull(input, "input == null");
-        
-        final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
-        final int end = bytes.length;
+        final CharInput chars = charInput(input);
+        return matcher(chars, chars.bytes, 0, chars.length);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the specified UTF-8 encoded bytes against this
+     * regular-expression.
+     * <p>
+     * The bytes are matched in place, without being decoded. The offsets returned by the {@code start} and {@code end}
+     * methods are byte offsets relative to {@code offset}, and groups are decoded only when they are requested.
+     * Operations which read the input as a {@code CharSequence}, such as replacement and {@code toMatchResult()}, are not
+     * supported. The contents of the input must not change while the matcher is in use.
+     *
+     * @param input  the UTF-8 encoded bytes to use as an input
+     * @param offset the offset of the first byte to match
+     * @param length the number of bytes to match
+     * @throws IndexOutOfBoundsException if {@code offset} or {@code length} are out of bounds
+     * @return a {@code StringMatcher} object that will match the specified bytes against this regular-expression
+     */
+    public StringMatcher<Matcher> matcher(final byte[] input, final int offset, final int length) {
+        checkNotNull(input, "input == null");
+        checkPositionIndexes(offset, offset + length, input.length);
+        return matcher(new ByteInput(input, offset), input, offset, offset + length);
+    }
 
-        final Matcher matcher = pattern.matcher(bytes);
+    /**
+     * Returns a {@code StringMatcher} object that will match the remaining UTF-8 encoded bytes in the specified buffer
+     * against this regular-expression.
+     * <p>
+     * The bytes between the buffer's position and its limit are matched without being decoded. The offsets returned by the
+     * {@code start} and {@code end} methods are byte offsets relative to the buffer's position, and groups are decoded only
+     * when they are requested. Operations which read the input as a {@code CharSequence}, such as replacement and
+     * {@code toMatchResult()}, are not supported.
+     * <p>
+     * The Joni library can only read a {@code byte[]}: the backing array of a buffer is matched in place, while the
+     * contents of direct and read-only buffers are copied once. The buffer's position, limit and mark are not modified. The
+     * contents of the buffer must not change while the matcher is in use.
+     *
+     * @param input the buffer containing the UTF-8 encoded bytes to use as an input
+     * @return a {@code StringMatcher} object that will match the remaining bytes in the buffer against this
+     *         regular-expression
+     */
+    public StringMatcher<Matcher> matcher(final ByteBuffer input) {
+        checkNotNull(input, "input == null");
+
+        if (input.hasArray())
+            return matcher(input.array(), input.arrayOffset() + input.position(), input.remaining());
+
+        final byte[] bytes = new byte[input.remaining()];
+        input.duplicate().get(bytes);
+        return matcher(bytes, 0, bytes.length);
+    }
+
+    private static CharInput charInput(final CharSequence input) {
+        if (input instanceof String) {
+            final byte[] bytes = ((String) input).getBytes(StandardCharsets.UTF_8);
+            return new CharInput(input, bytes, bytes.length);
+        }
+
+        final ByteBuffer bytes = encode(input);
+        return new CharInput(input, bytes.array(), bytes.limit());
+    }
+
+    private static ByteBuffer encode(final CharSequence input) {
+        try {
+            return StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap(input));
+        } catch (final CharacterCodingException e) { // cannot happen when malformed input is replaced
+            throw new AssertionError(e);
+        }
+    }
 
+    private StringMatcher<Matcher> matcher(final Input target, final byte[] data, final int from, final int to) {
         return new StringMatcher<Matcher>() {
-            int start = 0;
+
+            private Input input = target;
+            private byte[] bytes = data;
+            private int begin = from;
+            private int end = to;
+            private Matcher matcher = pattern.matcher(data, from, to);
+            private int start = from;
 
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return input.chars();
             }
 
             @Override
@@ -98,13 +192,13 @@ public final class JoniRegularExpression implements RegularExpression {
                 checkState(match, "no match available");
                 checkArgument(index >= 0, "index < 0");
                 checkPositionIndex(index, groupCount(), "index > groupCount()");
-                return matcher.getEagerRegion().beg[index];
+                return input.offset(matcher.getEagerRegion().beg[index]);
             }
 
             @Override
             public int start() {
                 checkState(match, "no match available");
-                return matcher.getBegin();
+                return input.offset(matcher.getBegin());
             }
 
             @Override
@@ -114,7 +208,12 @@ public final class JoniRegularExpression implements RegularExpression {
 
             @Override
             public boolean matchesImpl() {
-                match = matcher.match(0, end, Option.DEFAULT) != -1;
+                try {
+                    match = matcher.matchInterruptible(begin, end, Option.DEFAULT) != -1;
+                } catch (final InterruptedException e) {
+                    match = false;
+                    throw new MatchInterruptedException();
+                }
                 return match;
             }
 
@@ -131,48 +230,80 @@ public final class JoniRegularExpression implements RegularExpression {
                 checkState(match, "no match available");
                 checkArgument(index >= 0, "index < 0");
                 checkPositionIndex(index, groupCount(), "index > groupCount()");
-                try {
-                    return input.substring(matcher.getEagerRegion().beg[index], matcher.getEagerRegion().end[index]);
-                } catch (final StringIndexOutOfBoundsException e) {
-                    return null;
-                }
+                final int beg = matcher.getEagerRegion().beg[index];
+                return beg < 0 ? null : input.substring(beg, matcher.getEagerRegion().end[index]);
             }
 
             @Override
             public String group() {
-                try {
-                    return input.substring(matcher.getEagerRegion().beg[0], matcher.getEagerRegion().end[0]);
-                } catch (final StringIndexOutOfBoundsException e) {
-                    return null;
-                }
+                final int beg = matcher.getEagerRegion().beg[0];
+                return beg < 0 ? null : input.substring(beg, matcher.getEagerRegion().end[0]);
             }
 
             @Override
             public boolean findImpl() {
-                final int findIndex = matcher.search(start, end, Option.DEFAULT);
-                start = matcher.getEnd();
+                if (start > end) {
+                    match = false;
+                    return match;
+                }
+
+                final int findIndex;
+                try {
+                    findIndex = matcher.searchInterruptible(start, end, Option.DEFAULT);
+                } catch (final InterruptedException e) {
+                    match = false;
+                    throw new MatchInterruptedException();
+                }
                 match = findIndex != -1;
+                if (match) {
+                    start = begin + matcher.getEnd(); // Joni reports offsets relative to begin
+                    if (matcher.getBegin() == matcher.getEnd()) // skip the code point following an empty match
+                        do
+                            start++;
+                        while (start < end && (bytes[start] & 0xC0) == 0x80);
+                }
                 return match;
             }
 
+            @Override
+            boolean findImpl(final int from) {
+                start = begin + input.index(from);
+                return findImpl();
+            }
+
+            @Override
+            int inputLength() {
+                return input instanceof ByteInput ? end - begin : input.chars().length();
+            }
+
             @Override
             public int end(final int index) {
                 checkState(match, "no match available");
                 checkArgument(index >= 0, "index < 0");
                 checkPositionIndex(index, groupCount(), "index > groupCount()");
-                return matcher.getEagerRegion().end[index];
+                return input.offset(matcher.getEagerRegion().end[index]);
             }
 
             @Override
             public int end() {
                 checkState(match, "no match available");
-                return matcher.getEnd();
+                return input.offset(matcher.getEnd());
             }
 
             @Override
             public void reset() {
                 super.reset();
-                start = 0;
+                start = begin;
+            }
+
+            @Override
+            protected void resetImpl(final CharSequence chars) {
+                final CharInput encoded = charInput(chars); // a Joni Matcher is bound to its bytes and is replaced
+                input = encoded;
+                bytes = encoded.bytes;
+                begin = 0;
+                end = encoded.length;
+                matcher = pattern.matcher(bytes, begin, end);
             }
 
             @Override
@@ -201,4 +332,216 @@ public final class JoniRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    /**
+     * The input of a matcher, which translates the byte offsets reported by Joni. Offsets are relative to the first byte
+     * of the input and are {@code -1} for groups which did not participate in the match.
+     */
+    private interface Input {
+
+        CharSequence chars();
+
+        int offset(int index);
+
+        int index(int offset);
+
+        String substring(int begin, int end);
+    }
+
+    /**
+     * Maps the UTF-8 byte offsets reported by Joni to UTF-16 char offsets in the original input.
+     * <p>
+     * Every char is encoded by at least one byte, so if the encoded input is as long as the original input it is pure ASCII
+     * (unpaired surrogates are replaced by a single {@code '?'} byte) and offsets are mapped as-is. Otherwise the number of
+     * chars preceding every {@code INTERVAL}-th byte is recorded lazily, as far into the input as the matcher has
+     * progressed, so that mapping an offset only counts the chars encoded after the nearest checkpoint.
+     */
+    private static final class CharInput implements Input {
+
+        private static final int INTERVAL = 256;
+
+        private final CharSequence chars;
+        private final byte[] bytes;
+        private final int length;
+        private final boolean ascii;
+
+        private int[] checkpoints;
+        private int size;
+
+        CharInput(final CharSequence chars, final byte[] bytes, final int length) {
+            this.chars = chars;
+            this.bytes = bytes;
+            this.length = length;
+            ascii = length == chars.length();
+        }
+
+        @Override
+        public CharSequence chars() {
+            return chars;
+        }
+
+        @Override
+        public int offset(final int index) {
+            if (ascii || index < 0)
+                return index;
+
+            if (checkpoints == null) {
+                checkpoints = new int[length / INTERVAL + 1];
+                size = 1;
+            }
+
+            final int checkpoint = index / INTERVAL;
+            for (; size <= checkpoint; size++)
+                checkpoints[size] = checkpoints[size - 1] + count(boundary((size - 1) * INTERVAL), boundary(size * INTERVAL));
+
+            return checkpoints[checkpoint] + count(boundary(checkpoint * INTERVAL), index);
+        }
+
+        @Override
+        public int index(final int offset) {
+            if (ascii)
+                return offset;
+
+            int index = 0;
+            for (int i = 0; i < offset; i++) {
+                final char c = chars.charAt(i);
+                if (c < 0x80)
+                    index++;
+                else if (c < 0x800)
+                    index += 2;
+                else if (Character.isHighSurrogate(c) && i + 1 < chars.length() && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    index += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) // unpaired surrogates are replaced by a single '?' byte
+                    index++;
+                else
+                    index += 3;
+            }
+            return index;
+        }
+
+        @Override
+        public String substring(final int begin, final int end) {
+            return chars.subSequence(offset(begin), offset(end)).toString();
+        }
+
+        /*
+         * Returns the index of the first byte at or after the specified index which starts a code point.
+         */
+        private int boundary(int index) {
+            while (index < length && (bytes[index] & 0xC0) == 0x80)
+                index++;
+            return index;
+        }
+
+        /*
+         * Returns the number of chars encoded by the bytes between the specified code point boundaries. Four-byte sequences
+         * encode supplementary code points, which are represented by surrogate pairs.
+         */
+        private int count(final int from, final int to) {
+            int n = 0;
+            for (int i = from; i < to; i++)
+                if ((bytes[i] & 0xC0) != 0x80)
+                    n += (bytes[i] & 0xF8) == 0xF0 ? 2 : 1;
+            return n;
+        }
+    }
+
+    private static final class ByteInput implements Input {
+
+        private final byte[] bytes;
+        private final int begin;
+
+        ByteInput(final byte[] bytes, final int begin) {
+            this.bytes = bytes;
+            this.begin = begin;
+        }
+
+        @Override
+        public CharSequence chars() {
+            throw new UnsupportedOperationException("byte input cannot be read as a CharSequence");
+        }
+
+        @Override
+        public int offset(final int index) {
+            return index;
+        }
+
+        @Override
+        public int index(final int offset) {
+            return offset;
+        }
+
+        @Override
+        public String substring(final int begin, final int end) {
+            return new String(bytes, this.begin + begin, end - begin, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The {@link RegexEngine} backed by the Java port of the Oniguruma regexp library,
+     * registered under the name {@code "joni"}.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.ANCHORS, Capability.ATOMIC_GROUPS, Capability.BACKREFERENCES, Capability.CAPTURING_GROUPS, Capability.INTERRUPTIBLE, Capability.LEFTMOST_FIRST, Capability.LOOKAHEAD, Capability.LOOKBEHIND, Capability.UNICODE_CLASSES);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(RegexOption.CASE_INSENSITIVE, RegexOption.COMMENTS, RegexOption.DOTALL, RegexOption.MULTILINE);
+
+        /**
+         * Creates a new {@code Engine}.
+         *
+         * @throws NoClassDefFoundError if the underlying library is not on the class path
+         */
+        public Engine() {
+            Regex.class.getName(); // fail fast when loaded by the ServiceLoader
+        }
+
+        @Override
+        public String name() {
+            return "joni";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public JoniRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+
+            int flags = Option.DEFAULT;
+
+            for (final RegexOption option : options)
+                switch (option) {
+                case CASE_INSENSITIVE:
+                    flags |= Option.IGNORECASE;
+                    break;
+                case COMMENTS:
+                    flags |= Option.EXTEND;
+                    break;
+                case DOTALL:
+                    flags |= Option.MULTILINE;
+                    break;
+                case MULTILINE:
+                    flags |= Option.NEGATE_SINGLELINE;
+                    break;
+                default:
+                    throw RegexEngines.unsupported(this, option);
+                }
+
+            return JoniRegularExpression.compile(regex, flags);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
@@ -0,0 +1,232 @@
+package software.leonov.regex;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+import software.leonov.regex.RegexNode.Alternation;
+import software.leonov.regex.RegexNode.Anchor;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Repeat;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * Extracts from a {@link RegexNode} tree a set of literals at least one of which occurs in every match.
+ * <p>
+ * For every node the analysis computes the finite set of strings the node matches, if it is small enough, and the best
+ * set of required literals found so far. Adjacent finite sets are concatenated, so that for example {@code colou?r}
+ * requires one of {@code color} or {@code colour}; alternations require one of the literals required by each
+ * alternative; optional nodes, backreferences and large character classes require nothing. Among several candidates
+ * the set whose shortest literal is the longest is preferred. Anchors and lookaround assertions match the empty string.
+ *
+ * @author Zhenya Leonov
+ */
+final class LiteralAnalyzer {
+
+    /**
+     * The maximum number of literals in a set.
+     */
+    private static final int MAX_LITERALS = 64;
+
+    /**
+     * The maximum length of a literal.
+     */
+    private static final int MAX_LENGTH = 64;
+
+    /**
+     * Character classes with more code points are not expanded.
+     */
+    private static final int MAX_CLASS_SIZE = 4;
+
+    private static final ImmutableSet<String> EMPTY_STRING = ImmutableSet.of("");
+
+    private LiteralAnalyzer() {
+    }
+
+    /**
+     * Returns a set of literals at least one of which occurs in every match of the specified tree, or an empty set if no
+     * such literals were found.
+     *
+     * @param node the root of the tree
+     * @return a set of literals at least one of which occurs in every match of the specified tree
+     */
+    static ImmutableSet<String> requiredLiterals(final RegexNode node) {
+        final Set<String> required = analyze(node).required;
+        return required == null ? ImmutableSet.of() : ImmutableSet.copyOf(required);
+    }
+
+    private static final class Info {
+
+        /**
+         * The strings matched by the node, or {@code null} if there are too many.
+         */
+        final Set<String> exact;
+
+        /**
+         * The best set of required literals, or {@code null} if none are known.
+         */
+        final Set<String> required;
+
+        Info(final Set<String> exact, final Set<String> required) {
+            this.exact = exact;
+            this.required = better(required, exact);
+        }
+    }
+
+    private static final Info NOTHING = new Info(null, null);
+
+    private static Info analyze(final RegexNode node) {
+        if (node instanceof Literal)
+            return new Info(ImmutableSet.of(new String(Character.toChars(((Literal) node).codePoint))), null);
+        else if (node instanceof CharClass)
+            return new Info(expand(((CharClass) node).set), null);
+        else if (node instanceof Anchor)
+            return new Info(EMPTY_STRING, null);
+        else if (node instanceof Sequence)
+            return sequence((Sequence) node);
+        else if (node instanceof Alternation)
+            return alternation((Alternation) node);
+        else if (node instanceof Group) {
+            final Group group = (Group) node;
+            return group.kind.isLookaround() ? new Info(EMPTY_STRING, null) : analyze(group.child);
+        } else if (node instanceof Repeat)
+            return repeat((Repeat) node);
+        else
+            return NOTHING;
+    }
+
+    private static Info sequence(final Sequence sequence) {
+        Set<String> run = EMPTY_STRING;
+        Set<String> best = null;
+        boolean exact = true;
+
+        for (final RegexNode node : sequence.nodes) {
+            final Info info = analyze(node);
+            final Set<String> product = concatenate(run, info.exact);
+            if (product != null)
+                run = product;
+            else {
+                exact = false;
+                best = better(best, required(run));
+                best = better(best, info.required);
+                run = info.exact == null ? EMPTY_STRING : info.exact;
+            }
+        }
+
+        return new Info(exact ? run : null, better(best, required(run)));
+    }
+
+    private static Info alternation(final Alternation alternation) {
+        Set<String> exact = new LinkedHashSet<>();
+        Set<String> required = new LinkedHashSet<>();
+
+        for (final RegexNode node : alternation.alternatives) {
+            final Info info = analyze(node);
+            exact = exact == null || info.exact == null ? null : union(exact, info.exact);
+            required = required == null || info.required == null ? null : union(required, info.required);
+        }
+
+        return new Info(exact, required);
+    }
+
+    private static Info repeat(final Repeat repeat) {
+        final Info info = analyze(repeat.child);
+
+        if (repeat.min == 0)
+            return new Info(repeat.max == 1 && info.exact != null ? union(EMPTY_STRING, info.exact) : null, null);
+
+        Set<String> exact = null;
+        if (repeat.min == repeat.max && info.exact != null) {
+            exact = EMPTY_STRING;
+            for (int i = 0; i < repeat.min && exact != null; i++)
+                exact = concatenate(exact, info.exact);
+        }
+
+        return new Info(exact, info.required);
+    }
+
+    private static Set<String> expand(final CodePointSet set) {
+        if (set == null || set.isEmpty() || set.size() > MAX_CLASS_SIZE)
+            return null;
+
+        final Set<String> strings = new LinkedHashSet<>();
+        for (int i = 0; i < set.rangeCount(); i++)
+            for (int codePoint = set.lo(i); codePoint <= set.hi(i); codePoint++)
+                strings.add(new String(Character.toChars(codePoint)));
+        return strings;
+    }
+
+    /*
+     * Returns every concatenation of a string from a followed by a string from b, or null if there would be too many or
+     * they would be too long.
+     */
+    private static Set<String> concatenate(final Set<String> a, final Set<String> b) {
+        if (b == null || a.size() * b.size() > MAX_LITERALS)
+            return null;
+
+        final Set<String> product = new LinkedHashSet<>();
+        for (final String x : a)
+            for (final String y : b) {
+                if (x.length() + y.length() > MAX_LENGTH)
+                    return null;
+                product.add(x + y);
+            }
+        return product;
+    }
+
+    private static Set<String> union(final Set<String> a, final Set<String> b) {
+        if (a.size() + b.size() > MAX_LITERALS)
+            return null;
+        final Set<String> union = new LinkedHashSet<>(a);
+        union.addAll(b);
+        return union.size() > MAX_LITERALS ? null : union;
+    }
+
+    /*
+     * A finite set of strings is required unless it contains the empty string. Strings which contain another string of
+     * the set are redundant.
+     */
+    private static Set<String> required(final Set<String> exact) {
+        if (exact == null || exact.contains(""))
+            return null;
+
+        final Set<String> required = new LinkedHashSet<>();
+        for (final String string : exact) {
+            boolean redundant = false;
+            for (final String other : exact)
+                if (other.length() < string.length() && string.contains(other)) {
+                    redundant = true;
+                    break;
+                }
+            if (!redundant)
+                required.add(string);
+        }
+        return required;
+    }
+
+    private static Set<String> better(final Set<String> a, final Set<String> b) {
+        final Set<String> x = required(a);
+        final Set<String> y = required(b);
+        if (x == null)
+            return y;
+        if (y == null)
+            return x;
+
+        final int shortestX = shortest(x);
+        final int shortestY = shortest(y);
+        if (shortestX != shortestY)
+            return shortestX > shortestY ? x : y;
+        return x.size() <= y.size() ? x : y;
+    }
+
+    private static int shortest(final Set<String> strings) {
+        int shortest = Integer.MAX_VALUE;
+        for (final String string : strings)
+            shortest = Math.min(shortest, string.length());
+        return shortest;
+    }
+
+}
@@ -0,0 +1,417 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import software.leonov.common.base.Str;
+import software.leonov.regex.RegexNode.Alternation;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * An implementation of the {@code RegularExpression} interface for expressions which are alternations of literal
+ * strings, such as keyword lists and blocklists, backed by an Aho-Corasick automaton.
+ * <p>
+ * The automaton finds the leftmost occurrence of any literal in a single scan of the input, in time linear in the length
+ * of the input regardless of the number of literals. Among the literals which occur at the leftmost index the matcher
+ * reports either the literal listed first, exactly like {@code java.util.regex} reports the first matching alternative,
+ * or the longest literal, as specified by the {@link Semantics}.
+ * <p>
+ * Expressions are written in the syntax of the {@link java.util.regex.Pattern} class and must consist of non-empty
+ * alternatives made up only of literal characters, optionally enclosed in groups; for example {@code foo|ba\.r} or
+ * {@code (?:cat|dog)}. Capturing groups which enclose the entire alternation report the same boundaries as the match.
+ *
+ * @author Zhenya Leonov
+ */
+public final class LiteralSetRegularExpression implements RegularExpression {
+
+    /**
+     * Determines which literal is reported when several literals occur at the leftmost index.
+     */
+    public enum Semantics {
+
+        /**
+         * The literal listed first is reported, consistent with the way {@code java.util.regex} prefers alternatives.
+         */
+        LEFTMOST_FIRST,
+
+        /**
+         * The longest literal is reported, consistent with POSIX leftmost-longest matching.
+         */
+        LEFTMOST_LONGEST;
+    }
+
+    private final String regex;
+    private final ImmutableList<String> literals;
+    private final Semantics semantics;
+    private final int groupCount;
+    private final AhoCorasick automaton;
+
+    private LiteralSetRegularExpression(final String regex, final ImmutableList<String> literals, final Semantics semantics, final int groupCount) {
+        this.regex = regex;
+        this.literals = literals;
+        this.semantics = semantics;
+        this.groupCount = groupCount;
+        automaton = new AhoCorasick(literals);
+    }
+
+    /**
+     * Compiles the given alternation of literals with {@link Semantics#LEFTMOST_FIRST leftmost-first} semantics.
+     *
+     * @param regex the expression to be compiled
+     * @throws IllegalArgumentException if the expression's syntax is invalid or it is not an alternation of literals
+     * @return a new {@code LiteralSetRegularExpression} instance
+     */
+    public static LiteralSetRegularExpression compile(final String regex) {
+        return compile(regex, EnumSet.noneOf(RegexOption.class));
+    }
+
+    /**
+     * Compiles the given alternation of literals with the specified options and {@link Semantics#LEFTMOST_FIRST
+     * leftmost-first} semantics.
+     * <p>
+     * Options which do not affect literal characters are accepted and ignored. Expressions compiled with
+     * {@link RegexOption#CASE_INSENSITIVE} are only accepted if none of their literals contain cased characters.
+     *
+     * @param regex   the expression to be compiled
+     * @param options the match options
+     * @throws IllegalArgumentException if the expression's syntax is invalid or it is not an alternation of literals
+     * @return a new {@code LiteralSetRegularExpression} instance
+     */
+    public static LiteralSetRegularExpression compile(final String regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+
+        int groupCount = 0;
+        RegexNode node = RegexParser.parse(regex, options);
+        for (; enclosing(node); node = ((Group) node).child)
+            if (((Group) node).kind == Group.Kind.CAPTURING)
+                groupCount++;
+
+        final ImmutableList<String> literals = literals(node);
+        checkArgument(literals != null, "%s is not an alternation of literals", regex);
+        return new LiteralSetRegularExpression(regex, literals, Semantics.LEFTMOST_FIRST, groupCount);
+    }
+
+    /**
+     * Returns a {@code LiteralSetRegularExpression} which matches any of the specified literals with
+     * {@link Semantics#LEFTMOST_FIRST leftmost-first} semantics.
+     *
+     * @param literals the literals
+     * @throws IllegalArgumentException if there are no literals, any literal is empty, or begins or ends with an unpaired
+     *                                  surrogate
+     * @return a {@code LiteralSetRegularExpression} which matches any of the specified literals
+     */
+    public static LiteralSetRegularExpression of(final Iterable<String> literals) {
+        return of(literals, Semantics.LEFTMOST_FIRST);
+    }
+
+    /**
+     * Returns a {@code LiteralSetRegularExpression} which matches any of the specified literals with the specified
+     * semantics.
+     * <p>
+     * The {@link #pattern() pattern} of the resulting expression is the alternation of the literals, quoted where
+     * necessary.
+     *
+     * @param literals  the literals
+     * @param semantics determines which literal is reported when several literals occur at the leftmost index
+     * @throws IllegalArgumentException if there are no literals, any literal is empty, or begins or ends with an unpaired
+     *                                  surrogate
+     * @return a {@code LiteralSetRegularExpression} which matches any of the specified literals
+     */
+    public static LiteralSetRegularExpression of(final Iterable<String> literals, final Semantics semantics) {
+        checkNotNull(literals, "literals == null");
+        checkNotNull(semantics, "semantics == null");
+
+        final ImmutableList<String> list = ImmutableList.copyOf(literals);
+        checkArgument(!list.isEmpty(), "literals is empty");
+
+        final StringBuilder regex = new StringBuilder();
+        for (final String literal : list) {
+            checkArgument(!literal.isEmpty(), "empty literal");
+            checkArgument(!unpaired(literal), "literal begins or ends with an unpaired surrogate");
+            if (regex.length() > 0)
+                regex.append('|');
+            regex.append(quote(literal));
+        }
+        return new LiteralSetRegularExpression(regex.toString(), list, semantics, 0);
+    }
+
+    /**
+     * Returns the literals matched by this {@code RegularExpression}, in order of preference.
+     *
+     * @return the literals matched by this {@code RegularExpression}
+     */
+    public ImmutableList<String> literals() {
+        return literals;
+    }
+
+    /**
+     * Returns the semantics which determine which literal is reported when several literals occur at the leftmost index.
+     *
+     * @return the semantics of this {@code RegularExpression}
+     */
+    public Semantics semantics() {
+        return semantics;
+    }
+
+    @Override
+    public StringMatcher<Void> matcher(final String input) {
+        return matcher((CharSequence) input);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use. There is no underlying matcher
+     * implementation: {@link StringMatcher#delegate()} returns {@code null}.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<Void> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
+
+        final InterruptibleCharSequence interruptible = new InterruptibleCharSequence(input);
+        return new StringMatcher<Void>() {
+
+            private CharSequence target = input;
+            private int position = 0;
+            private int start = -1;
+            private int end = -1;
+
+            @Override
+            protected CharSequence getInput() {
+                return target;
+            }
+
+            @Override
+            public int start(final int index) {
+                checkState(match, "no match available");
+                checkArgument(index >= 0, "index < 0");
+                checkPositionIndex(index, groupCount(), "index > groupCount()");
+                return start;
+            }
+
+            @Override
+            public int start() {
+                checkState(match, "no match available");
+                return start;
+            }
+
+            @Override
+            public LiteralSetRegularExpression pattern() {
+                return LiteralSetRegularExpression.this;
+            }
+
+            @Override
+            public boolean matchesImpl() {
+                match = automaton.lookup(interruptible) != -1;
+                if (match) {
+                    start = 0;
+                    end = target.length();
+                }
+                return match;
+            }
+
+            @Override
+            public int groupCount() {
+                return groupCount;
+            }
+
+            @Override
+            public String group(final int index) {
+                checkState(match, "no match available");
+                checkArgument(index >= 0, "index < 0");
+                checkPositionIndex(index, groupCount(), "index > groupCount()");
+                return target.subSequence(start, end).toString();
+            }
+
+            @Override
+            public String group() {
+                checkState(match, "no match available");
+                return target.subSequence(start, end).toString();
+            }
+
+            @Override
+            public boolean findImpl() {
+                final long found = automaton.find(interruptible, position, semantics == Semantics.LEFTMOST_LONGEST);
+                match = found != -1;
+                if (match) {
+                    start = (int) (found >>> 32);
+                    end = start + automaton.length((int) found);
+                    position = end;
+                } else
+                    position = target.length();
+                return match;
+            }
+
+            @Override
+            public int end(final int index) {
+                checkState(match, "no match available");
+                checkArgument(index >= 0, "index < 0");
+                checkPositionIndex(index, groupCount(), "index > groupCount()");
+                return end;
+            }
+
+            @Override
+            public int end() {
+                checkState(match, "no match available");
+                return end;
+            }
+
+            @Override
+            Deadline arm(final Duration duration) {
+                return interruptible.arm(duration);
+            }
+
+            @Override
+            public void reset() {
+                super.reset();
+                position = 0;
+            }
+
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                target = input;
+                interruptible.reset(input);
+            }
+
+            @Override
+            public Void delegate() {
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public String pattern() {
+        return regex;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("semantics()", semantics()).toString();
+    }
+
+    private static boolean enclosing(final RegexNode node) {
+        return node instanceof Group && (((Group) node).kind == Group.Kind.CAPTURING || ((Group) node).kind == Group.Kind.NON_CAPTURING);
+    }
+
+    /*
+     * Returns the literals of an alternation of literal sequences, or null if the node is not one.
+     */
+    private static ImmutableList<String> literals(final RegexNode node) {
+        final ImmutableList<RegexNode> alternatives = node instanceof Alternation ? ((Alternation) node).alternatives : ImmutableList.of(node);
+        final ImmutableList.Builder<String> literals = ImmutableList.builder();
+
+        for (final RegexNode alternative : alternatives) {
+            final StringBuilder sb = new StringBuilder();
+            if (alternative instanceof Literal)
+                sb.appendCodePoint(((Literal) alternative).codePoint);
+            else if (alternative instanceof Sequence) {
+                for (final RegexNode child : ((Sequence) alternative).nodes) {
+                    if (!(child instanceof Literal))
+                        return null;
+                    sb.appendCodePoint(((Literal) child).codePoint);
+                }
+            } else
+                return null;
+
+            if (sb.length() == 0 || unpaired(sb))
+                return null;
+            literals.add(sb.toString());
+        }
+        return literals.build();
+    }
+
+    /*
+     * The automaton matches chars rather than code points: a literal which begins with a low surrogate or ends with a
+     * high surrogate could match half of a surrogate pair, which java.util.regex never does.
+     */
+    private static boolean unpaired(final CharSequence literal) {
+        return Character.isLowSurrogate(literal.charAt(0)) || Character.isHighSurrogate(literal.charAt(literal.length() - 1));
+    }
+
+    private static String quote(final String literal) {
+        for (int i = 0; i < literal.length(); i++)
+            if (".$|()[]{}^?*+\\# \t\n\r\f".indexOf(literal.charAt(i)) != -1)
+                return Pattern.quote(literal);
+        return literal;
+    }
+
+    /**
+     * The {@link RegexEngine} for alternations of literals, registered under the name {@code "literal"}.
+     * <p>
+     * The engine compiles only expressions which are {@link LiteralSetRegularExpression#compile(String, Set) alternations
+     * of literals} and rejects all others with an {@code IllegalArgumentException}. It {@link #accepts(String, Set)
+     * accepts} only alternations of at least two literals, so that a {@link RegexRouter} selects it for keyword lists
+     * while single literals and all other expressions are routed to the general purpose engines. All
+     * {@link RegexOption}s are supported.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.CAPTURING_GROUPS, Capability.INTERRUPTIBLE, Capability.JAVA_SEMANTICS, Capability.LEFTMOST_FIRST, Capability.LINEAR_TIME);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(EnumSet.allOf(RegexOption.class));
+
+        /**
+         * Creates a new {@code Engine}.
+         */
+        public Engine() {
+        }
+
+        @Override
+        public String name() {
+            return "literal";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public boolean accepts(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+            RegexNode node;
+            try {
+                node = RegexParser.parse(regex, options);
+            } catch (final IllegalArgumentException e) { // the expression is malformed or cannot be analyzed
+                return false;
+            }
+            while (enclosing(node))
+                node = ((Group) node).child;
+            return node instanceof Alternation && literals(node) != null;
+        }
+
+        @Override
+        public LiteralSetRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            return LiteralSetRegularExpression.compile(regex, options);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
+}
@@ -0,0 +1,547 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * Finds the matches of a regular-expression in a file which is memory-mapped a segment at a time, so that files of any
+ * size can be searched without reading them into the heap and the I/O is left to the operating system's page cache.
+ * <p>
+ * Segments are mapped with {@link FileChannel#map(FileChannel.MapMode, long, long)} and presented to the engine of the
+ * expression in the form it reads most efficiently:
+ * <ul>
+ * <li>a {@link JoniRegularExpression} matches the UTF-8 or ASCII encoded bytes of the segment, which are copied into a
+ * single reusable {@code byte[]} since the Joni library cannot read a buffer</li>
+ * <li>other engines read ASCII and ISO-8859-1 files through a {@code CharSequence} view of the mapped bytes, without
+ * copying them</li>
+ * <li>other engines read UTF-8 files through a single reusable {@code CharBuffer} into which each segment is decoded</li>
+ * </ul>
+ * Like the {@link StreamingMatcher}, the expression is analyzed to bound the part of the file a match attempt may
+ * examine, and a match is only reported once the segment extends beyond it, so that matches which straddle two segments
+ * are found exactly as they would be found in the entire file. The same expressions are supported. The offsets returned
+ * by this class are byte offsets from the beginning of the file; for UTF-8 files they assume the file is well-formed.
+ * <p>
+ * Instances of this class are not safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class MappedFileMatcher implements Closeable {
+
+    /**
+     * The default size of a segment, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT = 1 << 26;
+
+    /*
+     * The minimum number of chars between two checkpoints of a UTF-8 segment.
+     */
+    private static final int CHECKPOINT = 1024;
+
+    private enum Mode {
+        BYTES, SINGLE_BYTE, UTF_8
+    }
+
+    private final RegularExpression regex;
+    private final FileChannel channel;
+    private final long size;
+    private final int segment;
+    private final Mode mode;
+    private final boolean ascii;
+    private final MatchBounds bounds;
+    private final long reach;
+    private final long lookbehind;
+    private final int margin;
+
+    private byte[] bytes = null;
+    private CharBuffer chars = null;
+    private CharsetDecoder decoder = null;
+
+    private ByteBuffer mapped = null;
+    private long segmentStart = 0;
+    private long segmentEnd = 0;
+
+    private long position = 0;
+    private StringMatcher<?> matcher = null;
+    private boolean match = false;
+
+    /*
+     * The last UTF-8 char index translated to a byte offset, and that offset, relative to the segment.
+     */
+    private int cursorIndex = 0;
+    private int cursorOffset = 0;
+
+    /*
+     * Char indexes of the UTF-8 segment at least CHECKPOINT chars apart and their byte offsets, recorded as the cursor
+     * advances. An index before the cursor is translated from the nearest checkpoint rather than from the start of the
+     * segment, so that the boundaries of a match and its groups can be requested in any order.
+     */
+    private int[] checkpointIndexes = new int[16];
+    private int[] checkpointOffsets = new int[16];
+    private int checkpoints = 1;
+
+    private MappedFileMatcher(final RegularExpression regex, final MatchBounds bounds, final FileChannel channel, final Mode mode, final boolean ascii, final int segment) throws IOException {
+        this.regex = regex;
+        this.bounds = bounds;
+        this.channel = channel;
+        this.mode = mode;
+        this.ascii = ascii;
+        this.segment = segment;
+        size = channel.size();
+
+        final int bytesPerChar = mode == Mode.UTF_8 || (mode == Mode.BYTES && !ascii) ? 3 : 1; // a BMP char is at most 3 bytes
+        reach = bounds.reach() == MatchBounds.UNBOUNDED ? Long.MAX_VALUE : (long) bounds.reach() * bytesPerChar;
+        lookbehind = (long) bounds.lookbehind * bytesPerChar;
+        margin = MatchBounds.MARGIN * bytesPerChar;
+    }
+
+    /**
+     * Returns a {@code MappedFileMatcher} which finds the matches of the specified expression in the given file, using
+     * segments of {@link #DEFAULT_SEGMENT} bytes.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param file    the file
+     * @param charset the charset of the file, one of {@code UTF-8}, {@code US-ASCII} or {@code ISO-8859-1}
+     * @return a {@code MappedFileMatcher} which finds the matches of the specified expression in the given file
+     * @throws IllegalArgumentException if the expression cannot be searched a segment at a time or the charset is not
+     *                                  supported
+     * @throws IOException              if an I/O error occurs opening the file
+     */
+    public static MappedFileMatcher of(final RegularExpression regex, final Set<RegexOption> options, final Path file, final Charset charset) throws IOException {
+        return of(regex, options, file, charset, DEFAULT_SEGMENT);
+    }
+
+    /**
+     * Returns a {@code MappedFileMatcher} which finds the matches of the specified expression in the given file, using
+     * segments of the specified size.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param file    the file
+     * @param charset the charset of the file, one of {@code UTF-8}, {@code US-ASCII} or {@code ISO-8859-1}
+     * @param segment the size of a segment, in bytes
+     * @return a {@code MappedFileMatcher} which finds the matches of the specified expression in the given file
+     * @throws IllegalArgumentException if the expression cannot be searched a segment at a time, the charset is not
+     *                                  supported or {@code segment} is not positive
+     * @throws IOException              if an I/O error occurs opening the file
+     */
+    public static MappedFileMatcher of(final RegularExpression regex, final Set<RegexOption> options, final Path file, final Charset charset, final int segment) throws IOException {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        checkNotNull(file, "file == null");
+        checkNotNull(charset, "charset == null");
+        checkArgument(segment > 0, "segment < 1");
+
+        final boolean ascii = charset.equals(StandardCharsets.US_ASCII);
+        final boolean utf8 = charset.equals(StandardCharsets.UTF_8);
+        checkArgument(ascii || utf8 || charset.equals(StandardCharsets.ISO_8859_1), "unsupported charset: %s", charset);
+
+        final MatchBounds bounds = MatchBounds.of(RegexParser.parse(regex.pattern(), options));
+        checkArgument(!bounds.anchoredAtStart, "%s depends on the start of the input", regex.pattern());
+        checkArgument(bounds.isBounded(), "%s may match an unbounded number of characters, including line terminators", regex.pattern());
+
+        final Mode mode = regex instanceof JoniRegularExpression && (ascii || utf8) ? Mode.BYTES : utf8 ? Mode.UTF_8 : Mode.SINGLE_BYTE;
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedFileMatcher(regex, bounds, channel, mode, ascii, segment);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Attempts to find the next match in the file, mapping as many segments as necessary.
+     *
+     * @return {@code true} if, and only if, a match was found before the end of the file
+     * @throws IOException           if an I/O error occurs
+     * @throws IllegalStateException if a match attempt may examine more bytes than fit in a segment
+     * @throws InterruptedException  if current thread is interrupted (the interrupted status of the current thread is
+     *                               cleared when this exception is thrown)
+     * @throws Throwable             if any other errors occurs
+     */
+    public boolean find() throws Throwable {
+        return find(Duration.ZERO);
+    }
+
+    /**
+     * Attempts to find the next match in the file, mapping as many segments as necessary and spending at most
+     * {@code duration} time on each match operation performed on a segment. If the specified duration is exceeded this
+     * method will throw a {@code TimeoutException}.
+     *
+     * @param duration the time to wait for each match operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return {@code true} if, and only if, a match was found before the end of the file
+     * @throws IOException           if an I/O error occurs
+     * @throws IllegalStateException if a match attempt may examine more bytes than fit in a segment
+     * @throws TimeoutException      if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException  if current thread is interrupted (the interrupted status of the current thread is
+     *                               cleared when this exception is thrown)
+     * @throws Throwable             if any other errors occurs
+     */
+    public boolean find(final Duration duration) throws Throwable {
+        checkNotNull(duration, "duration == null");
+        match = false;
+
+        while (true) {
+            final boolean found;
+            if (matcher == null) {
+                if (position > size) // an empty match at the end of the file
+                    return false;
+                map();
+                final int from = index(position);
+                found = from > 0 ? matcher.find(from, duration) : matcher.find(duration);
+            } else
+                found = matcher.find(duration);
+
+            final boolean last = segmentEnd == size;
+            final long next;
+            if (found) {
+                final long start = offset(matcher.start());
+                if (last || resolved(start)) {
+                    final long end = offset(matcher.end());
+                    position = end == start ? boundary(end + 1) : end;
+                    match = true;
+                    return true;
+                }
+                next = Math.max(position, Math.min(start, firstUnresolved()));
+            } else if (last) {
+                position = size + 1;
+                return false;
+            } else
+                next = Math.max(position, firstUnresolved());
+
+            if (boundary(Math.max(0, next - lookbehind)) <= segmentStart)
+                throw new IllegalStateException(String.format("%s may examine more than a segment of %s bytes at offset %s", regex.pattern(), segment, next));
+            position = boundary(next);
+            matcher = null;
+        }
+    }
+
+    /**
+     * Returns the byte offset of the first character of the previous match.
+     *
+     * @return the byte offset of the first character of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public long start() {
+        checkState(match, "no match available");
+        return offset(matcher.start());
+    }
+
+    /**
+     * Returns the byte offset of the first character of the subsequence captured by the given group during the previous
+     * match, or {@code -1} if the group did not participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the byte offset of the first character captured by the group, or {@code -1}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public long start(final int group) {
+        checkState(match, "no match available");
+        final int start = matcher.start(group);
+        return start < 0 ? -1 : offset(start);
+    }
+
+    /**
+     * Returns the byte offset after the last character of the previous match.
+     *
+     * @return the byte offset after the last character of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public long end() {
+        checkState(match, "no match available");
+        return offset(matcher.end());
+    }
+
+    /**
+     * Returns the byte offset after the last character of the subsequence captured by the given group during the previous
+     * match, or {@code -1} if the group did not participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the byte offset after the last character captured by the group, or {@code -1}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public long end(final int group) {
+        checkState(match, "no match available");
+        final int end = matcher.end(group);
+        return end < 0 ? -1 : offset(end);
+    }
+
+    /**
+     * Returns the text of the previous match.
+     *
+     * @return the text of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public String group() {
+        checkState(match, "no match available");
+        return matcher.group();
+    }
+
+    /**
+     * Returns the text captured by the given group during the previous match, or {@code null} if the group did not
+     * participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the text captured by the given group, or {@code null}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public String group(final int group) {
+        checkState(match, "no match available");
+        return matcher.group(group);
+    }
+
+    /**
+     * Returns the number of capturing groups in the expression.
+     *
+     * @return the number of capturing groups in the expression
+     */
+    public int groupCount() {
+        return regex.matcher("").groupCount();
+    }
+
+    /**
+     * Returns the expression whose matches are found by this {@code MappedFileMatcher}.
+     *
+     * @return the expression whose matches are found by this {@code MappedFileMatcher}
+     */
+    public RegularExpression pattern() {
+        return regex;
+    }
+
+    /**
+     * Closes the file. Segments which are still mapped are released when they are garbage collected.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * Maps the segment which starts at the lookbehind preceding the current position and creates a matcher over it.
+     */
+    private void map() throws IOException {
+        final long start = Math.max(0, position - lookbehind);
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, segment));
+
+        int head = 0; // do not split a multi-byte character at either end of the segment
+        int tail = buffer.limit();
+        if (mode != Mode.SINGLE_BYTE) {
+            while (head < 3 && head < tail && (buffer.get(head) & 0xC0) == 0x80)
+                head++;
+            if (start + tail < size)
+                for (int i = tail - 1; i >= head && i >= tail - 4; i--)
+                    if ((buffer.get(i) & 0xC0) != 0x80) {
+                        final int b = buffer.get(i) & 0xFF;
+                        if (i + (b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1) > tail)
+                            tail = i;
+                        break;
+                    }
+        }
+        buffer.position(head).limit(tail);
+        mapped = buffer.slice();
+        segmentStart = start + head;
+        segmentEnd = start + tail;
+        final int length = mapped.limit();
+
+        switch (mode) {
+        case BYTES:
+            if (bytes == null || bytes.length < length)
+                bytes = new byte[length];
+            mapped.get(bytes, 0, length);
+            mapped.rewind();
+            matcher = ((JoniRegularExpression) regex).matcher(bytes, 0, length);
+            break;
+        case SINGLE_BYTE:
+            matcher = regex.matcher(new ByteCharSequence(mapped, 0, length, ascii));
+            break;
+        default:
+            if (chars == null || chars.capacity() < length) {
+                chars = CharBuffer.allocate(length);
+                decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            chars.clear();
+            decoder.reset();
+            decoder.decode(mapped.duplicate(), chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            cursorIndex = 0;
+            cursorOffset = 0;
+            checkpoints = 1;
+            matcher = regex.matcher(chars);
+        }
+    }
+
+    /*
+     * The first offset at or after the specified offset which does not split a multi-byte character.
+     */
+    private long boundary(long offset) {
+        if (mode == Mode.SINGLE_BYTE || mapped == null)
+            return offset;
+        while (offset > segmentStart && offset < segmentEnd && (mapped.get((int) (offset - segmentStart)) & 0xC0) == 0x80)
+            offset++;
+        return offset;
+    }
+
+    /*
+     * Translates an index reported by the matcher to a byte offset in the file.
+     */
+    private long offset(final int index) {
+        if (mode != Mode.UTF_8)
+            return segmentStart + index;
+
+        if (index < cursorIndex) {
+            int checkpoint = Arrays.binarySearch(checkpointIndexes, 0, checkpoints, index);
+            if (checkpoint < 0)
+                checkpoint = -checkpoint - 2;
+            cursorIndex = checkpointIndexes[checkpoint];
+            cursorOffset = checkpointOffsets[checkpoint];
+        }
+        while (cursorIndex < index) {
+            if (cursorIndex - checkpointIndexes[checkpoints - 1] >= CHECKPOINT) {
+                if (checkpoints == checkpointIndexes.length) {
+                    checkpointIndexes = Arrays.copyOf(checkpointIndexes, checkpoints * 2);
+                    checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoints * 2);
+                }
+                checkpointIndexes[checkpoints] = cursorIndex;
+                checkpointOffsets[checkpoints++] = cursorOffset;
+            }
+            final char c = chars.get(cursorIndex++);
+            if (c < 0x80)
+                cursorOffset++;
+            else if (c < 0x800)
+                cursorOffset += 2;
+            else if (Character.isHighSurrogate(c) && cursorIndex < chars.limit() && Character.isLowSurrogate(chars.get(cursorIndex))) {
+                cursorIndex++;
+                cursorOffset += 4;
+            } else
+                cursorOffset += 3;
+        }
+        return segmentStart + cursorOffset;
+    }
+
+    /*
+     * Translates a byte offset in the current segment to an index read by the matcher.
+     */
+    private int index(final long offset) {
+        final int relative = (int) (offset - segmentStart);
+        if (mode != Mode.UTF_8)
+            return relative;
+
+        int index = 0;
+        for (int i = 0; i < relative; i++) {
+            final int b = mapped.get(i);
+            if ((b & 0xC0) != 0x80)
+                index += (b & 0xF8) == 0xF0 ? 2 : 1;
+        }
+        return index;
+    }
+
+    /*
+     * Whether the segment contains everything a match attempt at the specified offset may examine.
+     */
+    private boolean resolved(final long start) {
+        if (reach != Long.MAX_VALUE && start + reach < segmentEnd)
+            return true;
+        if (bounds.spansLines)
+            return false;
+        for (long i = start; i + margin < segmentEnd; i++)
+            if (mapped.get((int) (i - segmentStart)) == '\n')
+                return true;
+        return false;
+    }
+
+    /*
+     * The smallest offset at which a match attempt may examine more than the segment contains.
+     */
+    private long firstUnresolved() {
+        long first = reach == Long.MAX_VALUE ? position : segmentEnd - reach;
+        if (!bounds.spansLines)
+            for (long i = segmentEnd - margin - 1; i >= segmentStart && i >= position; i--)
+                if (mapped.get((int) (i - segmentStart)) == '\n') {
+                    first = Math.max(first, i + 1);
+                    break;
+                }
+        return Math.min(first, segmentEnd);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(regex.pattern(), 200, "...")).add("segment", segment).add("position", position).toString();
+    }
+
+    /**
+     * A read-only {@code CharSequence} view of single-byte encoded characters. Bytes outside the ASCII range are read as
+     * {@code U+FFFD} in ASCII mode and as the corresponding ISO-8859-1 characters otherwise.
+     */
+    private static final class ByteCharSequence implements CharSequence {
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final boolean ascii;
+
+        ByteCharSequence(final ByteBuffer buffer, final int start, final int end, final boolean ascii) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.ascii = ascii;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (index < 0 || index >= length())
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+            final byte b = buffer.get(start + index);
+            return ascii && b < 0 ? '\uFFFD' : (char) (b & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            if (start < 0 || start > end || end > length())
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length());
+            return new ByteCharSequence(buffer, this.start + start, this.start + end, ascii);
+        }
+
+        @Override
+        public String toString() {
+            final char[] chars = new char[length()];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = charAt(i);
+            return new String(chars);
+        }
+    }
+
+}
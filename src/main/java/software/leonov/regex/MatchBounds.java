@@ -0,0 +1,224 @@
+package software.leonov.regex;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.regex.RegexNode.Anchor;
+import software.leonov.regex.RegexNode.Backreference;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Repeat;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * Bounds on the part of the input an engine may examine when it attempts a match at a given index, computed from a
+ * {@link RegexNode} tree.
+ * <p>
+ * A match attempt starting at index {@code s} consumes at most {@link #maxLength} chars. Lookahead assertions read at
+ * most {@link #lookahead} chars beyond the text they are applied to, and lookbehind and boundary assertions read at most
+ * {@link #lookbehind} chars before {@code s}; boundary assertions and {@code $} are accounted for by reading up to
+ * {@link #MARGIN} more chars on either side, which covers a surrogate pair or a {@code "\r\n"} sequence. If no node can
+ * match a {@code '\n'}, no match attempt reads past the first {@code '\n'} at or after {@code s}, plus the same margin.
+ * <p>
+ * These bounds allow an input to be searched a window at a time: a match found at {@code s} is the same as the match
+ * which would have been found in the entire input as long as the window extends beyond what the attempt may examine.
+ *
+ * @author Zhenya Leonov
+ */
+final class MatchBounds {
+
+    /**
+     * Denotes a length which cannot be bounded.
+     */
+    static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    /**
+     * The number of chars boundary and end-of-line assertions may read beyond the index at which they are applied.
+     */
+    static final int MARGIN = 2;
+
+    /**
+     * The maximum number of chars in a match, or {@link #UNBOUNDED}.
+     */
+    final int maxLength;
+
+    /**
+     * The maximum number of chars read before the start of a match, including the {@link #MARGIN} of boundary assertions,
+     * or {@link #UNBOUNDED}.
+     */
+    final int lookbehind;
+
+    /**
+     * The maximum number of chars read by lookahead assertions, or {@link #UNBOUNDED}.
+     */
+    final int lookahead;
+
+    /**
+     * Whether a match, or the text examined by a lookaround assertion, may contain a {@code '\n'}.
+     */
+    final boolean spansLines;
+
+    /**
+     * Whether the expression contains assertions which depend on the start of the input or the end of the previous
+     * match, such as {@code \A}, {@code \G} and {@code ^} without the {@link RegexOption#MULTILINE MULTILINE} option.
+     */
+    final boolean anchoredAtStart;
+
+    private MatchBounds(final int maxLength, final int lookbehind, final int lookahead, final boolean spansLines, final boolean anchoredAtStart) {
+        this.maxLength = maxLength;
+        this.lookbehind = lookbehind;
+        this.lookahead = lookahead;
+        this.spansLines = spansLines;
+        this.anchoredAtStart = anchoredAtStart;
+    }
+
+    /**
+     * Returns the bounds of the specified tree.
+     *
+     * @param root the root of the tree
+     * @return the bounds of the specified tree
+     */
+    static MatchBounds of(final RegexNode root) {
+        final Analysis analysis = new Analysis();
+        analysis.groups(root);
+        final int maxLength = analysis.maxLength(root);
+        analysis.scan(root);
+        return new MatchBounds(maxLength, analysis.lookbehind, analysis.lookahead, analysis.spansLines, analysis.anchoredAtStart);
+    }
+
+    /**
+     * Returns whether matches of the expression are bounded, either by their length or by line terminators.
+     *
+     * @return whether matches of the expression are bounded
+     */
+    boolean isBounded() {
+        return (maxLength != UNBOUNDED && lookahead != UNBOUNDED) || !spansLines;
+    }
+
+    /**
+     * Returns the maximum number of chars a match attempt may read beyond its starting index, not counting the limit
+     * imposed by line terminators, or {@link #UNBOUNDED}.
+     *
+     * @return the maximum number of chars a match attempt may read beyond its starting index
+     */
+    int reach() {
+        return add(add(maxLength, lookahead), MARGIN);
+    }
+
+    private static int add(final int a, final int b) {
+        return a == UNBOUNDED || b == UNBOUNDED ? UNBOUNDED : (int) Math.min(UNBOUNDED, (long) a + b);
+    }
+
+    private static int multiply(final int a, final int b) {
+        if (a == 0 || b == 0)
+            return 0;
+        return a == UNBOUNDED || b == UNBOUNDED ? UNBOUNDED : (int) Math.min(UNBOUNDED, (long) a * b);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("maxLength", maxLength).add("lookbehind", lookbehind).add("lookahead", lookahead).add("spansLines", spansLines).add("anchoredAtStart", anchoredAtStart).toString();
+    }
+
+    private static final class Analysis {
+
+        private final Map<Integer, RegexNode> groups = new HashMap<>();
+        private final Set<Integer> measuring = new HashSet<>();
+
+        int lookbehind = 0;
+        int lookahead = 0;
+        boolean spansLines = false;
+        boolean anchoredAtStart = false;
+
+        void groups(final RegexNode node) {
+            if (node instanceof Group && ((Group) node).index > 0)
+                groups.put(((Group) node).index, ((Group) node).child);
+            for (final RegexNode child : node.children())
+                groups(child);
+        }
+
+        /*
+         * The maximum number of chars consumed by the node. Lookaround assertions do not consume any.
+         */
+        int maxLength(final RegexNode node) {
+            if (node instanceof Literal)
+                return Character.charCount(((Literal) node).codePoint);
+            else if (node instanceof CharClass) {
+                final CodePointSet set = ((CharClass) node).set;
+                return set == null || set.isEmpty() || set.hi(set.rangeCount() - 1) >= Character.MIN_SUPPLEMENTARY_CODE_POINT ? 2 : 1;
+            } else if (node instanceof Sequence) {
+                int length = 0;
+                for (final RegexNode child : node.children())
+                    length = add(length, maxLength(child));
+                return length;
+            } else if (node instanceof Group) {
+                final Group group = (Group) node;
+                return group.kind.isLookaround() ? 0 : maxLength(group.child);
+            } else if (node instanceof Repeat) {
+                final Repeat repeat = (Repeat) node;
+                return multiply(maxLength(repeat.child), repeat.max == Repeat.UNBOUNDED ? UNBOUNDED : repeat.max);
+            } else if (node instanceof Backreference) {
+                final int index = ((Backreference) node).index;
+                final RegexNode group = groups.get(index);
+                if (group == null)
+                    return 0;
+                if (!measuring.add(index)) // a reference to an enclosing group
+                    return UNBOUNDED;
+                try {
+                    return maxLength(group);
+                } finally {
+                    measuring.remove(index);
+                }
+            } else if (node instanceof Anchor)
+                return 0;
+            else { // alternation
+                int length = 0;
+                for (final RegexNode child : node.children())
+                    length = Math.max(length, maxLength(child));
+                return length;
+            }
+        }
+
+        /*
+         * Collects the lookaround widths, whether a '\n' may be matched and whether there are anchors at the start.
+         */
+        void scan(final RegexNode node) {
+            if (node instanceof Literal)
+                spansLines |= ((Literal) node).codePoint == '\n';
+            else if (node instanceof CharClass) {
+                final CodePointSet set = ((CharClass) node).set;
+                spansLines |= set == null || set.contains('\n');
+            } else if (node instanceof Anchor)
+                switch (((Anchor) node).kind) {
+                case BEGIN_INPUT:
+                case END_OF_PREVIOUS_MATCH:
+                    anchoredAtStart = true;
+                    break;
+                case BEGIN_LINE:
+                case END_LINE: // $ does not match between '\r' and '\n'
+                case END_INPUT_BEFORE_TERMINATOR:
+                case WORD_BOUNDARY:
+                case NON_WORD_BOUNDARY:
+                    lookbehind = Math.max(lookbehind, MARGIN);
+                    break;
+                default:
+                }
+            else if (node instanceof Group) {
+                final Group group = (Group) node;
+                if (group.kind.isLookbehind())
+                    lookbehind = Math.max(lookbehind, add(maxLength(group.child), MARGIN));
+                else if (group.kind.isLookaround())
+                    lookahead = Math.max(lookahead, maxLength(group.child));
+            }
+
+            for (final RegexNode child : node.children())
+                scan(child);
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package software.leonov.regex;
+
+/**
+ * Thrown by a {@link StringMatcher} implementation when the underlying regular-expression engine abandons a match
+ * operation because the calling thread was interrupted.
+ * <p>
+ * {@link StringMatcher#find(java.time.Duration)} and {@link StringMatcher#matches(java.time.Duration)} translate this
+ * exception into a {@code TimeoutException} or an {@code InterruptedException}. It never escapes the public API.
+ *
+ * @author Zhenya Leonov
+ */
+final class MatchInterruptedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    MatchInterruptedException() {
+        super(null, null, false, false);
+    }
+
+}
@@ -0,0 +1,118 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import java.util.regex.MatchResult;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * An immutable {@code MatchResult} which records the offsets of a match and of its groups.
+ * <p>
+ * The text of the groups is not copied. It is read from the original input when requested, so the input must not
+ * change while the snapshot is in use.
+ *
+ * @author Zhenya Leonov
+ */
+final class MatchSnapshot implements MatchResult {
+
+    private final CharSequence input;
+
+    /*
+     * The start and end offsets of each group, group 0 first.
+     */
+    private final int[] offsets;
+
+    private MatchSnapshot(final CharSequence input, final int[] offsets) {
+        this.input = input;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns a snapshot of the current match of the specified matcher.
+     *
+     * @param matcher the matcher
+     * @throws IllegalStateException if no match is available
+     * @return a snapshot of the current match of the specified matcher
+     */
+    static MatchSnapshot of(final StringMatcher<?> matcher) {
+        final int groupCount = matcher.groupCount();
+        final int[] offsets = new int[2 * (groupCount + 1)];
+
+        offsets[0] = matcher.start();
+        offsets[1] = matcher.end();
+        for (int i = 1; i <= groupCount; i++) {
+            offsets[2 * i] = matcher.start(i);
+            offsets[2 * i + 1] = matcher.end(i);
+        }
+
+        return new MatchSnapshot(matcher.getInput(), offsets);
+    }
+
+    /**
+     * Returns a snapshot of the current match of the specified matcher, whose input is a view of the specified input
+     * starting at the given offset.
+     *
+     * @param matcher the matcher
+     * @param input   the input the view of which is matched by the matcher
+     * @param offset  the offset of the view in the input
+     * @throws IllegalStateException if no match is available
+     * @return a snapshot of the current match of the specified matcher, relative to the specified input
+     */
+    static MatchSnapshot of(final StringMatcher<?> matcher, final CharSequence input, final int offset) {
+        final int[] offsets = of(matcher).offsets;
+        for (int i = 0; i < offsets.length; i++)
+            if (offsets[i] != -1)
+                offsets[i] += offset;
+        return new MatchSnapshot(input, offsets);
+    }
+
+    @Override
+    public int start() {
+        return offsets[0];
+    }
+
+    @Override
+    public int start(final int group) {
+        return offsets[2 * checkGroup(group)];
+    }
+
+    @Override
+    public int end() {
+        return offsets[1];
+    }
+
+    @Override
+    public int end(final int group) {
+        return offsets[2 * checkGroup(group) + 1];
+    }
+
+    @Override
+    public String group() {
+        return group(0);
+    }
+
+    @Override
+    public String group(final int group) {
+        final int start = start(group);
+        return start == -1 ? null : input.subSequence(start, end(group)).toString();
+    }
+
+    @Override
+    public int groupCount() {
+        return offsets.length / 2 - 1;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("start()", start()).add("end()", end()).add("groupCount()", groupCount()).toString();
+    }
+
+    private int checkGroup(final int group) {
+        checkArgument(group >= 0, "group < 0");
+        checkPositionIndex(group, groupCount(), "group > groupCount()");
+        return group;
+    }
+
+}
@@ -0,0 +1,118 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+/**
+ * Receives the measurements of {@link #instrumented(RegularExpression, MetricsSink) instrumented} regular-expressions:
+ * compile times, and the outcome, latency and input length of every match operation.
+ * <p>
+ * Every method has an empty default implementation, so that implementations only override the measurements they are
+ * interested in. Methods are invoked on the thread which performs the operation, while the operation is in progress, and
+ * must therefore be fast, thread-safe and must not throw exceptions. {@link PatternMetrics} aggregates the measurements
+ * of each pattern in lock-free counters and histograms.
+ * <p>
+ * Expressions which are not instrumented do not pay for the instrumentation: instrumenting an expression with the
+ * {@link #noop() no-op} sink returns the expression unchanged, and the matchers of uninstrumented expressions skip the
+ * measurements after a single {@code null} check.
+ *
+ * @author Zhenya Leonov
+ */
+public interface MetricsSink {
+
+    /**
+     * The match operations which are measured.
+     */
+    public enum Operation {
+
+        /**
+         * {@link StringMatcher#matches()} and its overloads.
+         */
+        MATCHES,
+
+        /**
+         * {@link StringMatcher#find()} and its overloads, including the find operations performed by the iterators, streams
+         * and replace methods of the matcher.
+         */
+        FIND;
+
+    }
+
+    /**
+     * Invoked after a pattern was compiled.
+     *
+     * @param pattern the pattern
+     * @param nanos   the time taken to compile the pattern, in nanoseconds
+     */
+    public default void compiled(final String pattern, final long nanos) {
+    }
+
+    /**
+     * Invoked after a match operation completed.
+     *
+     * @param pattern     the pattern
+     * @param operation   the match operation
+     * @param inputLength the length of the input
+     * @param nanos       the time taken by the operation, in nanoseconds
+     * @param hit         whether the operation found a match
+     */
+    public default void matched(final String pattern, final Operation operation, final int inputLength, final long nanos, final boolean hit) {
+    }
+
+    /**
+     * Invoked after a match operation was abandoned because it exceeded its time limit.
+     *
+     * @param pattern     the pattern
+     * @param operation   the match operation
+     * @param inputLength the length of the input
+     * @param nanos       the time spent on the operation before it was abandoned, in nanoseconds
+     */
+    public default void timedOut(final String pattern, final Operation operation, final int inputLength, final long nanos) {
+    }
+
+    /**
+     * Returns a sink which ignores all measurements.
+     *
+     * @return a sink which ignores all measurements
+     */
+    public static MetricsSink noop() {
+        return InstrumentedRegularExpression.NOOP;
+    }
+
+    /**
+     * Returns a {@code RegularExpression} whose matchers report the outcome, latency and input length of every match
+     * operation to the specified sink. If the sink is the {@link #noop() no-op} sink the expression is returned unchanged.
+     *
+     * @param regex the expression
+     * @param sink  the sink which receives the measurements
+     * @return a {@code RegularExpression} whose matchers report every match operation to the specified sink
+     */
+    public static RegularExpression instrumented(final RegularExpression regex, final MetricsSink sink) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(sink, "sink == null");
+        return sink == noop() ? regex : new InstrumentedRegularExpression(regex, sink);
+    }
+
+    /**
+     * Compiles the specified pattern with the given engine, reports the compile time to the specified sink, and returns
+     * the {@link #instrumented(RegularExpression, MetricsSink) instrumented} expression.
+     *
+     * @param engine  the engine
+     * @param regex   the pattern, written in the syntax of the {@link java.util.regex.Pattern} class
+     * @param options the match options
+     * @param sink    the sink which receives the measurements
+     * @return the instrumented expression
+     * @throws IllegalArgumentException if the engine does not support one of the specified options
+     * @throws RuntimeException         an engine specific exception if the pattern's syntax is invalid
+     */
+    public static RegularExpression compile(final RegexEngine engine, final String regex, final Set<RegexOption> options, final MetricsSink sink) {
+        checkNotNull(engine, "engine == null");
+        checkNotNull(sink, "sink == null");
+        final long start = System.nanoTime();
+        final RegularExpression compiled = engine.compile(regex, options);
+        sink.compiled(compiled.pattern(), System.nanoTime() - start);
+        return instrumented(compiled, sink);
+    }
+
+}
@@ -0,0 +1,214 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.MatchResult;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Finds all the matches of a regular-expression in a large input using several threads.
+ * <p>
+ * The input is split into chunks which are searched concurrently on a {@code ForkJoinPool}, each by its own
+ * {@code StringMatcher} over a view of the input, and the matches of the chunks are merged in order. The result is the
+ * same as the matches found by a single {@link StringMatcher#find()} loop over the entire input:
+ * <ul>
+ * <li>if the matches of the expression cannot contain a {@code '\n'}, chunks are split after a line break whenever
+ * possible, so no match straddles two chunks</li>
+ * <li>otherwise, the expression is analyzed to bound the length of its matches, and each chunk is viewed with enough
+ * characters beyond its end for its last match to be found in full; when that match extends into the next chunk, the
+ * next chunk is searched again from the end of the match until its matches coincide with the matches found
+ * concurrently</li>
+ * </ul>
+ * Lookbehind and boundary assertions see a bounded number of characters preceding a chunk, which requires an engine
+ * that can start a search at an arbitrary index, as described in {@link StreamingMatcher}. The same expressions as
+ * those supported by the {@code StreamingMatcher} are supported.
+ *
+ * @author Zhenya Leonov
+ */
+public final class ParallelSearch {
+
+    /**
+     * The default size of a chunk, in characters.
+     */
+    public static final int DEFAULT_CHUNK = 1 << 20;
+
+    private final RegularExpression regex;
+    private final MatchBounds bounds;
+    private final int reach;
+    private final CharSequence input;
+
+    private ParallelSearch(final RegularExpression regex, final MatchBounds bounds, final CharSequence input) {
+        this.regex = regex;
+        this.bounds = bounds;
+        this.input = input;
+        reach = bounds.reach();
+    }
+
+    /**
+     * Finds all the matches of the specified expression in the given input on the {@link ForkJoinPool#commonPool()
+     * common pool}, using chunks of {@link #DEFAULT_CHUNK} characters.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param input   the input
+     * @return snapshots of all the matches in the input, in order
+     * @throws IllegalArgumentException if the input cannot be searched a chunk at a time
+     * @throws InterruptedException     if current thread is interrupted while waiting for the chunks to be searched
+     * @throws Throwable                if any errors occurs while searching a chunk
+     */
+    public static List<MatchResult> findAll(final RegularExpression regex, final Set<RegexOption> options, final CharSequence input) throws Throwable {
+        return findAll(regex, options, input, ForkJoinPool.commonPool(), DEFAULT_CHUNK);
+    }
+
+    /**
+     * Finds all the matches of the specified expression in the given input on the specified pool, using chunks of the
+     * specified size.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param input   the input, which must not change while it is searched or while the snapshots are in use
+     * @param pool    the pool on which the chunks are searched
+     * @param chunk   the nominal size of a chunk, in characters
+     * @return snapshots of all the matches in the input, in order
+     * @throws IllegalArgumentException if the input cannot be searched a chunk at a time or if {@code chunk} is not
+     *                                  positive
+     * @throws InterruptedException     if current thread is interrupted while waiting for the chunks to be searched
+     * @throws Throwable                if any errors occurs while searching a chunk
+     */
+    public static List<MatchResult> findAll(final RegularExpression regex, final Set<RegexOption> options, final CharSequence input, final ForkJoinPool pool, final int chunk) throws Throwable {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        checkNotNull(input, "input == null");
+        checkNotNull(pool, "pool == null");
+        checkArgument(chunk > 0, "chunk < 1");
+
+        final MatchBounds bounds = MatchBounds.of(RegexParser.parse(regex.pattern(), options));
+        checkArgument(!bounds.anchoredAtStart, "%s depends on the start of the input", regex.pattern());
+        checkArgument(bounds.isBounded(), "%s may match an unbounded number of characters, including line terminators", regex.pattern());
+        checkArgument(bounds.lookbehind != MatchBounds.UNBOUNDED, "%s has an unbounded lookbehind", regex.pattern());
+
+        return new ParallelSearch(regex, bounds, input).findAll(pool, chunk);
+    }
+
+    private List<MatchResult> findAll(final ForkJoinPool pool, final int chunk) throws Throwable {
+        final List<Integer> boundaries = boundaries(chunk);
+
+        final List<Future<List<MatchSnapshot>>> futures = new ArrayList<>(boundaries.size() - 1);
+        for (int i = 0; i + 1 < boundaries.size(); i++) {
+            final int from = boundaries.get(i);
+            final int to = boundaries.get(i + 1);
+            futures.add(pool.submit(() -> {
+                try {
+                    return search(from, to, null);
+                } catch (final Throwable t) {
+                    Throwables.throwIfInstanceOf(t, Exception.class);
+                    Throwables.throwIfUnchecked(t);
+                    throw new AssertionError(t);
+                }
+            }));
+        }
+
+        final ImmutableList.Builder<MatchResult> results = ImmutableList.builder();
+        int position = 0; // where the search would continue after the matches merged so far
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                final int from = boundaries.get(i);
+                final int to = boundaries.get(i + 1);
+                List<MatchSnapshot> matches = futures.get(i).get();
+                if (position > from) // the last match straddles the chunks
+                    matches = search(position, to, matches);
+                results.addAll(matches);
+                if (!matches.isEmpty()) {
+                    final MatchSnapshot last = matches.get(matches.size() - 1);
+                    position = last.start() == last.end() ? last.end() + 1 : last.end();
+                }
+            }
+        } catch (final ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            for (final Future<?> future : futures)
+                future.cancel(false);
+        }
+        return results.build();
+    }
+
+    /*
+     * Splits the input into chunks of approximately the specified size, after a line break if possible when the
+     * expression cannot match one.
+     */
+    private List<Integer> boundaries(final int chunk) {
+        final List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        int boundary = 0;
+        while (input.length() - boundary > chunk) {
+            boundary += chunk;
+            if (!bounds.spansLines)
+                for (int i = boundary; i < input.length() && i < boundary + chunk / 2; i++)
+                    if (input.charAt(i - 1) == '\n') {
+                        boundary = i;
+                        break;
+                    }
+            boundaries.add(boundary);
+        }
+        boundaries.add(input.length());
+        return boundaries;
+    }
+
+    /*
+     * Finds the matches which start before the specified index, or anywhere if it is the end of the input, continuing the search from the specified index as find()
+     * would. If the matches of a concurrent search are specified, the search stops once it finds one of them and the
+     * remaining matches of the concurrent search are appended.
+     */
+    private List<MatchSnapshot> search(final int from, final int to, final List<MatchSnapshot> concurrent) throws Throwable {
+        final List<MatchSnapshot> matches = new ArrayList<>();
+        if (from > input.length())
+            return matches;
+
+        final int start = Math.max(0, from - bounds.lookbehind);
+        final StringMatcher<?> matcher = regex.matcher(new CharSlice(input, start, end(to)));
+
+        int j = 0;
+        for (boolean found = from > start ? matcher.find(from - start, Duration.ZERO) : matcher.find(); found && (start + matcher.start() < to || to == input.length()); found = matcher.find()) {
+            final MatchSnapshot match = MatchSnapshot.of(matcher, input, start);
+            matches.add(match);
+            if (concurrent != null) {
+                while (j < concurrent.size() && concurrent.get(j).start() < match.start())
+                    j++;
+                if (j < concurrent.size() && concurrent.get(j).start() == match.start() && concurrent.get(j).end() == match.end()) {
+                    matches.addAll(concurrent.subList(j + 1, concurrent.size()));
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /*
+     * The end of the view which contains everything a match attempt starting before the specified index may examine.
+     */
+    private int end(final int to) {
+        long end = input.length();
+        if (to == end)
+            return to;
+        if (reach != MatchBounds.UNBOUNDED)
+            end = Math.min(end, (long) to + reach);
+        if (!bounds.spansLines)
+            for (int i = Math.max(0, to - 1); i < end; i++)
+                if (input.charAt(i) == '\n') {
+                    end = Math.min(end, (long) i + 1 + MatchBounds.MARGIN);
+                    break;
+                }
+        return (int) end;
+    }
+
+}
@@ -0,0 +1,219 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * A {@link MetricsSink} which aggregates the measurements of each pattern: compile times, invocation, hit and timeout
+ * counts of every match operation, latency histograms and the distribution of input lengths.
+ * <p>
+ * The measurements are recorded in {@link LongAdder}s and lock-free {@link Histogram}s, so that threads matching the same
+ * pattern do not contend on a lock. The statistics returned by this class are live views, which reflect the
+ * measurements recorded since they were obtained.
+ * <p>
+ * Instances of this class are safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class PatternMetrics implements MetricsSink {
+
+    private final ConcurrentHashMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new {@code PatternMetrics} instance which has not recorded any measurements.
+     */
+    public PatternMetrics() {
+    }
+
+    @Override
+    public void compiled(final String pattern, final long nanos) {
+        statisticsOf(pattern).compileTime.record(nanos);
+    }
+
+    @Override
+    public void matched(final String pattern, final Operation operation, final int inputLength, final long nanos, final boolean hit) {
+        final Statistics stats = statisticsOf(pattern);
+        final int i = operation.ordinal();
+        stats.invocations[i].increment();
+        if (hit)
+            stats.hits[i].increment();
+        stats.latencies[i].record(nanos);
+        stats.inputLength.record(inputLength);
+    }
+
+    @Override
+    public void timedOut(final String pattern, final Operation operation, final int inputLength, final long nanos) {
+        final Statistics stats = statisticsOf(pattern);
+        final int i = operation.ordinal();
+        stats.invocations[i].increment();
+        stats.timeouts[i].increment();
+        stats.latencies[i].record(nanos);
+        stats.inputLength.record(inputLength);
+    }
+
+    /**
+     * Returns the statistics of the specified pattern, or {@code null} if no measurements have been recorded for it.
+     *
+     * @param pattern the pattern
+     * @return the statistics of the specified pattern, or {@code null} if no measurements have been recorded for it
+     */
+    public Statistics statistics(final String pattern) {
+        checkNotNull(pattern, "pattern == null");
+        return statistics.get(pattern);
+    }
+
+    /**
+     * Returns an unmodifiable view of the statistics of every pattern for which measurements have been recorded.
+     *
+     * @return an unmodifiable view of the statistics of every pattern
+     */
+    public Map<String, Statistics> asMap() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Discards all measurements.
+     */
+    public void clear() {
+        statistics.clear();
+    }
+
+    private Statistics statisticsOf(final String pattern) {
+        final Statistics stats = statistics.get(pattern); // avoids locking the bin when the pattern is already present
+        return stats != null ? stats : statistics.computeIfAbsent(pattern, Statistics::new);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("patterns", statistics.size()).toString();
+    }
+
+    /**
+     * The measurements recorded for a single pattern.
+     */
+    public static final class Statistics {
+
+        private final String pattern;
+        private final Histogram compileTime = new Histogram();
+        private final Histogram inputLength = new Histogram();
+        private final LongAdder[] invocations = adders();
+        private final LongAdder[] hits = adders();
+        private final LongAdder[] timeouts = adders();
+        private final Histogram[] latencies = new Histogram[Operation.values().length];
+
+        private Statistics(final String pattern) {
+            this.pattern = pattern;
+            for (int i = 0; i < latencies.length; i++)
+                latencies[i] = new Histogram();
+        }
+
+        private static LongAdder[] adders() {
+            final LongAdder[] adders = new LongAdder[Operation.values().length];
+            for (int i = 0; i < adders.length; i++)
+                adders[i] = new LongAdder();
+            return adders;
+        }
+
+        /**
+         * Returns the pattern.
+         *
+         * @return the pattern
+         */
+        public String pattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the histogram of compile times, in nanoseconds.
+         *
+         * @return the histogram of compile times
+         */
+        public Histogram compileTime() {
+            return compileTime;
+        }
+
+        /**
+         * Returns the number of times the specified operation was performed, including the operations which timed out.
+         *
+         * @param operation the match operation
+         * @return the number of times the specified operation was performed
+         */
+        public long invocations(final Operation operation) {
+            checkNotNull(operation, "operation == null");
+            return invocations[operation.ordinal()].sum();
+        }
+
+        /**
+         * Returns the number of times the specified operation found a match.
+         *
+         * @param operation the match operation
+         * @return the number of times the specified operation found a match
+         */
+        public long hits(final Operation operation) {
+            checkNotNull(operation, "operation == null");
+            return hits[operation.ordinal()].sum();
+        }
+
+        /**
+         * Returns the fraction of invocations of the specified operation which found a match, or {@code 0} if the operation
+         * was never performed.
+         *
+         * @param operation the match operation
+         * @return the fraction of invocations of the specified operation which found a match
+         */
+        public double hitRate(final Operation operation) {
+            final long n = invocations(operation);
+            return n == 0 ? 0 : (double) hits(operation) / n;
+        }
+
+        /**
+         * Returns the number of times the specified operation was abandoned because it exceeded its time limit.
+         *
+         * @param operation the match operation
+         * @return the number of times the specified operation timed out
+         */
+        public long timeouts(final Operation operation) {
+            checkNotNull(operation, "operation == null");
+            return timeouts[operation.ordinal()].sum();
+        }
+
+        /**
+         * Returns the histogram of the latencies of the specified operation, in nanoseconds.
+         *
+         * @param operation the match operation
+         * @return the histogram of the latencies of the specified operation
+         */
+        public Histogram latency(final Operation operation) {
+            checkNotNull(operation, "operation == null");
+            return latencies[operation.ordinal()];
+        }
+
+        /**
+         * Returns the histogram of the lengths of the inputs of all match operations.
+         *
+         * @return the histogram of the lengths of the inputs
+         */
+        public Histogram inputLength() {
+            return inputLength;
+        }
+
+        @Override
+        public String toString() {
+            final MoreObjects.ToStringHelper helper = MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern, 200, "..."));
+            for (final Operation operation : Operation.values())
+                helper.add(operation.name().toLowerCase(Locale.ROOT), "invocations=" + invocations(operation) + ", hitRate=" + hitRate(operation) + ", timeouts=" + timeouts(operation) + ", latency=" + latency(operation));
+            return helper.add("inputLength()", inputLength).toString();
+        }
+
+    }
+
+}
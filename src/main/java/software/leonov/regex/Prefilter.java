@@ -0,0 +1,204 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.joni.Option;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A fast test which rejects inputs that cannot match a regular-expression because they do not contain any of the
+ * literals the expression requires.
+ * <p>
+ * The required literals are extracted from the expression, written in the syntax of the {@link java.util.regex.Pattern}
+ * class, when the prefilter is created. For example every match of {@code ERROR: \w+} contains {@code "ERROR: "}, and
+ * every match of {@code (?i)warn} contains one of the sixteen case variants of {@code "warn"}. Testing an input for a
+ * single literal is a substring search; several literals are found in one scan of the input by an Aho-Corasick
+ * automaton.
+ * <p>
+ * Expressions which cannot be analyzed, or which do not require any literal of at least {@value #MIN_LENGTH}
+ * characters, produce a prefilter which accepts every input.
+ * <p>
+ * Instances of this class are immutable and safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class Prefilter {
+
+    /**
+     * Literals shorter than this are not worth searching for before running the engine.
+     */
+    private static final int MIN_LENGTH = 2;
+
+    private static final Prefilter ACCEPT_ALL = new Prefilter(ImmutableSet.of());
+
+    private final ImmutableSet<String> literals;
+    private final String literal;
+    private final AhoCorasick automaton;
+
+    private Prefilter(final ImmutableSet<String> literals) {
+        this.literals = literals;
+        literal = literals.size() == 1 ? literals.iterator().next() : null;
+        automaton = literals.size() > 1 ? new AhoCorasick(ImmutableList.copyOf(literals)) : null;
+    }
+
+    /**
+     * Returns a prefilter for the given regular-expression.
+     *
+     * @param regex   the expression
+     * @param options the match options
+     * @return a prefilter for the given regular-expression
+     */
+    public static Prefilter of(final String regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        return of(regex, RegexParser.flags(options));
+    }
+
+    private static Prefilter of(final String regex, final int flags) {
+        final ImmutableSet<String> literals;
+        try {
+            literals = LiteralAnalyzer.requiredLiterals(RegexParser.parse(regex, flags));
+        } catch (final IllegalArgumentException e) { // the expression is malformed or cannot be analyzed
+            return ACCEPT_ALL;
+        }
+
+        for (final String literal : literals)
+            if (literal.length() < MIN_LENGTH)
+                return ACCEPT_ALL;
+
+        return literals.isEmpty() ? ACCEPT_ALL : new Prefilter(literals);
+    }
+
+    /**
+     * Returns a {@code RegularExpression} whose matchers consult the {@link #of(String, Set) prefilter} for the given
+     * expression before invoking its engine.
+     * <p>
+     * A matcher whose input is rejected by the prefilter reports that it does not match, without invoking the engine. The
+     * input is tested once, when the first match operation is performed. If the prefilter accepts every input the
+     * expression is returned unchanged.
+     * <p>
+     * Only expressions whose {@link RegularExpression#pattern() pattern} is written in the syntax of the
+     * {@link java.util.regex.Pattern} class are prefiltered: expressions compiled by the {@link JDKRegularExpression},
+     * {@link RE2JRegularExpression}, {@link JoniRegularExpression} and {@link LiteralSetRegularExpression} classes, and
+     * expressions compiled by the {@link AutomatonRegularExpression.Engine}. All other expressions, whose syntax may differ,
+     * are returned unchanged; use {@link #prefiltered(RegexEngine, String, Set)} to prefilter them.
+     * <p>
+     * The literals are extracted using the flags the expression was compiled with, if its class exposes them, and the
+     * specified options otherwise. Expressions compiled by the {@link RE2JRegularExpression} and
+     * {@link JoniRegularExpression} classes fold case with Unicode rules, as if {@link RegexOption#UNICODE_CASE} were set.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled, used if its flags are not exposed
+     * @return a {@code RegularExpression} whose matchers consult the prefilter for the given expression
+     */
+    public static RegularExpression prefiltered(final RegularExpression regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        return isJavaSyntax(regex) ? prefiltered(regex, of(regex.pattern(), flags(regex, options))) : regex;
+    }
+
+    /**
+     * Compiles the given regular-expression, written in the syntax of the {@link java.util.regex.Pattern} class, with the
+     * specified engine and returns a {@code RegularExpression} whose matchers consult the {@link #of(String, Set)
+     * prefilter} for the expression before invoking the engine.
+     * <p>
+     * See {@link #prefiltered(RegularExpression, Set)} for details. Engines without the
+     * {@link Capability#JAVA_SEMANTICS} capability are assumed to fold case with Unicode rules.
+     *
+     * @param engine  the engine
+     * @param regex   the expression to be compiled
+     * @param options the match options
+     * @throws RuntimeException an engine specific exception if the expression's syntax is invalid
+     * @return a {@code RegularExpression} whose matchers consult the prefilter for the given expression
+     */
+    public static RegularExpression prefiltered(final RegexEngine engine, final String regex, final Set<RegexOption> options) {
+        checkNotNull(engine, "engine == null");
+        final RegularExpression compiled = engine.compile(regex, options);
+        final int flags = flags(compiled, options);
+        return prefiltered(compiled, of(regex, engine.capabilities().contains(Capability.JAVA_SEMANTICS) ? flags : flags | Pattern.UNICODE_CASE));
+    }
+
+    private static RegularExpression prefiltered(final RegularExpression regex, final Prefilter prefilter) {
+        return prefilter.acceptsAll() ? regex : new PrefilteredRegularExpression(regex, prefilter);
+    }
+
+    private static boolean isJavaSyntax(final RegularExpression regex) {
+        if (regex instanceof AutomatonRegularExpression)
+            return ((AutomatonRegularExpression) regex).isTranslated();
+        return regex instanceof JDKRegularExpression || regex instanceof RE2JRegularExpression || regex instanceof JoniRegularExpression || regex instanceof LiteralSetRegularExpression;
+    }
+
+    /*
+     * Returns the java.util.regex flags equivalent to those the expression was compiled with, or to the specified options
+     * if they are not exposed.
+     */
+    private static int flags(final RegularExpression regex, final Set<RegexOption> options) {
+        if (regex instanceof JDKRegularExpression)
+            return ((JDKRegularExpression) regex).flags();
+
+        if (regex instanceof RE2JRegularExpression) {
+            final int flags = ((RE2JRegularExpression) regex).flags();
+            return Pattern.UNICODE_CASE | flag(flags, com.google.re2j.Pattern.CASE_INSENSITIVE, Pattern.CASE_INSENSITIVE) | flag(flags, com.google.re2j.Pattern.DOTALL, Pattern.DOTALL)
+                    | flag(flags, com.google.re2j.Pattern.MULTILINE, Pattern.MULTILINE);
+        }
+
+        if (regex instanceof JoniRegularExpression) {
+            final int flags = ((JoniRegularExpression) regex).flags();
+            return Pattern.UNICODE_CASE | flag(flags, Option.IGNORECASE, Pattern.CASE_INSENSITIVE) | flag(flags, Option.EXTEND, Pattern.COMMENTS) | flag(flags, Option.MULTILINE, Pattern.DOTALL)
+                    | flag(flags, Option.NEGATE_SINGLELINE, Pattern.MULTILINE);
+        }
+
+        return RegexParser.flags(options);
+    }
+
+    private static int flag(final int flags, final int flag, final int equivalent) {
+        return (flags & flag) != 0 ? equivalent : 0;
+    }
+
+    /**
+     * Returns the literals at least one of which occurs in every match, or an empty set if this prefilter accepts every
+     * input.
+     *
+     * @return the literals at least one of which occurs in every match
+     */
+    public ImmutableSet<String> literals() {
+        return literals;
+    }
+
+    /**
+     * Returns {@code true} if this prefilter accepts every input.
+     *
+     * @return {@code true} if this prefilter accepts every input
+     */
+    public boolean acceptsAll() {
+        return literals.isEmpty();
+    }
+
+    /**
+     * Returns {@code false} if the expression cannot match any part of the given input.
+     *
+     * @param input the input
+     * @return {@code false} if the expression cannot match any part of the given input
+     */
+    public boolean mayMatch(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        if (literal != null)
+            return SplitIterator.indexOf(input, literal, 0) != -1;
+        else if (automaton != null)
+            return automaton.containsAny(input);
+        else
+            return true;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("literals()", literals()).toString();
+    }
+
+}
@@ -0,0 +1,51 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * A {@code RegularExpression} whose matchers consult a {@link Prefilter} before invoking the engine of the underlying
+ * expression. Matchers whose input is rejected by the prefilter never match.
+ *
+ * @author Zhenya Leonov
+ */
+final class PrefilteredRegularExpression implements RegularExpression {
+
+    private final RegularExpression delegate;
+    private final Prefilter prefilter;
+
+    PrefilteredRegularExpression(final RegularExpression delegate, final Prefilter prefilter) {
+        this.delegate = delegate;
+        this.prefilter = prefilter;
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final String input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.prefilter = prefilter;
+        return matcher;
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.prefilter = prefilter;
+        return matcher;
+    }
+
+    @Override
+    public String pattern() {
+        return delegate.pattern();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("prefilter", prefilter).add("delegate", delegate).toString();
+    }
+
+}
@@ -5,7 +5,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.time.Duration;
+import java.util.Set;
+
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 import com.google.re2j.Matcher;
 import com.google.re2j.Pattern;
 import com.google.re2j.PatternSyntaxException;
@@ -60,15 +64,31 @@ public final class RE2JRegularExpression implements RegularExpression {
 
     @Override
     public StringMatcher<Matcher> matcher(final String input) {
+        return matcher((CharSequence) input);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<Matcher> matcher(final CharSequence input) {
         checkNotNull(input, "input == null");
 
-        final Matcher matcher = pattern.matcher(input);
+        final InterruptibleCharSequence interruptible = new InterruptibleCharSequence(input);
+        final Matcher matcher = pattern.matcher(interruptible);
 
         return new StringMatcher<Matcher>() {
 
+            private CharSequence target = input;
+
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return target;
             }
 
             @Override
@@ -121,6 +141,12 @@ public final class RE2JRegularExpression implements RegularExpression {
                 return match;
             }
 
+            @Override
+            boolean findImpl(final int from) {
+                match = matcher.find(from);
+                return match;
+            }
+
             @Override
             public int end(final int index) {
                 checkState(match, "no match available");
@@ -135,12 +161,24 @@ public final class RE2JRegularExpression implements RegularExpression {
                 return matcher.end();
             }
 
+            @Override
+            Deadline arm(final Duration duration) {
+                return interruptible.arm(duration);
+            }
+
             @Override
             public void reset() {
                 super.reset();
                 matcher.reset();
             }
 
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                target = input;
+                interruptible.reset(input);
+                matcher.reset(interruptible);
+            }
+
             @Override
             public Matcher delegate() {
                 return matcher;
@@ -167,4 +205,67 @@ public final class RE2JRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    /**
+     * The {@link RegexEngine} backed by Google's RE2/J library, registered under the name {@code "re2j"}.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.ANCHORS, Capability.CAPTURING_GROUPS, Capability.INTERRUPTIBLE, Capability.LEFTMOST_FIRST, Capability.LINEAR_TIME, Capability.UNICODE_CLASSES);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(RegexOption.CASE_INSENSITIVE, RegexOption.DOTALL, RegexOption.MULTILINE);
+
+        /**
+         * Creates a new {@code Engine}.
+         *
+         * @throws NoClassDefFoundError if the underlying library is not on the class path
+         */
+        public Engine() {
+            Pattern.class.getName(); // fail fast when loaded by the ServiceLoader
+        }
+
+        @Override
+        public String name() {
+            return "re2j";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public RE2JRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+
+            int flags = 0;
+
+            for (final RegexOption option : options)
+                switch (option) {
+                case CASE_INSENSITIVE:
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                case DOTALL:
+                    flags |= Pattern.DOTALL;
+                    break;
+                case MULTILINE:
+                    flags |= Pattern.MULTILINE;
+                    break;
+                default:
+                    throw RegexEngines.unsupported(this, option);
+                }
+
+            return RE2JRegularExpression.compile(regex, flags);
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
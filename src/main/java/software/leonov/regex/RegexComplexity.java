@@ -0,0 +1,35 @@
+package software.leonov.regex;
+
+/**
+ * The worst-case time a backtracking engine may need to match a regular-expression, as a function of the length of the
+ * input.
+ * <p>
+ * Backtracking engines, such as {@code java.util.regex}, explore every way in which an expression can match a string
+ * before they report a failure. An expression whose quantifiers can match the same string in many different ways, such
+ * as {@code (a+)+} or {@code \d+\d+}, can therefore take exponential or polynomial time on inputs which almost match. This
+ * is known as catastrophic backtracking, and is the cause of regular-expression denial of service (ReDoS)
+ * vulnerabilities.
+ *
+ * @author Zhenya Leonov
+ * @see RegexFeatures#complexity(String, java.util.Set)
+ */
+public enum RegexComplexity {
+
+    /**
+     * Matching takes time linear in the length of the input.
+     */
+    LINEAR,
+
+    /**
+     * Matching may take time polynomial in the length of the input, typically because two adjacent quantifiers can match
+     * the same substrings, as in {@code \d+\d+}.
+     */
+    POLYNOMIAL,
+
+    /**
+     * Matching may take time exponential in the length of the input, typically because of nested quantifiers or
+     * overlapping alternatives under a quantifier, as in {@code (a+)+} or {@code (a|ab|b)*}.
+     */
+    EXPONENTIAL;
+
+}
@@ -0,0 +1,80 @@
+package software.leonov.regex;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A service-provider interface for regular-expression engines.
+ * <p>
+ * Each {@link RegularExpression} implementation in this package is accompanied by a {@code RegexEngine} which compiles
+ * expressions with engine-neutral {@link RegexOption options}, allowing the engine to be chosen at runtime, for example
+ * from configuration. Engines are discovered using the {@link java.util.ServiceLoader ServiceLoader} facility and can be
+ * obtained from the {@link RegexEngines} class. Third party engines are registered by listing their fully qualified class
+ * names in a {@code META-INF/services/software.leonov.regex.RegexEngine} resource.
+ * <p>
+ * Implementations must be thread-safe and must provide a public no-argument constructor.
+ *
+ * @author Zhenya Leonov
+ */
+public interface RegexEngine {
+
+    /**
+     * Returns the unique name of this engine, such as {@code "jdk"} or {@code "re2j"}.
+     *
+     * @return the unique name of this engine
+     */
+    public String name();
+
+    /**
+     * Returns the features and guarantees supported by this engine.
+     *
+     * @return the features and guarantees supported by this engine
+     */
+    public Set<Capability> capabilities();
+
+    /**
+     * Returns the options which can be specified when compiling expressions with this engine.
+     *
+     * @return the options which can be specified when compiling expressions with this engine
+     */
+    public Set<RegexOption> supportedOptions();
+
+    /**
+     * Returns {@code false} if this engine is not suited to the given regular-expression, even though it has the
+     * {@link #capabilities() capabilities} the expression requires. Specialized engines which evaluate only a restricted
+     * class of expressions, such as alternations of literals, return {@code false} for all other expressions so that
+     * {@link RegexRouter}s pass them over.
+     * <p>
+     * The default implementation returns {@code true}.
+     *
+     * @param regex   the expression
+     * @param options the match options
+     * @return {@code false} if this engine is not suited to the given regular-expression
+     */
+    public default boolean accepts(final String regex, final Set<RegexOption> options) {
+        return true;
+    }
+
+    /**
+     * Compiles the given regular-expression.
+     *
+     * @param regex the expression to be compiled
+     * @throws RuntimeException an engine specific exception if the expression's syntax is invalid
+     * @return a new {@code RegularExpression} instance
+     */
+    public default RegularExpression compile(final String regex) {
+        return compile(regex, EnumSet.noneOf(RegexOption.class));
+    }
+
+    /**
+     * Compiles the given regular-expression with the specified options.
+     *
+     * @param regex   the expression to be compiled
+     * @param options the match options
+     * @throws IllegalArgumentException if this engine does not support one of the specified options
+     * @throws RuntimeException         an engine specific exception if the expression's syntax is invalid
+     * @return a new {@code RegularExpression} instance
+     */
+    public RegularExpression compile(final String regex, final Set<RegexOption> options);
+
+}
@@ -0,0 +1,101 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Static utility methods for locating {@link RegexEngine}s.
+ * <p>
+ * The engines are discovered once, using the {@link ServiceLoader} facility and the class loader of the
+ * {@code RegexEngine} interface. Engines whose underlying library is not on the class path are silently omitted, since
+ * all third party regular-expression libraries are optional dependencies.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RegexEngines {
+
+    private RegexEngines() {
+    }
+
+    private static final class Holder {
+        private static final ImmutableMap<String, RegexEngine> ENGINES = load(RegexEngine.class.getClassLoader());
+    }
+
+    /**
+     * Returns all available regular-expression engines, in the order in which they were discovered.
+     *
+     * @return all available regular-expression engines
+     */
+    public static ImmutableList<RegexEngine> available() {
+        return Holder.ENGINES.values().asList();
+    }
+
+    /**
+     * Returns all regular-expression engines available to the specified class loader.
+     *
+     * @param loader the class loader used to locate provider configuration files and classes
+     * @return all regular-expression engines available to the specified class loader
+     */
+    public static ImmutableList<RegexEngine> available(final ClassLoader loader) {
+        checkNotNull(loader, "loader == null");
+        return load(loader).values().asList();
+    }
+
+    /**
+     * Returns the available regular-expression engine with the specified {@link RegexEngine#name() name}.
+     *
+     * @param name the name of the engine
+     * @throws IllegalArgumentException if no engine with the specified name is available
+     * @return the available regular-expression engine with the specified name
+     */
+    public static RegexEngine forName(final String name) {
+        checkNotNull(name, "name == null");
+        final RegexEngine engine = Holder.ENGINES.get(name);
+        checkArgument(engine != null, "regex engine %s is not available", name);
+        return engine;
+    }
+
+    /**
+     * Returns {@code true} if a regular-expression engine with the specified {@link RegexEngine#name() name} is available.
+     *
+     * @param name the name of the engine
+     * @return {@code true} if a regular-expression engine with the specified name is available
+     */
+    public static boolean isAvailable(final String name) {
+        checkNotNull(name, "name == null");
+        return Holder.ENGINES.containsKey(name);
+    }
+
+    private static ImmutableMap<String, RegexEngine> load(final ClassLoader loader) {
+        final Map<String, RegexEngine> engines = new LinkedHashMap<>();
+        final Iterator<RegexEngine> itor = ServiceLoader.load(RegexEngine.class, loader).iterator();
+
+        while (true) {
+            final RegexEngine engine;
+            try {
+                if (!itor.hasNext())
+                    break;
+                engine = itor.next();
+            } catch (final ServiceConfigurationError | LinkageError e) { // the engine's library is missing
+                continue;
+            }
+            engines.putIfAbsent(engine.name(), engine);
+        }
+
+        return ImmutableMap.copyOf(engines);
+    }
+
+    static IllegalArgumentException unsupported(final RegexEngine engine, final RegexOption option) {
+        return new IllegalArgumentException(String.format("%s is not supported by the %s engine", option, engine.name()));
+    }
+
+}
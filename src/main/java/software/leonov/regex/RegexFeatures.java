@@ -0,0 +1,125 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+import software.leonov.regex.RegexNode.Anchor;
+import software.leonov.regex.RegexNode.Backreference;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Repeat;
+
+/**
+ * Static utility methods for detecting the features used by a regular-expression.
+ * <p>
+ * Expressions are parsed according to the syntax of the {@link java.util.regex.Pattern} class. The detected features are
+ * expressed as the {@link Capability capabilities} an engine needs in order to evaluate the expression correctly, which
+ * makes it possible to route an expression to the fastest engine able to handle it (see {@link RegexRouter}).
+ * <p>
+ * The {@link #complexity(String, Set) complexity} of an expression estimates whether it is prone to catastrophic
+ * backtracking.
+ * <p>
+ * {@link Capability#CAPTURING_GROUPS} and {@link Capability#LEFTMOST_FIRST} are never reported: they describe how match
+ * results are reported rather than whether an expression matches, and only the caller knows whether it needs them.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RegexFeatures {
+
+    private RegexFeatures() {
+    }
+
+    /**
+     * The capabilities assumed to be required by expressions which cannot be parsed.
+     */
+    static final Set<Capability> ALL = Sets.immutableEnumSet(Capability.ANCHORS, Capability.ATOMIC_GROUPS, Capability.BACKREFERENCES, Capability.JAVA_SEMANTICS, Capability.LOOKAHEAD, Capability.LOOKBEHIND, Capability.UNICODE_CLASSES);
+
+    /*
+     * Anchors which recognize line terminators, or java.util.regex word characters, differently from other engines.
+     */
+    private static final Set<Anchor.Kind> JAVA_ANCHORS = Sets.immutableEnumSet(Anchor.Kind.BEGIN_LINE, Anchor.Kind.END_LINE, Anchor.Kind.END_INPUT_BEFORE_TERMINATOR, Anchor.Kind.WORD_BOUNDARY, Anchor.Kind.NON_WORD_BOUNDARY);
+
+    /**
+     * Returns the capabilities an engine must have to evaluate the given regular-expression.
+     *
+     * @param regex the expression
+     * @throws IllegalArgumentException if the expression is malformed or uses a construct which cannot be analyzed
+     * @return the capabilities an engine must have to evaluate the given regular-expression
+     */
+    public static Set<Capability> required(final String regex) {
+        return required(regex, EnumSet.noneOf(RegexOption.class));
+    }
+
+    /**
+     * Returns the capabilities an engine must have to evaluate the given regular-expression with the specified options.
+     *
+     * @param regex   the expression
+     * @param options the match options
+     * @throws IllegalArgumentException if the expression is malformed or uses a construct which cannot be analyzed
+     * @return the capabilities an engine must have to evaluate the given regular-expression
+     */
+    public static Set<Capability> required(final String regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        return required(RegexParser.parse(regex, options));
+    }
+
+    /**
+     * Returns the worst-case time a backtracking engine may need to match the given regular-expression.
+     * <p>
+     * The expression is tested for nested or overlapping quantifiers which can match the same string in exponentially or
+     * polynomially many ways. The analysis is approximate and errs on the side of caution. It describes a single match
+     * attempt: methods such as {@link StringMatcher#find()} which attempt a match at every position of the input may
+     * multiply the worst-case time by the length of the input.
+     *
+     * @param regex   the expression
+     * @param options the match options
+     * @throws IllegalArgumentException if the expression is malformed, uses a construct which cannot be analyzed, or is too
+     *                                  large to analyze
+     * @return the worst-case time a backtracking engine may need to match the given regular-expression
+     */
+    public static RegexComplexity complexity(final String regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        return AmbiguityAnalyzer.analyze(RegexParser.parse(regex, options));
+    }
+
+    static Set<Capability> required(final RegexNode root) {
+        final EnumSet<Capability> capabilities = EnumSet.noneOf(Capability.class);
+        collect(root, capabilities);
+        return Sets.immutableEnumSet(capabilities);
+    }
+
+    private static void collect(final RegexNode node, final Set<Capability> capabilities) {
+        if (node instanceof Anchor) {
+            capabilities.add(Capability.ANCHORS);
+            if (JAVA_ANCHORS.contains(((Anchor) node).kind))
+                capabilities.add(Capability.JAVA_SEMANTICS);
+        } else if (node instanceof Backreference)
+            capabilities.add(Capability.BACKREFERENCES);
+        else if (node instanceof CharClass) {
+            if (((CharClass) node).set == null)
+                capabilities.add(Capability.UNICODE_CLASSES);
+            if (((CharClass) node).javaSemantics)
+                capabilities.add(Capability.JAVA_SEMANTICS);
+        } else if (node instanceof Repeat && ((Repeat) node).mode == Repeat.Mode.POSSESSIVE)
+            capabilities.add(Capability.ATOMIC_GROUPS);
+        else if (node instanceof Group) {
+            final Group.Kind kind = ((Group) node).kind;
+            if (kind == Group.Kind.ATOMIC)
+                capabilities.add(Capability.ATOMIC_GROUPS);
+            else if (kind.isLookbehind())
+                capabilities.add(Capability.LOOKBEHIND);
+            else if (kind.isLookaround())
+                capabilities.add(Capability.LOOKAHEAD);
+        }
+
+        for (final RegexNode child : node.children())
+            collect(child, capabilities);
+    }
+
+}
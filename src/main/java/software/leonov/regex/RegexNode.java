@@ -0,0 +1,270 @@
+package software.leonov.regex;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A node in the syntax tree of a regular-expression produced by {@link RegexParser}.
+ * <p>
+ * The tree is engine-neutral: inline and global match flags have already been applied to the nodes they affect, so for
+ * example a case-insensitive literal is represented by a {@link CharClass} containing both cases.
+ *
+ * @author Zhenya Leonov
+ */
+abstract class RegexNode {
+
+    private RegexNode() {
+    }
+
+    /**
+     * Returns the immediate children of this node.
+     *
+     * @return the immediate children of this node
+     */
+    ImmutableList<RegexNode> children() {
+        return ImmutableList.of();
+    }
+
+    /**
+     * A single code point matched literally.
+     */
+    static final class Literal extends RegexNode {
+
+        final int codePoint;
+
+        Literal(final int codePoint) {
+            this.codePoint = codePoint;
+        }
+
+        @Override
+        public String toString() {
+            return new String(Character.toChars(codePoint));
+        }
+    }
+
+    /**
+     * A set of code points, any one of which matches. Represents character classes, predefined classes and {@code .}.
+     */
+    static final class CharClass extends RegexNode {
+
+        /**
+         * The code points matched by this class, or {@code null} if the class depends on Unicode properties which are not
+         * resolved by the parser.
+         */
+        final CodePointSet set;
+
+        /**
+         * Whether the code points matched by this class are specific to {@code java.util.regex}, for example because it
+         * excludes every line terminator, or folds case with ASCII-only rules, where other engines disagree.
+         */
+        final boolean javaSemantics;
+
+        CharClass(final CodePointSet set) {
+            this(set, false);
+        }
+
+        CharClass(final CodePointSet set, final boolean javaSemantics) {
+            this.set = set;
+            this.javaSemantics = javaSemantics;
+        }
+
+        @Override
+        public String toString() {
+            return set == null ? "\\p{?}" : set.toString();
+        }
+    }
+
+    /**
+     * Zero or more nodes matched in succession.
+     */
+    static final class Sequence extends RegexNode {
+
+        final ImmutableList<RegexNode> nodes;
+
+        Sequence(final List<RegexNode> nodes) {
+            this.nodes = ImmutableList.copyOf(nodes);
+        }
+
+        @Override
+        ImmutableList<RegexNode> children() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            for (final RegexNode node : nodes)
+                sb.append(node);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Two or more alternatives, in order of preference.
+     */
+    static final class Alternation extends RegexNode {
+
+        final ImmutableList<RegexNode> alternatives;
+
+        Alternation(final List<RegexNode> alternatives) {
+            this.alternatives = ImmutableList.copyOf(alternatives);
+        }
+
+        @Override
+        ImmutableList<RegexNode> children() {
+            return alternatives;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("(?:");
+            for (int i = 0; i < alternatives.size(); i++)
+                sb.append(i == 0 ? "" : "|").append(alternatives.get(i));
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * A parenthesized group.
+     */
+    static final class Group extends RegexNode {
+
+        enum Kind {
+            CAPTURING("("), NON_CAPTURING("(?:"), ATOMIC("(?>"), LOOKAHEAD("(?="), NEGATIVE_LOOKAHEAD("(?!"), LOOKBEHIND("(?<="), NEGATIVE_LOOKBEHIND("(?<!");
+
+            private final String prefix;
+
+            private Kind(final String prefix) {
+                this.prefix = prefix;
+            }
+
+            boolean isLookaround() {
+                return this.compareTo(LOOKAHEAD) >= 0;
+            }
+
+            boolean isLookbehind() {
+                return this == LOOKBEHIND || this == NEGATIVE_LOOKBEHIND;
+            }
+        }
+
+        final Kind kind;
+        final RegexNode child;
+
+        /**
+         * The number of this group if it is {@link Kind#CAPTURING capturing}, otherwise {@code 0}.
+         */
+        final int index;
+
+        /**
+         * The name of this group, or {@code null} if it is unnamed.
+         */
+        final String name;
+
+        Group(final Kind kind, final RegexNode child, final int index, final String name) {
+            this.kind = kind;
+            this.child = child;
+            this.index = index;
+            this.name = name;
+        }
+
+        @Override
+        ImmutableList<RegexNode> children() {
+            return ImmutableList.of(child);
+        }
+
+        @Override
+        public String toString() {
+            return (name == null ? kind.prefix : "(?<" + name + ">") + child + ")";
+        }
+    }
+
+    /**
+     * A quantified node.
+     */
+    static final class Repeat extends RegexNode {
+
+        static final int UNBOUNDED = -1;
+
+        enum Mode {
+            GREEDY(""), LAZY("?"), POSSESSIVE("+");
+
+            private final String suffix;
+
+            private Mode(final String suffix) {
+                this.suffix = suffix;
+            }
+        }
+
+        final RegexNode child;
+        final int min;
+
+        /**
+         * The maximum number of repetitions, or {@link #UNBOUNDED}.
+         */
+        final int max;
+        final Mode mode;
+
+        Repeat(final RegexNode child, final int min, final int max, final Mode mode) {
+            this.child = child;
+            this.min = min;
+            this.max = max;
+            this.mode = mode;
+        }
+
+        @Override
+        ImmutableList<RegexNode> children() {
+            return ImmutableList.of(child);
+        }
+
+        @Override
+        public String toString() {
+            return "(?:" + child + "){" + min + "," + (max == UNBOUNDED ? "" : max) + "}" + mode.suffix;
+        }
+    }
+
+    /**
+     * A backreference to a capturing group.
+     */
+    static final class Backreference extends RegexNode {
+
+        final int index;
+
+        Backreference(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return "\\" + index;
+        }
+    }
+
+    /**
+     * A zero-width boundary assertion.
+     */
+    static final class Anchor extends RegexNode {
+
+        enum Kind {
+            BEGIN_LINE("(?m:^)"), END_LINE("(?m:$)"), BEGIN_INPUT("\\A"), END_INPUT("\\z"), END_INPUT_BEFORE_TERMINATOR("\\Z"), WORD_BOUNDARY("\\b"), NON_WORD_BOUNDARY("\\B"), END_OF_PREVIOUS_MATCH("\\G");
+
+            private final String syntax;
+
+            private Kind(final String syntax) {
+                this.syntax = syntax;
+            }
+        }
+
+        final Kind kind;
+
+        Anchor(final Kind kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public String toString() {
+            return kind.syntax;
+        }
+    }
+
+}
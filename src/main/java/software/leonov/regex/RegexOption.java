@@ -0,0 +1,44 @@
+package software.leonov.regex;
+
+/**
+ * Engine-neutral match options accepted by {@link RegexEngine#compile(String, java.util.Set)}.
+ * <p>
+ * Each {@code RegexEngine} maps these options onto the closest flags of the underlying regular-expression library and
+ * rejects the options it cannot honor. The semantics described here are those of the {@code java.util.regex} package.
+ *
+ * @author Zhenya Leonov
+ */
+public enum RegexOption {
+
+    /**
+     * Enables case-insensitive matching.
+     */
+    CASE_INSENSITIVE,
+
+    /**
+     * Permits whitespace and comments in the expression.
+     */
+    COMMENTS,
+
+    /**
+     * Enables dotall mode, in which the expression {@code .} matches any character, including a line terminator.
+     */
+    DOTALL,
+
+    /**
+     * Enables literal parsing of the expression.
+     */
+    LITERAL,
+
+    /**
+     * Enables multiline mode, in which the expressions {@code ^} and {@code $} match just after or just before a line
+     * terminator.
+     */
+    MULTILINE,
+
+    /**
+     * Enables Unicode-aware case folding when combined with {@link #CASE_INSENSITIVE}.
+     */
+    UNICODE_CASE;
+
+}
@@ -0,0 +1,800 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import software.leonov.regex.RegexNode.Alternation;
+import software.leonov.regex.RegexNode.Anchor;
+import software.leonov.regex.RegexNode.Backreference;
+import software.leonov.regex.RegexNode.CharClass;
+import software.leonov.regex.RegexNode.Group;
+import software.leonov.regex.RegexNode.Literal;
+import software.leonov.regex.RegexNode.Repeat;
+import software.leonov.regex.RegexNode.Sequence;
+
+/**
+ * Parses regular-expressions written in the syntax of the {@link Pattern java.util.regex.Pattern} class into
+ * {@link RegexNode} trees for analysis.
+ * <p>
+ * The parser is not a validator: it accepts some expressions which {@code Pattern} would reject. Constructs which it does
+ * not understand, such as {@code \R} and {@code \X}, cause an {@code IllegalArgumentException}; callers are expected to
+ * treat such expressions conservatively.
+ *
+ * @author Zhenya Leonov
+ */
+final class RegexParser {
+
+    static final CodePointSet DIGIT = CodePointSet.range('0', '9');
+    static final CodePointSet WORD = CodePointSet.ranges('a', 'z', 'A', 'Z', '0', '9', '_', '_');
+    static final CodePointSet SPACE = CodePointSet.ranges(' ', ' ', '\t', '\r');
+    static final CodePointSet HORIZONTAL_SPACE = CodePointSet.ranges(' ', ' ', '\t', '\t', 0xA0, 0xA0, 0x1680, 0x1680, 0x180E, 0x180E, 0x2000, 0x200A, 0x202F, 0x202F, 0x205F, 0x205F, 0x3000, 0x3000);
+    static final CodePointSet VERTICAL_SPACE = CodePointSet.ranges('\n', '\r', 0x85, 0x85, 0x2028, 0x2029);
+    static final CodePointSet LINE_TERMINATOR = CodePointSet.ranges('\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029);
+
+    private static final Map<String, CodePointSet> POSIX = new HashMap<>();
+
+    static {
+        final CodePointSet lower = CodePointSet.range('a', 'z');
+        final CodePointSet upper = CodePointSet.range('A', 'Z');
+        final CodePointSet alpha = lower.union(upper);
+        final CodePointSet alnum = alpha.union(DIGIT);
+        final CodePointSet punct = CodePointSet.ranges('!', '/', ':', '@', '[', '`', '{', '~');
+        final CodePointSet graph = alnum.union(punct);
+
+        POSIX.put("Lower", lower);
+        POSIX.put("Upper", upper);
+        POSIX.put("ASCII", CodePointSet.range(0x00, 0x7F));
+        POSIX.put("Alpha", alpha);
+        POSIX.put("Digit", DIGIT);
+        POSIX.put("Alnum", alnum);
+        POSIX.put("Punct", punct);
+        POSIX.put("Graph", graph);
+        POSIX.put("Print", graph.union(CodePointSet.of(' ')));
+        POSIX.put("Blank", CodePointSet.ranges(' ', ' ', '\t', '\t'));
+        POSIX.put("Cntrl", CodePointSet.ranges(0x00, 0x1F, 0x7F, 0x7F));
+        POSIX.put("XDigit", CodePointSet.ranges('0', '9', 'a', 'f', 'A', 'F'));
+        POSIX.put("Space", SPACE);
+    }
+
+    /**
+     * The maximum nesting of groups, character classes and quantifiers. It bounds the recursion of the parser and of the
+     * analyses which walk the syntax tree, so that deeply nested expressions are rejected instead of overflowing the stack.
+     */
+    static final int MAX_DEPTH = 500;
+
+    private final String regex;
+    private int pos = 0;
+    private int flags;
+    private int groupCount = 0;
+    private int depth = 0;
+    private final Map<String, Integer> names = new HashMap<>();
+
+    /*
+     * Whether the class being parsed has a meaning specific to java.util.regex, see CharClass.javaSemantics. It is reset
+     * by charClass(CodePointSet).
+     */
+    private boolean javaSemantics = false;
+
+    private RegexParser(final String regex, final int flags) {
+        this.regex = regex;
+        this.flags = flags;
+    }
+
+    /**
+     * Parses the specified regular-expression.
+     *
+     * @param regex the expression to parse
+     * @param flags {@link Pattern} match flags
+     * @return the root of the syntax tree
+     * @throws IllegalArgumentException if the expression is malformed or uses a construct the parser does not understand
+     */
+    static RegexNode parse(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        final RegexParser parser = new RegexParser(regex, flags);
+
+        if ((flags & Pattern.LITERAL) != 0) {
+            final List<RegexNode> nodes = new ArrayList<>();
+            for (int i = 0; i < regex.length(); i += Character.charCount(regex.codePointAt(i)))
+                nodes.add(parser.literal(regex.codePointAt(i)));
+            return sequence(nodes);
+        }
+
+        final RegexNode root = parser.parseAlternation();
+        if (parser.pos < regex.length())
+            throw parser.error("Unmatched closing ')'");
+        return root;
+    }
+
+    /**
+     * Parses the specified regular-expression.
+     *
+     * @param regex   the expression to parse
+     * @param options the match options
+     * @return the root of the syntax tree
+     * @throws IllegalArgumentException if the expression is malformed or uses a construct the parser does not understand
+     */
+    static RegexNode parse(final String regex, final Set<RegexOption> options) {
+        return parse(regex, flags(options));
+    }
+
+    /**
+     * Returns the {@link Pattern} flags equivalent to the specified options.
+     */
+    static int flags(final Set<RegexOption> options) {
+        checkNotNull(options, "options == null");
+        int flags = 0;
+        for (final RegexOption option : options)
+            switch (option) {
+            case CASE_INSENSITIVE:
+                flags |= Pattern.CASE_INSENSITIVE;
+                break;
+            case COMMENTS:
+                flags |= Pattern.COMMENTS;
+                break;
+            case DOTALL:
+                flags |= Pattern.DOTALL;
+                break;
+            case LITERAL:
+                flags |= Pattern.LITERAL;
+                break;
+            case MULTILINE:
+                flags |= Pattern.MULTILINE;
+                break;
+            case UNICODE_CASE:
+                flags |= Pattern.UNICODE_CASE;
+                break;
+            }
+        return flags;
+    }
+
+    private RegexNode parseAlternation() {
+        final RegexNode first = parseSequence();
+        if (!peek('|'))
+            return first;
+
+        final List<RegexNode> alternatives = new ArrayList<>();
+        alternatives.add(first);
+        while (peek('|')) {
+            pos++;
+            alternatives.add(parseSequence());
+        }
+        return new Alternation(alternatives);
+    }
+
+    private RegexNode parseSequence() {
+        final List<RegexNode> nodes = new ArrayList<>();
+        while (true) {
+            skipComments();
+            if (pos == regex.length() || peek('|') || peek(')'))
+                return sequence(nodes);
+
+            RegexNode node = parseAtom();
+            if (node == null) // inline flags
+                continue;
+
+            if (node instanceof Sequence) { // quoted characters, only the last of which is quantified
+                final List<RegexNode> quoted = ((Sequence) node).nodes;
+                if (quoted.isEmpty())
+                    continue;
+                nodes.addAll(quoted.subList(0, quoted.size() - 1));
+                node = quoted.get(quoted.size() - 1);
+            }
+
+            int quantifiers = 0;
+            while (true) {
+                skipComments();
+                final RegexNode quantified = parseQuantifier(node);
+                if (quantified == node)
+                    break;
+                node = quantified;
+                enter();
+                quantifiers++;
+            }
+            depth -= quantifiers;
+            nodes.add(node);
+        }
+    }
+
+    private RegexNode parseAtom() {
+        final int c = regex.codePointAt(pos);
+        pos += Character.charCount(c);
+
+        switch (c) {
+        case '(':
+            return parseGroup();
+        case '[':
+            return charClass(parseClass());
+        case '.':
+            if (has(Pattern.DOTALL))
+                return charClass(CodePointSet.ALL);
+            if (has(Pattern.UNIX_LINES))
+                return charClass(CodePointSet.of('\n').complement());
+            javaSemantics = true;
+            return charClass(LINE_TERMINATOR.complement());
+        case '^':
+            return new Anchor(has(Pattern.MULTILINE) ? Anchor.Kind.BEGIN_LINE : Anchor.Kind.BEGIN_INPUT);
+        case '$':
+            return new Anchor(has(Pattern.MULTILINE) ? Anchor.Kind.END_LINE : Anchor.Kind.END_INPUT_BEFORE_TERMINATOR);
+        case '\\':
+            return parseEscape();
+        case '*':
+        case '+':
+        case '?':
+            pos--;
+            throw error("Dangling meta character '" + (char) c + "'");
+        case '{':
+            throw error("Illegal repetition");
+        default:
+            return literal(c);
+        }
+    }
+
+    private RegexNode parseGroup() {
+        final int saved = flags;
+
+        Group.Kind kind = Group.Kind.CAPTURING;
+        String name = null;
+
+        if (accept('?')) {
+            if (accept(':'))
+                kind = Group.Kind.NON_CAPTURING;
+            else if (accept('>'))
+                kind = Group.Kind.ATOMIC;
+            else if (accept('='))
+                kind = Group.Kind.LOOKAHEAD;
+            else if (accept('!'))
+                kind = Group.Kind.NEGATIVE_LOOKAHEAD;
+            else if (accept('<')) {
+                if (accept('='))
+                    kind = Group.Kind.LOOKBEHIND;
+                else if (accept('!'))
+                    kind = Group.Kind.NEGATIVE_LOOKBEHIND;
+                else
+                    name = parseGroupName();
+            } else {
+                parseFlags();
+                if (accept(')'))
+                    return null; // applies to the remainder of the enclosing group
+                expect(':');
+                kind = Group.Kind.NON_CAPTURING;
+            }
+        }
+
+        int index = 0;
+        if (kind == Group.Kind.CAPTURING) {
+            index = ++groupCount;
+            if (name != null && names.put(name, index) != null)
+                throw error("Named capturing group <" + name + "> is already defined");
+        }
+
+        enter();
+        final RegexNode child = parseAlternation();
+        expect(')');
+        flags = saved;
+        depth--;
+        return new Group(kind, child, index, name);
+    }
+
+    private String parseGroupName() {
+        final int start = pos;
+        while (pos < regex.length() && (Character.isLetterOrDigit(regex.charAt(pos)) && regex.charAt(pos) < 0x80))
+            pos++;
+        if (pos == start || !Character.isLetter(regex.charAt(start)))
+            throw error("capturing group name does not start with a Latin letter");
+        final String name = regex.substring(start, pos);
+        expect('>');
+        return name;
+    }
+
+    private void parseFlags() {
+        boolean on = true;
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+            final int flag;
+            switch (c) {
+            case 'i':
+                flag = Pattern.CASE_INSENSITIVE;
+                break;
+            case 'd':
+                flag = Pattern.UNIX_LINES;
+                break;
+            case 'm':
+                flag = Pattern.MULTILINE;
+                break;
+            case 's':
+                flag = Pattern.DOTALL;
+                break;
+            case 'u':
+                flag = Pattern.UNICODE_CASE;
+                break;
+            case 'x':
+                flag = Pattern.COMMENTS;
+                break;
+            case 'U':
+                flag = Pattern.UNICODE_CHARACTER_CLASS;
+                break;
+            case 'c':
+                flag = Pattern.CANON_EQ;
+                break;
+            case '-':
+                on = false;
+                pos++;
+                continue;
+            default:
+                return;
+            }
+            flags = on ? flags | flag : flags & ~flag;
+            pos++;
+        }
+    }
+
+    private RegexNode parseQuantifier(final RegexNode node) {
+        if (pos == regex.length())
+            return node;
+
+        final int min;
+        final int max;
+
+        switch (regex.charAt(pos)) {
+        case '*':
+            pos++;
+            min = 0;
+            max = Repeat.UNBOUNDED;
+            break;
+        case '+':
+            pos++;
+            min = 1;
+            max = Repeat.UNBOUNDED;
+            break;
+        case '?':
+            pos++;
+            min = 0;
+            max = 1;
+            break;
+        case '{':
+            pos++;
+            min = parseInt();
+            if (accept(','))
+                max = peekDigit() ? parseInt() : Repeat.UNBOUNDED;
+            else
+                max = min;
+            expect('}');
+            if (max != Repeat.UNBOUNDED && max < min)
+                throw error("Illegal repetition range");
+            break;
+        default:
+            return node;
+        }
+
+        final Repeat.Mode mode = accept('?') ? Repeat.Mode.LAZY : accept('+') ? Repeat.Mode.POSSESSIVE : Repeat.Mode.GREEDY;
+        return new Repeat(node, min, max, mode);
+    }
+
+    private RegexNode parseEscape() {
+        if (pos == regex.length())
+            throw error("Unexpected internal error");
+
+        final char c = regex.charAt(pos++);
+        switch (c) {
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7':
+        case '8':
+        case '9': {
+            int index = c - '0';
+            while (peekDigit()) {
+                final int next = index * 10 + regex.charAt(pos) - '0';
+                if (next > groupCount)
+                    break;
+                index = next;
+                pos++;
+            }
+            return new Backreference(index);
+        }
+        case 'k': {
+            expect('<');
+            final String name = parseGroupName();
+            final Integer index = names.get(name);
+            if (index == null)
+                throw error("named capturing group <" + name + "> does not exist");
+            return new Backreference(index);
+        }
+        case 'Q': {
+            final int end = regex.indexOf("\\E", pos);
+            final String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+            pos = end < 0 ? regex.length() : end + 2;
+            final List<RegexNode> nodes = new ArrayList<>();
+            for (int i = 0; i < quoted.length(); i += Character.charCount(quoted.codePointAt(i)))
+                nodes.add(literal(quoted.codePointAt(i)));
+            return new Sequence(nodes);
+        }
+        case 'b':
+            if (peek('{'))
+                throw error("Unsupported construct \\b{");
+            return new Anchor(Anchor.Kind.WORD_BOUNDARY);
+        case 'B':
+            return new Anchor(Anchor.Kind.NON_WORD_BOUNDARY);
+        case 'A':
+            return new Anchor(Anchor.Kind.BEGIN_INPUT);
+        case 'G':
+            return new Anchor(Anchor.Kind.END_OF_PREVIOUS_MATCH);
+        case 'Z':
+            return new Anchor(Anchor.Kind.END_INPUT_BEFORE_TERMINATOR);
+        case 'z':
+            return new Anchor(Anchor.Kind.END_INPUT);
+        default:
+            pos--;
+            if (isPredefinedClass())
+                return charClass(parsePredefinedClass());
+            return literal(parseEscapedCharacter());
+        }
+    }
+
+    private boolean isPredefinedClass() {
+        return pos < regex.length() && "dDwWsShHvVpP".indexOf(regex.charAt(pos)) >= 0;
+    }
+
+    /**
+     * Parses a predefined or Unicode property class at the current position (just past the backslash), returning
+     * {@code null} if the class depends on Unicode properties.
+     */
+    private CodePointSet parsePredefinedClass() {
+        final char c = regex.charAt(pos);
+        final boolean unicode = has(Pattern.UNICODE_CHARACTER_CLASS);
+        final CodePointSet set;
+        switch (Character.toLowerCase(c)) {
+        case 'd':
+            set = unicode ? null : DIGIT;
+            break;
+        case 'w':
+            set = unicode ? null : WORD;
+            break;
+        case 's':
+            set = unicode ? null : SPACE;
+            javaSemantics = true;
+            break;
+        case 'h':
+            set = HORIZONTAL_SPACE;
+            break;
+        case 'v':
+            set = VERTICAL_SPACE;
+            javaSemantics = true;
+            break;
+        case 'p':
+            pos++;
+            final String property;
+            if (accept('{')) {
+                final int end = regex.indexOf('}', pos);
+                if (end < 0)
+                    throw error("Unclosed character family");
+                property = regex.substring(pos, end);
+                pos = end;
+            } else if (pos == regex.length())
+                throw error("Illegal character family");
+            else
+                property = regex.substring(pos, pos + 1);
+            pos++;
+            final CodePointSet posix = unicode ? null : POSIX.get(property);
+            return c == 'P' && posix != null ? posix.complement() : posix;
+        default:
+            throw new AssertionError();
+        }
+        pos++;
+        return set != null && Character.isUpperCase(c) ? set.complement() : set;
+    }
+
+    /**
+     * Parses an escaped character at the current position (just past the backslash).
+     */
+    private int parseEscapedCharacter() {
+        final char c = regex.charAt(pos++);
+        switch (c) {
+        case 't':
+            return '\t';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 'f':
+            return '\f';
+        case 'a':
+            return 0x07;
+        case 'e':
+            return 0x1B;
+        case 'c':
+            if (pos == regex.length())
+                throw error("Illegal control escape sequence");
+            return regex.charAt(pos++) ^ 64;
+        case '0': {
+            if (!peekOctal())
+                throw error("Illegal octal escape sequence");
+            final int limit = regex.charAt(pos) <= '3' ? 3 : 2;
+            int value = 0;
+            for (int i = 0; i < limit && peekOctal(); i++)
+                value = value * 8 + regex.charAt(pos++) - '0';
+            return value;
+        }
+        case 'x': {
+            if (accept('{')) {
+                final int end = regex.indexOf('}', pos);
+                if (end < 0)
+                    throw error("Unclosed hexadecimal escape sequence");
+                final int value = hex(pos, end);
+                pos = end + 1;
+                return value;
+            }
+            final int value = hex(pos, pos + 2);
+            pos += 2;
+            return value;
+        }
+        case 'u': {
+            final int value = hex(pos, pos + 4);
+            pos += 4;
+            if (Character.isHighSurrogate((char) value) && regex.startsWith("\\u", pos)) {
+                final int low = hex(pos + 2, pos + 6);
+                if (Character.isLowSurrogate((char) low)) {
+                    pos += 6;
+                    return Character.toCodePoint((char) value, (char) low);
+                }
+            }
+            return value;
+        }
+        default:
+            if (Character.isLetterOrDigit(c)) {
+                pos--;
+                throw error("Illegal/unsupported escape sequence");
+            }
+            return c;
+        }
+    }
+
+    private CodePointSet parseClass() {
+        final boolean negate = accept('^');
+        CodePointSet set = CodePointSet.EMPTY;
+        boolean first = true;
+
+        while (true) {
+            skipClassComments();
+            if (pos == regex.length())
+                throw error("Unclosed character class");
+
+            final char c = regex.charAt(pos);
+            if (c == ']' && !first) {
+                pos++;
+                break;
+            } else if (c == '[') {
+                pos++;
+                enter();
+                set = union(set, parseClass());
+                depth--;
+                javaSemantics = true;
+            } else if (c == '&' && regex.startsWith("&&", pos)) {
+                pos += 2;
+                javaSemantics = true;
+                if (pos < regex.length() && regex.charAt(pos) != ']') // a missing operand is ignored
+                    set = intersection(set, parseIntersectionOperand());
+                continue;
+            } else if (c == '\\' && pos + 1 < regex.length() && regex.charAt(pos + 1) == 'Q') {
+                pos += 2;
+                final int end = regex.indexOf("\\E", pos);
+                final String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+                pos = end < 0 ? regex.length() : end + 2;
+                for (int i = 0; i < quoted.length(); i += Character.charCount(quoted.codePointAt(i)))
+                    set = union(set, CodePointSet.of(quoted.codePointAt(i)));
+            } else {
+                if (c == '\\') {
+                    pos++;
+                    if (isPredefinedClass()) {
+                        set = union(set, parsePredefinedClass());
+                        first = false;
+                        continue;
+                    }
+                    pos--;
+                }
+                final int lo = parseClassCharacter();
+                if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']' && regex.charAt(pos + 1) != '[') {
+                    pos++;
+                    final int hi = parseClassCharacter();
+                    if (hi < lo)
+                        throw error("Illegal character range");
+                    set = union(set, CodePointSet.range(lo, hi));
+                } else
+                    set = union(set, CodePointSet.of(lo));
+            }
+            first = false;
+        }
+
+        if (set != null && has(Pattern.CASE_INSENSITIVE))
+            set = fold(set);
+        return negate && set != null ? set.complement() : set;
+    }
+
+    /**
+     * Parses the right operand of an intersection up to, but not including, the closing bracket of the enclosing class.
+     */
+    private CodePointSet parseIntersectionOperand() {
+        final int start = pos;
+        int depth = 0;
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+            if (c == '\\')
+                pos++;
+            else if (c == '[')
+                depth++;
+            else if (c == ']') {
+                if (depth == 0)
+                    break;
+                depth--;
+            }
+            pos++;
+        }
+
+        final String operand = "[" + regex.substring(start, pos) + "]";
+        final RegexParser parser = new RegexParser(operand, flags & ~Pattern.CASE_INSENSITIVE);
+        parser.pos = 1;
+        parser.depth = this.depth;
+        return parser.parseClass();
+    }
+
+    private int parseClassCharacter() {
+        final int c = regex.codePointAt(pos);
+        if (c != '\\') {
+            pos += Character.charCount(c);
+            return c;
+        }
+        pos++;
+        if (pos == regex.length())
+            throw error("Unclosed character class");
+        if (regex.charAt(pos) == 'b')
+            throw error("Illegal/unsupported escape sequence");
+        return parseEscapedCharacter();
+    }
+
+    private RegexNode literal(final int codePoint) {
+        if (has(Pattern.CASE_INSENSITIVE)) {
+            final CodePointSet folded = fold(CodePointSet.of(codePoint));
+            if (folded.size() > 1 || javaSemantics)
+                return charClass(folded);
+        }
+        return new Literal(codePoint);
+    }
+
+    private RegexNode charClass(final CodePointSet set) {
+        final RegexNode node = new CharClass(set, javaSemantics);
+        javaSemantics = false;
+        return node;
+    }
+
+    /*
+     * Other engines fold case with Unicode rules regardless of UNICODE_CASE.
+     */
+    private CodePointSet fold(final CodePointSet set) {
+        final CodePointSet folded = set.fold(has(Pattern.UNICODE_CASE));
+        if (!has(Pattern.UNICODE_CASE) && !folded.equals(set.fold(true)))
+            javaSemantics = true;
+        return folded;
+    }
+
+    private static RegexNode sequence(final List<RegexNode> nodes) {
+        return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+    }
+
+    private static CodePointSet union(final CodePointSet a, final CodePointSet b) {
+        return a == null || b == null ? null : a.union(b);
+    }
+
+    private static CodePointSet intersection(final CodePointSet a, final CodePointSet b) {
+        return a == null || b == null ? null : a.intersection(b);
+    }
+
+    private void skipComments() {
+        if (!has(Pattern.COMMENTS))
+            return;
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+            if (Character.isWhitespace(c))
+                pos++;
+            else if (c == '#') {
+                while (pos < regex.length() && !LINE_TERMINATOR.contains(regex.charAt(pos)))
+                    pos++;
+            } else
+                break;
+        }
+    }
+
+    private void skipClassComments() {
+        if (!has(Pattern.COMMENTS))
+            return;
+        while (pos < regex.length() && Character.isWhitespace(regex.charAt(pos)))
+            pos++;
+    }
+
+    private int parseInt() {
+        final int start = pos;
+        while (peekDigit())
+            pos++;
+        if (start == pos)
+            throw error("Illegal repetition");
+        try {
+            return Integer.parseInt(regex.substring(start, pos));
+        } catch (final NumberFormatException e) {
+            throw error("Illegal repetition range");
+        }
+    }
+
+    private int hex(final int start, final int end) {
+        if (end > regex.length() || start == end)
+            throw error("Illegal hexadecimal escape sequence");
+        try {
+            final int value = Integer.parseInt(regex.substring(start, end), 16);
+            if (value > Character.MAX_CODE_POINT)
+                throw error("Hexadecimal codepoint is too big");
+            return value;
+        } catch (final NumberFormatException e) {
+            throw error("Illegal hexadecimal escape sequence");
+        }
+    }
+
+    private boolean has(final int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private boolean peek(final char c) {
+        return pos < regex.length() && regex.charAt(pos) == c;
+    }
+
+    private boolean peekDigit() {
+        return pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9';
+    }
+
+    private boolean peekOctal() {
+        return pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '7';
+    }
+
+    private boolean accept(final char c) {
+        if (peek(c)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(final char c) {
+        if (!accept(c))
+            throw error(c == ')' ? "Unclosed group" : "Expected '" + c + "'");
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH)
+            throw new NestingException("Expression nested more than " + MAX_DEPTH + " levels deep near index " + pos + ": " + regex);
+    }
+
+    private IllegalArgumentException error(final String description) {
+        return new IllegalArgumentException(description + " near index " + pos + ": " + regex);
+    }
+
+    /**
+     * Thrown when an expression is nested more than {@link RegexParser#MAX_DEPTH} levels deep. Unlike other malformed
+     * expressions, such expressions should not be handed to an engine, since the recursive parsers of several engines
+     * would overflow the stack.
+     */
+    static final class NestingException extends IllegalArgumentException {
+
+        private static final long serialVersionUID = 1L;
+
+        NestingException(final String message) {
+            super(message);
+        }
+    }
+
+}
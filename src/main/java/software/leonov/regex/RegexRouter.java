@@ -0,0 +1,165 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Routes regular-expressions to the first of several {@link RegexEngine}s which can evaluate them.
+ * <p>
+ * Expressions are written in the syntax of the {@link java.util.regex.Pattern} class. The router
+ * {@link RegexFeatures#required(String, Set) detects} the features used by each expression and selects the first engine,
+ * in order of preference, whose {@link RegexEngine#capabilities() capabilities} include those features as well as any
+ * capabilities required by the caller, which {@link RegexEngine#supportedOptions() supports} the specified options,
+ * and which {@link RegexEngine#accepts(String, Set) accepts} the expression.
+ * For example, an expression which is only used to test whether an input matches can be routed to a linear-time
+ * automaton, an alternation of keywords to an Aho-Corasick automaton, and an expression with backreferences to a
+ * backtracking engine.
+ * <p>
+ * Expressions which cannot be analyzed are assumed to require every feature. If the selected engine fails to compile an
+ * expression, because its syntax differs from that of {@code java.util.regex}, the next suitable engine is tried.
+ * <p>
+ * Instances of this class are immutable and safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RegexRouter {
+
+    private final ImmutableList<RegexEngine> engines;
+
+    private RegexRouter(final ImmutableList<RegexEngine> engines) {
+        this.engines = engines;
+    }
+
+    private static final class Holder {
+        private static final RegexRouter DEFAULT = new RegexRouter(preferred(RegexEngines.available()));
+    }
+
+    /**
+     * Returns a new {@code RegexRouter} which selects from the specified engines, in order of preference.
+     *
+     * @param engines the engines in order of preference
+     * @return a new {@code RegexRouter} which selects from the specified engines
+     */
+    public static RegexRouter create(final Iterable<? extends RegexEngine> engines) {
+        checkNotNull(engines, "engines == null");
+        return new RegexRouter(ImmutableList.copyOf(engines));
+    }
+
+    /**
+     * Returns a {@code RegexRouter} which selects from all {@link RegexEngines#available() available} engines.
+     * <p>
+     * Engines which guarantee {@link Capability#LINEAR_TIME linear-time} matching are preferred, the most specialized
+     * engines (those supporting the fewest expression features) first, and among equally specialized engines those which
+     * report the most detailed results, such as {@link Capability#CAPTURING_GROUPS capturing groups}. The remaining
+     * engines are preferred in the order in which they were discovered.
+     *
+     * @return a {@code RegexRouter} which selects from all available engines
+     */
+    public static RegexRouter getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Returns the engines this router selects from, in order of preference.
+     *
+     * @return the engines this router selects from, in order of preference
+     */
+    public ImmutableList<RegexEngine> engines() {
+        return engines;
+    }
+
+    /**
+     * Returns the preferred engine able to evaluate the given regular-expression with the specified options.
+     *
+     * @param regex    the expression
+     * @param options  the match options
+     * @param required additional capabilities required by the caller, such as {@link Capability#CAPTURING_GROUPS}
+     * @throws IllegalArgumentException if none of the engines can evaluate the expression, or if it is nested too deeply to
+     *                                  be analyzed
+     * @return the preferred engine able to evaluate the given regular-expression
+     */
+    public RegexEngine select(final String regex, final Set<RegexOption> options, final Set<Capability> required) {
+        final List<RegexEngine> candidates = candidates(regex, options, required);
+        checkArgument(!candidates.isEmpty(), "no regex engine can evaluate %s with options %s and capabilities %s", regex, options, required);
+        return candidates.get(0);
+    }
+
+    /**
+     * Compiles the given regular-expression using the preferred engine able to evaluate it.
+     *
+     * @param regex    the expression to be compiled
+     * @param options  the match options
+     * @param required additional capabilities required by the caller, such as {@link Capability#CAPTURING_GROUPS}
+     * @throws IllegalArgumentException if none of the engines can evaluate the expression, or if it is nested too deeply to
+     *                                  be analyzed
+     * @throws RuntimeException         the exception thrown by the first suitable engine if every suitable engine fails to
+     *                                  compile the expression
+     * @return a new {@code RegularExpression} instance
+     */
+    public RegularExpression compile(final String regex, final Set<RegexOption> options, final Set<Capability> required) {
+        final List<RegexEngine> candidates = candidates(regex, options, required);
+        checkArgument(!candidates.isEmpty(), "no regex engine can evaluate %s with options %s and capabilities %s", regex, options, required);
+
+        RuntimeException failure = null;
+        for (final RegexEngine engine : candidates)
+            try {
+                return engine.compile(regex, options);
+            } catch (final RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        throw failure;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("engines()", engines()).toString();
+    }
+
+    private List<RegexEngine> candidates(final String regex, final Set<RegexOption> options, final Set<Capability> required) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        checkNotNull(required, "required == null");
+
+        final EnumSet<Capability> capabilities = EnumSet.noneOf(Capability.class);
+        capabilities.addAll(required);
+        try {
+            capabilities.addAll(RegexFeatures.required(regex, options));
+        } catch (final RegexParser.NestingException e) {
+            throw e;
+        } catch (final IllegalArgumentException e) { // the expression is malformed or cannot be analyzed
+            capabilities.addAll(RegexFeatures.ALL);
+        }
+
+        final List<RegexEngine> candidates = new ArrayList<>();
+        for (final RegexEngine engine : engines)
+            if (engine.capabilities().containsAll(capabilities) && engine.supportedOptions().containsAll(options) && engine.accepts(regex, options))
+                candidates.add(engine);
+        return candidates;
+    }
+
+    private static ImmutableList<RegexEngine> preferred(final List<RegexEngine> engines) {
+        final Comparator<RegexEngine> linear = Comparator.comparing(engine -> !engine.capabilities().contains(Capability.LINEAR_TIME));
+        final Comparator<RegexEngine> specialized = Comparator.comparingInt(engine -> engine.capabilities().contains(Capability.LINEAR_TIME) ? features(engine) : 0);
+        final Comparator<RegexEngine> detailed = Comparator.comparingInt(engine -> engine.capabilities().contains(Capability.LINEAR_TIME) ? features(engine) - engine.capabilities().size() : 0);
+        return ImmutableList.sortedCopyOf(linear.thenComparing(specialized).thenComparing(detailed), engines);
+    }
+
+    private static int features(final RegexEngine engine) {
+        int features = 0;
+        for (final Capability capability : engine.capabilities())
+            if (RegexFeatures.ALL.contains(capability))
+                features++;
+        return features;
+    }
+
+}
@@ -0,0 +1,231 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+
+/**
+ * A set of regular-expressions which are matched against an input together, reporting the indexes of the expressions
+ * which match.
+ * <p>
+ * Expressions are written in the syntax of the {@link java.util.regex.Pattern} class. Every expression which can be
+ * represented by a finite automaton (see {@link AutomatonRegularExpression}) is combined into a single automaton, so
+ * that all of them are evaluated in one scan of the input, regardless of their number. The remaining expressions, such
+ * as those containing anchors, backreferences or lookaround, are compiled by the {@link JDKRegularExpression} class
+ * and verified individually.
+ * <p>
+ * The literals required by each expression are {@link Prefilter extracted} when the set is compiled. Before the input is
+ * scanned, all of these literals are searched for in a single pass by an Aho-Corasick automaton: the combined automaton
+ * is skipped if none of its expressions can match, and an individually verified expression is only evaluated if the
+ * input contains one of its literals.
+ * <p>
+ * A {@code RegexSet} only reports which expressions match. The {@link #regularExpression(int)} method returns an
+ * expression which supports capturing groups, which can be used to extract the groups from the inputs matched by that
+ * expression.
+ * <p>
+ * Instances of this class are safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RegexSet {
+
+    private final ImmutableList<String> patterns;
+    private final Set<RegexOption> options;
+
+    private final UnionAutomaton automaton;
+    private final BitSet automatonIndexes;
+    private final int[] fallbackIndexes;
+    private final RegularExpression[] fallbacks;
+
+    private final AhoCorasick literals;
+    private final int[][] literalIndexes; // the expressions requiring each literal
+    private final BitSet unfiltered; // the expressions which do not require any literal
+
+    private final AtomicReferenceArray<RegularExpression> expressions;
+
+    private RegexSet(final ImmutableList<String> patterns, final Set<RegexOption> options) {
+        this.patterns = patterns;
+        this.options = options;
+        expressions = new AtomicReferenceArray<>(patterns.size());
+
+        final List<Automaton> automata = new ArrayList<>();
+        final List<Integer> labels = new ArrayList<>();
+        final List<Integer> fallbackIndexes = new ArrayList<>();
+        final List<RegularExpression> fallbacks = new ArrayList<>();
+        final Map<String, List<Integer>> literals = new LinkedHashMap<>();
+        automatonIndexes = new BitSet();
+        unfiltered = new BitSet();
+
+        for (int i = 0; i < patterns.size(); i++) {
+            final String regex = patterns.get(i);
+            String expression = null;
+            try {
+                expression = AutomatonSyntax.translate(RegexParser.parse(regex, options));
+            } catch (final IllegalArgumentException e) { // the expression cannot be represented by an automaton
+            }
+
+            if (expression != null) {
+                automata.add(new RegExp(expression, RegExp.NONE).toAutomaton());
+                labels.add(i);
+                automatonIndexes.set(i);
+            } else {
+                fallbackIndexes.add(i);
+                fallbacks.add(regularExpression(i));
+            }
+        }
+
+        for (int i = 0; i < patterns.size(); i++) {
+            final Prefilter prefilter = Prefilter.of(patterns.get(i), options);
+            if (prefilter.acceptsAll())
+                unfiltered.set(i);
+            for (final String literal : prefilter.literals())
+                literals.computeIfAbsent(literal, key -> new ArrayList<>()).add(i);
+        }
+
+        this.literals = new AhoCorasick(ImmutableList.copyOf(literals.keySet()));
+        literalIndexes = new int[literals.size()][];
+        int index = 0;
+        for (final List<Integer> indexes : literals.values())
+            literalIndexes[index++] = Ints.toArray(indexes);
+
+        automaton = new UnionAutomaton(automata, Ints.toArray(labels));
+        this.fallbackIndexes = Ints.toArray(fallbackIndexes);
+        this.fallbacks = fallbacks.toArray(new RegularExpression[0]);
+    }
+
+    /**
+     * Compiles the given regular-expressions into a {@code RegexSet}.
+     *
+     * @param patterns the expressions to be compiled
+     * @throws IllegalArgumentException if the syntax of any of the expressions is invalid
+     * @return a new {@code RegexSet} instance
+     */
+    public static RegexSet compile(final Iterable<String> patterns) {
+        return compile(patterns, EnumSet.noneOf(RegexOption.class));
+    }
+
+    /**
+     * Compiles the given regular-expressions into a {@code RegexSet} with the specified options.
+     *
+     * @param patterns the expressions to be compiled
+     * @param options  the match options, which apply to every expression
+     * @throws IllegalArgumentException if the syntax of any of the expressions is invalid
+     * @return a new {@code RegexSet} instance
+     */
+    public static RegexSet compile(final Iterable<String> patterns, final Set<RegexOption> options) {
+        checkNotNull(patterns, "patterns == null");
+        checkNotNull(options, "options == null");
+        return new RegexSet(ImmutableList.copyOf(patterns), Sets.immutableEnumSet(options));
+    }
+
+    /**
+     * Returns the expressions in this set, in order of their indexes.
+     *
+     * @return the expressions in this set, in order of their indexes
+     */
+    public ImmutableList<String> patterns() {
+        return patterns;
+    }
+
+    /**
+     * Returns the number of expressions in this set.
+     *
+     * @return the number of expressions in this set
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Returns the indexes of the expressions which match the entire input.
+     * <p>
+     * Exceptions thrown by the engines of individually verified expressions are rethrown as described in
+     * {@link StringMatcher#resultIterator()}.
+     *
+     * @param input the character sequence to be matched
+     * @return the indexes of the expressions which match the entire input
+     */
+    public BitSet matches(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        final BitSet candidates = candidates(input);
+        final BitSet result = candidates.intersects(automatonIndexes) ? automaton.matches(input) : new BitSet();
+        for (int i = 0; i < fallbacks.length; i++)
+            if (candidates.get(fallbackIndexes[i]) && fallbacks[i].matcher(input).matchesUnchecked(Duration.ZERO))
+                result.set(fallbackIndexes[i]);
+        return result;
+    }
+
+    /**
+     * Returns the indexes of the expressions which match a subsequence of the input.
+     * <p>
+     * Exceptions thrown by the engines of individually verified expressions are rethrown as described in
+     * {@link StringMatcher#resultIterator()}.
+     *
+     * @param input the character sequence to be matched
+     * @return the indexes of the expressions which match a subsequence of the input
+     */
+    public BitSet find(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        final BitSet candidates = candidates(input);
+        final BitSet result = candidates.intersects(automatonIndexes) ? automaton.find(input) : new BitSet();
+        for (int i = 0; i < fallbacks.length; i++)
+            if (candidates.get(fallbackIndexes[i]) && fallbacks[i].matcher(input).findUnchecked(Duration.ZERO))
+                result.set(fallbackIndexes[i]);
+        return result;
+    }
+
+    /**
+     * Returns the expression at the specified index compiled by the {@link JDKRegularExpression} class, which supports
+     * capturing groups. Expressions are compiled when first requested.
+     *
+     * @param index the index of the expression
+     * @return the expression at the specified index compiled by the {@code JDKRegularExpression} class
+     */
+    public RegularExpression regularExpression(final int index) {
+        checkElementIndex(index, size());
+        RegularExpression expression = expressions.get(index);
+        if (expression == null) {
+            expression = JDKRegularExpression.compile(patterns.get(index), RegexParser.flags(options));
+            if (!expressions.compareAndSet(index, null, expression))
+                expression = expressions.get(index);
+        }
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("size()", size()).add("options", options).toString();
+    }
+
+    /*
+     * Returns the indexes of the expressions which do not require any literal or whose literals occur in the input.
+     */
+    private BitSet candidates(final CharSequence input) {
+        final BitSet candidates = (BitSet) unfiltered.clone();
+        if (literals.size() > 0) {
+            final BitSet occurrences = literals.occurrences(input);
+            for (int literal = occurrences.nextSetBit(0); literal >= 0; literal = occurrences.nextSetBit(literal + 1))
+                for (final int index : literalIndexes[literal])
+                    candidates.set(index);
+        }
+        return candidates;
+    }
+
+}
@@ -1,6 +1,12 @@
 package software.leonov.regex;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.regex.MatchResult;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A representation of a compiled a regular-expression.
@@ -24,6 +30,58 @@ public interface RegularExpression {
      */
     public StringMatcher<?> matcher(final String input);
 
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * Implementations whose engine can read a {@code CharSequence} do not copy the input, which allows matching directly
+     * against mutable, reusable buffers such as {@code StringBuilder}s and {@code CharBuffer}s. The contents of the input
+     * must not change while the matcher is in use. The default implementation matches against {@code input.toString()}.
+     * 
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    public default StringMatcher<?> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        return matcher(input.toString());
+    }
+
+    /**
+     * Lazily splits the given input around matches of this regular-expression.
+     * <p>
+     * The pieces are read-only views of the input, which are not copied until their {@code toString()} method is called.
+     * The input is matched as the pieces are consumed, and each call to {@code iterator()} splits the input anew. The
+     * contents of the input must not change while the pieces are in use.
+     * <p>
+     * The {@code limit} parameter is interpreted as in {@link java.util.regex.Pattern#split(CharSequence, int)
+     * Pattern.split(CharSequence, int)}: if it is positive at most {@code limit} pieces are returned, the last of which
+     * contains the remainder of the input; if it is zero trailing empty pieces are discarded; if it is negative all pieces
+     * are returned. A zero-width match at the beginning of the input never produces an empty leading piece.
+     * <p>
+     * Since the {@code Iterator} interface cannot throw checked exceptions, exceptions thrown while matching are rethrown
+     * as described in {@link StringMatcher#resultIterator()}.
+     * 
+     * @param input the character sequence to be split
+     * @param limit the result threshold, as described above
+     * @return the pieces of the input
+     */
+    public default Iterable<CharSequence> split(final CharSequence input, final int limit) {
+        checkNotNull(input, "input == null");
+        return () -> SplitIterator.matching(matcher(input), input, limit);
+    }
+
+    /**
+     * Returns a lazy sequential stream of the pieces of the given input split around matches of this regular-expression.
+     * <p>
+     * See {@link #split(CharSequence, int)} for details.
+     * 
+     * @param input the character sequence to be split
+     * @param limit the result threshold, as described in {@link #split(CharSequence, int)}
+     * @return a lazy stream of the pieces of the input
+     */
+    public default Stream<CharSequence> splitAsStream(final CharSequence input, final int limit) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(split(input, limit).iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * Returns the expression from which this {@code RegularExpression} was compiled.
      * 
@@ -0,0 +1,238 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.basistech.tclre.PatternFlags;
+import com.basistech.tclre.RegexException;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A bounded cache of compiled regular-expressions.
+ * <p>
+ * Compiling a regular-expression is expensive compared to matching it against a short input. Applications which compile
+ * the same expressions over and over can obtain them from a {@code RegularExpressions} cache instead of calling the
+ * static {@code compile} methods of each implementation. Cached expressions are keyed by the implementation, the
+ * expression and the match flags, and are evicted in approximately least-recently-used order once the cache exceeds its
+ * maximum size or weight.
+ * <p>
+ * If several threads request the same uncached expression concurrently it is compiled only once; the other threads wait
+ * for the result. Expressions which fail to compile are not cached and the exception is rethrown to every caller.
+ * <p>
+ * Instances of this class are safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class RegularExpressions {
+
+    private final Cache<Key, RegularExpression> cache;
+
+    private RegularExpressions(final Cache<Key, RegularExpression> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Returns a new cache which holds at most {@code maximumSize} compiled regular-expressions.
+     *
+     * @param maximumSize the maximum number of compiled regular-expressions the cache may contain
+     * @return a new cache which holds at most {@code maximumSize} compiled regular-expressions
+     */
+    public static RegularExpressions withMaximumSize(final long maximumSize) {
+        checkArgument(maximumSize >= 0, "maximumSize < 0");
+        return new RegularExpressions(CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build());
+    }
+
+    /**
+     * Returns a new cache whose compiled regular-expressions, weighed by the length of their source expressions, do not
+     * exceed {@code maximumWeight} characters in total.
+     * <p>
+     * The weight of an expression is a rough proxy for the memory retained by its compiled form, which makes this bound
+     * more appropriate than {@link #withMaximumSize(long)} when expression lengths vary widely.
+     *
+     * @param maximumWeight the maximum total length of the cached regular-expressions
+     * @return a new cache whose compiled regular-expressions do not exceed {@code maximumWeight} characters in total
+     */
+    public static RegularExpressions withMaximumWeight(final long maximumWeight) {
+        checkArgument(maximumWeight >= 0, "maximumWeight < 0");
+        return new RegularExpressions(CacheBuilder.newBuilder().maximumWeight(maximumWeight).weigher((final Key key, final RegularExpression value) -> key.regex.length()).recordStats().build());
+    }
+
+    /**
+     * Returns a cached {@link AutomatonRegularExpression#compile(String, int) AutomatonRegularExpression}, compiling it if
+     * necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @return a cached {@code AutomatonRegularExpression}
+     */
+    public AutomatonRegularExpression automaton(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        return get(new Key(AutomatonRegularExpression.class, regex, flags), () -> AutomatonRegularExpression.compile(regex, flags));
+    }
+
+    /**
+     * Returns a cached {@link JDKRegularExpression#compile(String, int) JDKRegularExpression}, compiling it if necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @throws IllegalArgumentException                if bit values other than those corresponding to the defined match
+     *                                                 flags are provided
+     * @throws java.util.regex.PatternSyntaxException if the expression's syntax is invalid
+     * @return a cached {@code JDKRegularExpression}
+     */
+    public JDKRegularExpression jdk(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        return get(new Key(JDKRegularExpression.class, regex, flags), () -> JDKRegularExpression.compile(regex, flags));
+    }
+
+    /**
+     * Returns a cached {@link JoniRegularExpression#compile(String, int) JoniRegularExpression}, compiling it if necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @return a cached {@code JoniRegularExpression}
+     */
+    public JoniRegularExpression joni(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        return get(new Key(JoniRegularExpression.class, regex, flags), () -> JoniRegularExpression.compile(regex, flags));
+    }
+
+    /**
+     * Returns a cached {@link JRegexRegularExpression#compile(String, int) JRegexRegularExpression}, compiling it if
+     * necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @throws jregex.PatternSyntaxException if the expression's syntax is invalid
+     * @return a cached {@code JRegexRegularExpression}
+     */
+    public JRegexRegularExpression jregex(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        return get(new Key(JRegexRegularExpression.class, regex, flags), () -> JRegexRegularExpression.compile(regex, flags));
+    }
+
+    /**
+     * Returns a cached {@link RE2JRegularExpression#compile(String, int) RE2JRegularExpression}, compiling it if necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @throws IllegalArgumentException              if bit values other than those corresponding to the defined match
+     *                                               flags are provided
+     * @throws com.google.re2j.PatternSyntaxException if the expression's syntax is invalid
+     * @return a cached {@code RE2JRegularExpression}
+     */
+    public RE2JRegularExpression re2j(final String regex, final int flags) {
+        checkNotNull(regex, "regex == null");
+        return get(new Key(RE2JRegularExpression.class, regex, flags), () -> RE2JRegularExpression.compile(regex, flags));
+    }
+
+    /**
+     * Returns a cached {@link TCLRegularExpression#compile(String, PatternFlags...) TCLRegularExpression}, compiling it if
+     * necessary.
+     *
+     * @param regex the expression to be compiled
+     * @param flags match flags
+     * @throws RegexException if the expression's syntax is invalid
+     * @return a cached {@code TCLRegularExpression}
+     */
+    public TCLRegularExpression tcl(final String regex, final PatternFlags... flags) throws RegexException {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(flags, "flags == null");
+
+        final EnumSet<PatternFlags> key = EnumSet.noneOf(PatternFlags.class);
+        key.addAll(Arrays.asList(flags));
+
+        try {
+            return get(new Key(TCLRegularExpression.class, regex, key), () -> TCLRegularExpression.compile(regex, flags));
+        } catch (final UncheckedExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), RegexException.class);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of regular-expressions currently in this cache.
+     *
+     * @return the number of regular-expressions currently in this cache
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns a snapshot of this cache's cumulative statistics, including the hit, miss and eviction counts and the time
+     * spent compiling regular-expressions.
+     *
+     * @return a snapshot of this cache's cumulative statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Discards all regular-expressions in this cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("size()", size()).add("stats()", stats()).toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends RegularExpression> T get(final Key key, final Callable<T> compiler) {
+        try {
+            return (T) cache.get(key, compiler);
+        } catch (final ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause()); // checked compilation exceptions are unwrapped by the caller
+        } catch (final UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<? extends RegularExpression> engine;
+        private final String regex;
+        private final Object flags;
+        private final int hash;
+
+        private Key(final Class<? extends RegularExpression> engine, final String regex, final Object flags) {
+            this.engine = engine;
+            this.regex = regex;
+            this.flags = flags;
+            this.hash = Objects.hash(engine, regex, flags);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this)
+                return true;
+            if (!(obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return engine == other.engine && regex.equals(other.regex) && flags.equals(other.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
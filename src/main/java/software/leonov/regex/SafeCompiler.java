@@ -0,0 +1,185 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Compiles untrusted regular-expressions, such as expressions supplied by users, without exposing the application to
+ * catastrophic backtracking.
+ * <p>
+ * Expressions are written in the syntax of the {@link java.util.regex.Pattern} class. Every expression is
+ * {@link RegexFeatures#complexity(String, Set) analyzed} before it is compiled. Expressions whose worst-case complexity
+ * does not exceed the configured maximum are compiled by the preferred engine. All other expressions, including those
+ * which cannot be analyzed, are compiled by the first {@link Capability#LINEAR_TIME linear-time} engine selected by the
+ * {@link RegexRouter#getDefault() default router} which can evaluate them and provides the capabilities required by the
+ * caller. If there is no such engine, because the expression uses backreferences or lookaround for example, the
+ * expression is either rejected or compiled with a time limit which applies to every match operation, including
+ * operations which are otherwise untimed, such as {@link StringMatcher#find()}. Time-limited expressions are compiled by
+ * the preferred engine if it is {@link Capability#INTERRUPTIBLE interruptible}, and otherwise by the first interruptible
+ * engine selected by the default router.
+ * <p>
+ * Instances of this class are immutable and safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class SafeCompiler {
+
+    private static final Set<Capability> REPORTING = EnumSet.of(Capability.CAPTURING_GROUPS, Capability.LEFTMOST_FIRST);
+
+    private final RegexEngine engine;
+    private final RegexComplexity maximum;
+    private final Duration timeLimit;
+
+    private SafeCompiler(final RegexEngine engine, final RegexComplexity maximum, final Duration timeLimit) {
+        this.engine = engine;
+        this.maximum = maximum;
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Returns a new {@code SafeCompiler} which rejects expressions whose complexity exceeds {@code maximum} if no
+     * linear-time engine can evaluate them.
+     *
+     * @param engine  the preferred engine
+     * @param maximum the maximum complexity of the expressions compiled by the preferred engine
+     * @return a new {@code SafeCompiler} which rejects unsafe expressions no linear-time engine can evaluate
+     */
+    public static SafeCompiler rejecting(final RegexEngine engine, final RegexComplexity maximum) {
+        checkNotNull(engine, "engine == null");
+        checkNotNull(maximum, "maximum == null");
+        return new SafeCompiler(engine, maximum, null);
+    }
+
+    /**
+     * Returns a new {@code SafeCompiler} which limits every match operation to {@code timeLimit} for expressions whose
+     * complexity exceeds {@code maximum} if no linear-time engine can evaluate them.
+     *
+     * @param engine    the preferred engine
+     * @param maximum   the maximum complexity of the expressions compiled by the preferred engine without a time limit
+     * @param timeLimit the maximum duration of every match operation of unsafe expressions
+     * @return a new {@code SafeCompiler} which limits the match operations of unsafe expressions no linear-time engine can
+     *         evaluate
+     */
+    public static SafeCompiler limiting(final RegexEngine engine, final RegexComplexity maximum, final Duration timeLimit) {
+        checkNotNull(engine, "engine == null");
+        checkNotNull(maximum, "maximum == null");
+        checkNotNull(timeLimit, "timeLimit == null");
+        checkArgument(!timeLimit.isNegative() && !timeLimit.isZero(), "timeLimit <= 0");
+        return new SafeCompiler(engine, maximum, timeLimit);
+    }
+
+    /**
+     * Compiles the given regular-expression.
+     * <p>
+     * If the expression is compiled by a different engine, that engine is required to support the
+     * {@link Capability#CAPTURING_GROUPS} and {@link Capability#LEFTMOST_FIRST} capabilities of the preferred engine, so
+     * that match results are reported in the same form. Expressions using constructs whose meaning differs among engines
+     * (see {@link Capability#JAVA_SEMANTICS}) are only compiled by a different engine if the preferred engine gives them
+     * their {@code java.util.regex} meaning, in which case so does the different engine.
+     *
+     * @param regex   the expression to be compiled
+     * @param options the match options
+     * @throws IllegalArgumentException if the expression is unsafe and this compiler rejects unsafe expressions no
+     *                                  linear-time engine can evaluate
+     * @throws RuntimeException         an engine specific exception if the expression's syntax is invalid
+     * @return a new {@code RegularExpression} instance
+     */
+    public RegularExpression compile(final String regex, final Set<RegexOption> options) {
+        final Set<Capability> required = EnumSet.noneOf(Capability.class);
+        for (final Capability capability : engine.capabilities())
+            if (REPORTING.contains(capability))
+                required.add(capability);
+        return compile(regex, options, required);
+    }
+
+    /**
+     * Compiles the given regular-expression.
+     *
+     * @param regex    the expression to be compiled
+     * @param options  the match options
+     * @param required the capabilities a different engine must support in order to compile the expression, such as
+     *                 {@link Capability#CAPTURING_GROUPS}
+     * @throws IllegalArgumentException if the expression is unsafe and this compiler rejects unsafe expressions no
+     *                                  linear-time engine can evaluate, or no interruptible engine can evaluate it
+     * @throws RuntimeException         an engine specific exception if the expression's syntax is invalid
+     * @return a new {@code RegularExpression} instance
+     */
+    public RegularExpression compile(final String regex, final Set<RegexOption> options, final Set<Capability> required) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        checkNotNull(required, "required == null");
+
+        if (engine.capabilities().contains(Capability.LINEAR_TIME) || isSafe(regex, options))
+            return engine.compile(regex, options);
+
+        // the router only selects engines which give such constructs their java.util.regex meaning
+        final boolean reroutable = engine.capabilities().contains(Capability.JAVA_SEMANTICS) || !requiresJavaSemantics(regex, options);
+
+        final Set<Capability> linear = EnumSet.of(Capability.LINEAR_TIME);
+        linear.addAll(required);
+
+        if (reroutable)
+            try {
+                return RegexRouter.getDefault().compile(regex, options, linear);
+            } catch (final RuntimeException e) { // no linear-time engine can evaluate the expression
+            }
+
+        if (timeLimit == null || engine.capabilities().contains(Capability.INTERRUPTIBLE)) {
+            final RegularExpression compiled = engine.compile(regex, options);
+            checkArgument(timeLimit != null, "%s may backtrack catastrophically", regex);
+            return new TimeLimitedRegularExpression(compiled, timeLimit);
+        }
+
+        checkArgument(reroutable, "%s may backtrack catastrophically", regex);
+
+        final Set<Capability> interruptible = EnumSet.of(Capability.INTERRUPTIBLE);
+        interruptible.addAll(required);
+
+        final RegularExpression compiled;
+        try {
+            compiled = RegexRouter.getDefault().compile(regex, options, interruptible);
+        } catch (final RuntimeException e) { // the time limit cannot be enforced by any engine
+            throw new IllegalArgumentException(regex + " may backtrack catastrophically", e);
+        }
+        return new TimeLimitedRegularExpression(compiled, timeLimit);
+    }
+
+    /**
+     * Returns {@code true} if the worst-case {@link RegexFeatures#complexity(String, Set) complexity} of the given
+     * regular-expression does not exceed the maximum complexity of this compiler.
+     *
+     * @param regex   the expression
+     * @param options the match options
+     * @return {@code true} if the given regular-expression can be safely compiled by the preferred engine, {@code false}
+     *         if its complexity exceeds the maximum or cannot be determined
+     */
+    public boolean isSafe(final String regex, final Set<RegexOption> options) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        try {
+            return RegexFeatures.complexity(regex, options).compareTo(maximum) <= 0;
+        } catch (final IllegalArgumentException e) { // the expression cannot be analyzed
+            return false;
+        }
+    }
+
+    private static boolean requiresJavaSemantics(final String regex, final Set<RegexOption> options) {
+        try {
+            return RegexFeatures.required(regex, options).contains(Capability.JAVA_SEMANTICS);
+        } catch (final IllegalArgumentException e) { // the expression cannot be analyzed
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("engine", engine).add("maximum", maximum).add("timeLimit", timeLimit).toString();
+    }
+
+}
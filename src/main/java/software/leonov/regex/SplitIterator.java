@@ -0,0 +1,176 @@
+package software.leonov.regex;
+
+import java.time.Duration;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Lazily splits an input around the delimiters found by a subclass, following the rules of
+ * {@link java.util.regex.Pattern#split(CharSequence, int) Pattern.split(CharSequence, int)}.
+ * <p>
+ * The pieces are {@link CharSlice views} of the input. When the limit is zero trailing empty pieces are discarded, which
+ * requires empty pieces to be held back until a non-empty piece follows them.
+ *
+ * @author Zhenya Leonov
+ */
+abstract class SplitIterator extends AbstractIterator<CharSequence> {
+
+    private final CharSequence input;
+    private final int limit;
+
+    private int position = 0;
+    private int pieces = 0;
+    private boolean split = false;
+    private boolean finished = false;
+
+    private int pendingEmpty = 0;
+    private CharSequence next = null;
+
+    /**
+     * The start of the delimiter found by the last successful call to {@link #findDelimiter()}.
+     */
+    protected int start;
+
+    /**
+     * The end of the delimiter found by the last successful call to {@link #findDelimiter()}.
+     */
+    protected int end;
+
+    SplitIterator(final CharSequence input, final int limit) {
+        this.input = input;
+        this.limit = limit;
+    }
+
+    /**
+     * Returns a {@code SplitIterator} which splits the input around the matches of the specified matcher.
+     *
+     * @param matcher the matcher
+     * @param input   the input of the matcher
+     * @param limit   the limit, as in {@code Pattern.split(CharSequence, int)}
+     * @return a {@code SplitIterator} which splits the input around the matches of the specified matcher
+     */
+    static SplitIterator matching(final StringMatcher<?> matcher, final CharSequence input, final int limit) {
+        return new SplitIterator(input, limit) {
+            @Override
+            protected boolean findDelimiter() {
+                if (!matcher.findUnchecked(Duration.ZERO))
+                    return false;
+                start = matcher.start();
+                end = matcher.end();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a {@code SplitIterator} which splits the input around the occurrences of the specified non-empty literal.
+     *
+     * @param literal the literal
+     * @param input   the input
+     * @param limit   the limit, as in {@code Pattern.split(CharSequence, int)}
+     * @return a {@code SplitIterator} which splits the input around the occurrences of the specified literal
+     */
+    static SplitIterator literal(final String literal, final CharSequence input, final int limit) {
+        return new SplitIterator(input, limit) {
+            @Override
+            protected boolean findDelimiter() {
+                final int index = indexOf(input, literal, end);
+                if (index == -1)
+                    return false;
+                start = index;
+                end = index + literal.length();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Attempts to find the next delimiter, setting {@link #start} and {@link #end}.
+     *
+     * @return {@code true} if a delimiter was found
+     */
+    protected abstract boolean findDelimiter();
+
+    @Override
+    protected CharSequence computeNext() {
+        if (limit != 0)
+            return piece();
+
+        if (pendingEmpty > 0) {
+            pendingEmpty--;
+            return new CharSlice(input, 0, 0);
+        }
+        if (next != null) {
+            final CharSequence piece = next;
+            next = null;
+            return piece;
+        }
+
+        for (;;) {
+            final CharSequence piece = piece();
+            if (piece == null) // discard the trailing empty pieces
+                return null;
+            if (piece.length() == 0 && split) {
+                pendingEmpty++;
+                continue;
+            }
+            if (pendingEmpty == 0)
+                return piece;
+            next = piece;
+            pendingEmpty--;
+            return new CharSlice(input, 0, 0);
+        }
+    }
+
+    /*
+     * Returns the next piece, or calls endOfData() and returns null once the input is exhausted.
+     */
+    private CharSequence piece() {
+        if (finished) {
+            endOfData();
+            return null;
+        }
+
+        while (limit <= 0 || pieces < limit - 1) {
+            if (!findDelimiter())
+                break;
+            if (position == 0 && start == 0 && end == 0) // a zero-width match at the beginning never produces a piece
+                continue;
+            final CharSequence piece = new CharSlice(input, position, start);
+            position = end;
+            pieces++;
+            split = true;
+            return piece;
+        }
+
+        finished = true;
+        return new CharSlice(input, position, input.length());
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified non-empty literal in the input at or after the specified
+     * index, or -1.
+     *
+     * @param input   the input
+     * @param literal the literal
+     * @param from    the index to start from
+     * @return the index of the first occurrence of the literal, or -1
+     */
+    static int indexOf(final CharSequence input, final String literal, final int from) {
+        if (input instanceof String)
+            return ((String) input).indexOf(literal, from);
+
+        final char first = literal.charAt(0);
+        final int max = input.length() - literal.length();
+        for (int i = from; i <= max; i++)
+            if (input.charAt(i) == first) {
+                int j = 1;
+                while (j < literal.length() && input.charAt(i + j) == literal.charAt(j))
+                    j++;
+                if (j == literal.length())
+                    return i;
+            }
+        return -1;
+    }
+
+}
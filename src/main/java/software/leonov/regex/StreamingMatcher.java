@@ -0,0 +1,365 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.time.Duration;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * Finds the matches of a regular-expression in a stream of characters, which is read a chunk at a time into a window of
+ * bounded size, so that inputs much larger than the available memory can be searched.
+ * <p>
+ * The expression is analyzed, in the syntax of the {@link java.util.regex.Pattern} class, to bound the part of the input
+ * a match attempt may examine: either the length of its matches is bounded, as in {@code \d{4}-\d{2}-\d{2}}, or its
+ * matches cannot contain a {@code '\n'}, as in {@code ERROR: .*}. The window is searched by the engine of the expression
+ * and a match is reported only once the window extends beyond everything its match attempt may have examined, otherwise
+ * more input is read and the search is repeated. Matches which straddle the boundary between two chunks are therefore
+ * found exactly as they would be found in the entire input, and the offsets returned by this class are relative to the
+ * beginning of the stream.
+ * <p>
+ * Engines which read only the characters of the match itself, such as the dk.brics automaton and RE2J for expressions
+ * without boundary assertions, search the window from the end of the previous match. For expressions with lookbehind,
+ * word boundary or {@code ^} assertions a bounded number of preceding characters is kept in the window and the engine is
+ * asked to start its search after them, which is supported by the {@code java.util.regex}, RE2J, Joni, JRegex and TCL
+ * engines.
+ * <p>
+ * Expressions whose matches may be arbitrarily long and contain line terminators, such as {@code (?s)BEGIN.*END}, and
+ * expressions which depend on the start of the input, such as {@code \A} or {@code ^} without the
+ * {@link RegexOption#MULTILINE MULTILINE} option, are not supported. A match which does not fit in the window, such as a
+ * line longer than the window for {@code ERROR: .*}, causes an {@code IllegalStateException}.
+ * <p>
+ * Instances of this class are not safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+public final class StreamingMatcher implements Closeable {
+
+    /**
+     * The default size of the window, in characters.
+     */
+    public static final int DEFAULT_WINDOW = 1 << 16;
+
+    private final RegularExpression regex;
+    private final Reader reader;
+    private final MatchBounds bounds;
+    private final int reach;
+
+    private final char[] buffer;
+    private int limit = 0;
+    private long base = 0;
+    private boolean eof = false;
+
+    private long position = 0;
+    private StringMatcher<?> matcher = null;
+    private long offset = 0;
+    private boolean match = false;
+
+    private StreamingMatcher(final RegularExpression regex, final MatchBounds bounds, final Reader reader, final int window) {
+        this.regex = regex;
+        this.bounds = bounds;
+        this.reader = reader;
+        reach = bounds.reach();
+        buffer = new char[window];
+    }
+
+    /**
+     * Returns a {@code StreamingMatcher} which finds the matches of the specified expression in the characters read from
+     * the given reader, using a window of {@link #DEFAULT_WINDOW} characters.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param reader  the reader
+     * @return a {@code StreamingMatcher} which finds the matches of the specified expression in the given reader
+     * @throws IllegalArgumentException if the expression cannot be searched a window at a time
+     */
+    public static StreamingMatcher of(final RegularExpression regex, final Set<RegexOption> options, final Reader reader) {
+        return of(regex, options, reader, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Returns a {@code StreamingMatcher} which finds the matches of the specified expression in the characters read from
+     * the given reader, using a window of the specified size.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param reader  the reader
+     * @param window  the size of the window, in characters
+     * @return a {@code StreamingMatcher} which finds the matches of the specified expression in the given reader
+     * @throws IllegalArgumentException if the expression cannot be searched a window at a time or if {@code window} is not
+     *                                  positive
+     */
+    public static StreamingMatcher of(final RegularExpression regex, final Set<RegexOption> options, final Reader reader, final int window) {
+        checkNotNull(regex, "regex == null");
+        checkNotNull(options, "options == null");
+        checkNotNull(reader, "reader == null");
+        checkArgument(window > 0, "window < 1");
+
+        final MatchBounds bounds = MatchBounds.of(RegexParser.parse(regex.pattern(), options));
+        checkArgument(!bounds.anchoredAtStart, "%s depends on the start of the input", regex.pattern());
+        checkArgument(bounds.isBounded(), "%s may match an unbounded number of characters, including line terminators", regex.pattern());
+        checkArgument(bounds.lookbehind < window, "%s may examine more characters before a match than fit in the window", regex.pattern());
+        return new StreamingMatcher(regex, bounds, reader, window);
+    }
+
+    /**
+     * Returns a {@code StreamingMatcher} which finds the matches of the specified expression in the bytes read from the
+     * given channel, decoded with the specified charset. Malformed and unmappable input is replaced.
+     *
+     * @param regex   the expression
+     * @param options the match options with which the expression was compiled
+     * @param channel the channel
+     * @param charset the charset of the bytes read from the channel
+     * @param window  the size of the window, in characters
+     * @return a {@code StreamingMatcher} which finds the matches of the specified expression in the given channel
+     * @throws IllegalArgumentException if the expression cannot be searched a window at a time or if {@code window} is not
+     *                                  positive
+     */
+    public static StreamingMatcher of(final RegularExpression regex, final Set<RegexOption> options, final ReadableByteChannel channel, final Charset charset, final int window) {
+        checkNotNull(channel, "channel == null");
+        checkNotNull(charset, "charset == null");
+        return of(regex, options, Channels.newReader(channel, charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE), -1), window);
+    }
+
+    /**
+     * Attempts to find the next match in the stream, reading as much input as necessary.
+     *
+     * @return {@code true} if, and only if, a match was found before the end of the stream
+     * @throws IOException            if an I/O error occurs
+     * @throws IllegalStateException  if a match attempt may examine more characters than fit in the window
+     * @throws InterruptedException   if current thread is interrupted (the interrupted status of the current thread is
+     *                                cleared when this exception is thrown)
+     * @throws Throwable              if any other errors occurs
+     */
+    public boolean find() throws Throwable {
+        return find(Duration.ZERO);
+    }
+
+    /**
+     * Attempts to find the next match in the stream, reading as much input as necessary and spending at most
+     * {@code duration} time on each match operation performed on the window. If the specified duration is exceeded this
+     * method will throw a {@code TimeoutException}.
+     *
+     * @param duration the time to wait for each match operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return {@code true} if, and only if, a match was found before the end of the stream
+     * @throws IOException            if an I/O error occurs
+     * @throws IllegalStateException  if a match attempt may examine more characters than fit in the window
+     * @throws TimeoutException       if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException   if current thread is interrupted (the interrupted status of the current thread is
+     *                                cleared when this exception is thrown)
+     * @throws Throwable              if any other errors occurs
+     */
+    public boolean find(final Duration duration) throws Throwable {
+        checkNotNull(duration, "duration == null");
+        match = false;
+
+        while (true) {
+            final boolean found;
+            if (matcher == null) {
+                fill();
+                if (position > base + limit) // an empty match at the end of the stream
+                    return false;
+                final int start = (int) (position - base);
+                final int view = Math.max(0, start - bounds.lookbehind);
+                offset = base + view;
+                matcher = regex.matcher(CharBuffer.wrap(buffer, view, limit - view));
+                found = start > view ? matcher.find(start - view, duration) : matcher.find(duration);
+            } else
+                found = matcher.find(duration);
+
+            if (found) {
+                final long start = offset + matcher.start();
+                if (eof || resolved(start)) {
+                    final long end = offset + matcher.end();
+                    position = end == start ? end + 1 : end;
+                    match = true;
+                    return true;
+                }
+                position = Math.max(position, Math.min(start, firstUnresolved()));
+            } else if (eof) {
+                position = base + limit + 1;
+                return false;
+            } else
+                position = Math.max(position, firstUnresolved());
+
+            matcher = null;
+        }
+    }
+
+    /**
+     * Returns the offset of the first character of the previous match, relative to the beginning of the stream.
+     *
+     * @return the offset of the first character of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public long start() {
+        checkState(match, "no match available");
+        return offset + matcher.start();
+    }
+
+    /**
+     * Returns the offset of the first character of the subsequence captured by the given group during the previous match,
+     * relative to the beginning of the stream, or {@code -1} if the group did not participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the offset of the first character captured by the group, or {@code -1}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public long start(final int group) {
+        checkState(match, "no match available");
+        final int start = matcher.start(group);
+        return start < 0 ? -1 : offset + start;
+    }
+
+    /**
+     * Returns the offset after the last character of the previous match, relative to the beginning of the stream.
+     *
+     * @return the offset after the last character of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public long end() {
+        checkState(match, "no match available");
+        return offset + matcher.end();
+    }
+
+    /**
+     * Returns the offset after the last character of the subsequence captured by the given group during the previous
+     * match, relative to the beginning of the stream, or {@code -1} if the group did not participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the offset after the last character captured by the group, or {@code -1}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public long end(final int group) {
+        checkState(match, "no match available");
+        final int end = matcher.end(group);
+        return end < 0 ? -1 : offset + end;
+    }
+
+    /**
+     * Returns the text of the previous match.
+     *
+     * @return the text of the previous match
+     * @throws IllegalStateException if no match is available
+     */
+    public String group() {
+        checkState(match, "no match available");
+        return matcher.group();
+    }
+
+    /**
+     * Returns the text captured by the given group during the previous match, or {@code null} if the group did not
+     * participate in the match.
+     *
+     * @param group the index of a capturing group
+     * @return the text captured by the given group, or {@code null}
+     * @throws IllegalStateException     if no match is available
+     * @throws IndexOutOfBoundsException if there is no capturing group with the given index
+     */
+    public String group(final int group) {
+        checkState(match, "no match available");
+        return matcher.group(group);
+    }
+
+    /**
+     * Returns the number of capturing groups in the expression.
+     *
+     * @return the number of capturing groups in the expression
+     */
+    public int groupCount() {
+        return regex.matcher("").groupCount();
+    }
+
+    /**
+     * Returns the expression whose matches are found by this {@code StreamingMatcher}.
+     *
+     * @return the expression whose matches are found by this {@code StreamingMatcher}
+     */
+    public RegularExpression pattern() {
+        return regex;
+    }
+
+    /**
+     * Closes the underlying reader or channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /*
+     * Discards the characters which can no longer be examined and reads until the window is full or the stream ends.
+     */
+    private void fill() throws IOException {
+        final long keep = Math.max(base, Math.min(position, base + limit) - bounds.lookbehind);
+        final int shift = (int) (keep - base);
+        if (shift == 0 && limit == buffer.length)
+            throw new IllegalStateException(String.format("%s may examine more than the window of %s characters at offset %s", regex.pattern(), buffer.length, position));
+
+        System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+        limit -= shift;
+        base = keep;
+
+        while (limit < buffer.length && !eof) {
+            final int n = reader.read(buffer, limit, buffer.length - limit);
+            if (n < 0)
+                eof = true;
+            else
+                limit += n;
+        }
+    }
+
+    /*
+     * Whether the window contains everything a match attempt at the specified offset may examine.
+     */
+    private boolean resolved(final long start) {
+        final long end = base + limit;
+        if (reach != MatchBounds.UNBOUNDED && start + reach < end)
+            return true;
+        if (bounds.spansLines)
+            return false;
+        for (int i = (int) (start - base); i + MatchBounds.MARGIN < limit; i++)
+            if (buffer[i] == '\n')
+                return true;
+        return false;
+    }
+
+    /*
+     * The smallest offset at which a match attempt may examine more than the window contains.
+     */
+    private long firstUnresolved() {
+        final long end = base + limit;
+        long first = reach == MatchBounds.UNBOUNDED ? position : end - reach;
+        if (!bounds.spansLines)
+            for (int i = limit - MatchBounds.MARGIN - 1; i >= 0 && base + i >= position; i--)
+                if (buffer[i] == '\n') {
+                    first = Math.max(first, base + i + 1);
+                    break;
+                }
+        return Math.min(first, end);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(regex.pattern(), 200, "...")).add("window", buffer.length).add("position", position).toString();
+    }
+
+}
@@ -2,11 +2,25 @@ package software.leonov.regex;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Supplier;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.regex.MatchResult;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
 
 /**
  * Performs match and replace operations by interpreting a regular-expression.
@@ -26,6 +40,27 @@ public abstract class StringMatcher<T> implements MatchResult {
     protected boolean match = false;
     protected int lastAppendPosition = 0;
 
+    /**
+     * The maximum duration of every match operation, or {@code null} if match operations are only limited by the
+     * durations specified by the caller.
+     */
+    Duration timeLimit = null;
+
+    /**
+     * The prefilter consulted before the first match operation, or {@code null}.
+     */
+    Prefilter prefilter = null;
+
+    /**
+     * Whether the prefilter accepted the input, or {@code null} if it has not been consulted yet.
+     */
+    private Boolean candidate = null;
+
+    /**
+     * The instrumented expression which receives the measurements of every match operation, or {@code null}.
+     */
+    InstrumentedRegularExpression instrumentation = null;
+
     @Override
     public abstract int end();
 
@@ -47,7 +82,7 @@ public abstract class StringMatcher<T> implements MatchResult {
     @Override
     public abstract int start(final int index);
 
-    protected abstract String getInput();
+    protected abstract CharSequence getInput();
 
     /**
      * Attempts to match the entire string against the regular-expression.
@@ -78,6 +113,11 @@ public abstract class StringMatcher<T> implements MatchResult {
     /**
      * Spends at most {@code duration} time attempting to match the entire string against the regular-expression. If the
      * specified duration is exceeded this method will throw a {@code TimeoutException}.
+     * <p>
+     * The operation runs on the calling thread. Engines which read their input through a {@code CharSequence} check the
+     * deadline themselves while matching; for all other engines the deadline is enforced by the shared {@link Watchdog},
+     * which interrupts the calling thread once the specified duration elapses.
+     * Engines without the {@link Capability#INTERRUPTIBLE} capability may not notice the interrupt.
      * 
      * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
      *                 to wait forever
@@ -88,7 +128,7 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public boolean matches(final Duration duration) throws Throwable {
-        return resultOf(matches, duration);
+        return resultOf(MetricsSink.Operation.MATCHES, this::matchesImpl, duration);
     }
 
     /**
@@ -106,6 +146,11 @@ public abstract class StringMatcher<T> implements MatchResult {
     /**
      * Spends at most {@code duration} time attempting to find the next substring of the input string that matches the
      * regular-expression. If the specified duration is exceeded this method will throw a {@code TimeoutException}.
+     * <p>
+     * The operation runs on the calling thread. Engines which read their input through a {@code CharSequence} check the
+     * deadline themselves while matching; for all other engines the deadline is enforced by the shared {@link Watchdog},
+     * which interrupts the calling thread once the specified duration elapses.
+     * Engines without the {@link Capability#INTERRUPTIBLE} capability may not notice the interrupt.
      * 
      * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
      *                 to wait forever
@@ -116,7 +161,134 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public boolean find(final Duration duration) throws Throwable {
-        return resultOf(find, duration);
+        return resultOf(MetricsSink.Operation.FIND, this::findImpl, duration);
+    }
+
+    /**
+     * Resets this matcher and then spends at most {@code duration} time attempting to find the next match which starts at
+     * or after the specified index. Unlike searching a {@code subSequence} of the input, the characters preceding the index
+     * remain visible to lookbehind and boundary assertions. Subsequent calls to {@link #find()} continue from the end of
+     * the match.
+     * 
+     * @param from     the index at which to start the search
+     * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
+     *                 to wait forever
+     * @return {@code true} if, and only if, a substring of the input string starting at or after {@code from} is a match
+     * @throws UnsupportedOperationException if the engine cannot start a search at an arbitrary index
+     * @throws TimeoutException              if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException          if current thread is interrupted (the interrupted status of the current thread
+     *                                       is cleared when this exception is thrown)
+     * @throws Throwable                     if any other errors occurs
+     */
+    boolean find(final int from, final Duration duration) throws Throwable {
+        checkArgument(from >= 0, "from < 0");
+        reset();
+        return resultOf(MetricsSink.Operation.FIND, () -> findImpl(from), duration);
+    }
+
+    /**
+     * Attempts to find the next match which starts at or after the specified index, as described in
+     * {@link #find(int, Duration)}. Engines which can start a search at an arbitrary index override this method, the
+     * default implementation throws an {@code UnsupportedOperationException}.
+     * 
+     * @param from the index at which to start the search
+     * @return {@code true} if, and only if, a substring of the input string starting at or after {@code from} is a match
+     */
+    boolean findImpl(final int from) {
+        throw new UnsupportedOperationException(pattern().getClass().getSimpleName() + " cannot start a search at an arbitrary index");
+    }
+
+    /**
+     * Returns the length of the input reported to the {@link MetricsSink}. Matchers whose input is not a
+     * {@code CharSequence} override this method.
+     * 
+     * @return the length of the input
+     */
+    int inputLength() {
+        return getInput().length();
+    }
+
+    /**
+     * Returns an immutable snapshot of the current match.
+     * <p>
+     * The snapshot records the offsets of the match and of its groups. The text of the groups is read from the input
+     * string when it is requested, so the input must not change while the snapshot is in use. Snapshots are safe for use
+     * by multiple concurrent threads.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#toMatchResult() Matcher.toMatchResult()}.
+     * 
+     * @throws IllegalStateException if no match is available
+     * @return an immutable snapshot of the current match
+     */
+    public MatchResult toMatchResult() {
+        return MatchSnapshot.of(this);
+    }
+
+    /**
+     * Returns an iterator over the {@link #toMatchResult() snapshots} of the remaining matches, starting from the current
+     * search position.
+     * <p>
+     * Each call to {@code hasNext()} performs at most one {@link #find()} operation. The matcher should not be used by
+     * other means while the iteration is in progress. Since the {@code Iterator} interface cannot throw checked
+     * exceptions, a {@code TimeoutException} is rethrown as an {@code UncheckedTimeoutException} and an
+     * {@code InterruptedException} is rethrown as a {@code CancellationException} after restoring the interrupted status
+     * of the current thread.
+     * 
+     * @return an iterator over the snapshots of the remaining matches
+     */
+    public Iterator<MatchResult> resultIterator() {
+        return resultIterator(Duration.ZERO);
+    }
+
+    /**
+     * Returns an iterator over the {@link #toMatchResult() snapshots} of the remaining matches, starting from the current
+     * search position, spending at most {@code duration} time on each find operation.
+     * <p>
+     * See {@link #resultIterator()} for details.
+     * 
+     * @param duration the time to wait for each find operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return an iterator over the snapshots of the remaining matches
+     */
+    public Iterator<MatchResult> resultIterator(final Duration duration) {
+        checkNotNull(duration, "duration == null");
+        checkArgument(!duration.isNegative(), "duration < 0");
+
+        return new AbstractIterator<MatchResult>() {
+            @Override
+            protected MatchResult computeNext() {
+                return findUnchecked(duration) ? toMatchResult() : endOfData();
+            }
+        };
+    }
+
+    /**
+     * Returns a lazy sequential stream of the {@link #toMatchResult() snapshots} of the remaining matches, starting from
+     * the current search position.
+     * <p>
+     * Matches are found one at a time as the stream is consumed. The snapshots may be processed by parallel stream stages
+     * or handed to other threads. See {@link #resultIterator()} for details.
+     * <p>
+     * This method is modeled after {@code Matcher.results()}.
+     * 
+     * @return a lazy stream of the snapshots of the remaining matches
+     */
+    public Stream<MatchResult> results() {
+        return results(Duration.ZERO);
+    }
+
+    /**
+     * Returns a lazy sequential stream of the {@link #toMatchResult() snapshots} of the remaining matches, starting from
+     * the current search position, spending at most {@code duration} time on each find operation.
+     * <p>
+     * See {@link #results()} for details.
+     * 
+     * @param duration the time to wait for each find operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return a lazy stream of the snapshots of the remaining matches
+     */
+    public Stream<MatchResult> results(final Duration duration) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(resultIterator(duration), Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     /**
@@ -134,6 +306,43 @@ public abstract class StringMatcher<T> implements MatchResult {
         lastAppendPosition = 0;
     }
 
+    /**
+     * Resets this matcher and replaces its input with the specified character sequence.
+     * <p>
+     * A thread which matches the same regular-expression against many inputs can keep a single matcher and reset it with
+     * every input, instead of obtaining a new matcher from {@link RegularExpression#matcher(CharSequence)} each time. The
+     * underlying matcher is reused if the engine allows it; engines whose matchers are bound to a single input replace
+     * the {@link #delegate() delegate}. Any time limit, prefilter or instrumentation applied to this matcher by a
+     * wrapping {@code RegularExpression} remains in effect, and the prefilter is consulted again for the new input.
+     * <p>
+     * The input is not copied unless the engine cannot read a {@code CharSequence}. Its contents must not change while the
+     * matcher is in use.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#reset(CharSequence) Matcher.reset(CharSequence)}.
+     * 
+     * @param input the new input
+     * @return this {@code StringMatcher} object
+     * @throws UnsupportedOperationException if this matcher cannot replace its input
+     */
+    public StringMatcher<T> reset(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        resetImpl(input);
+        candidate = null;
+        reset();
+        return this;
+    }
+
+    /**
+     * Replaces the input of the underlying matcher with the specified character sequence, as described in
+     * {@link #reset(CharSequence)}. Extending classes which can replace their input override this method, the default
+     * implementation throws an {@code UnsupportedOperationException}.
+     * 
+     * @param input the new input
+     */
+    protected void resetImpl(final CharSequence input) {
+        throw new UnsupportedOperationException(pattern().getClass().getSimpleName() + " cannot replace the input of a matcher");
+    }
+
     /**
      * Returns the underlying <i>matcher</i> implementation.
      * <p>
@@ -178,46 +387,28 @@ public abstract class StringMatcher<T> implements MatchResult {
         checkNotNull(replacement, "replacement == null");
         checkArgument(match, "no match available");
 
-        sb.append(getInput().substring(lastAppendPosition, start()));
-        lastAppendPosition = end();
-
-        int index = 0;
-        final StringBuilder result = new StringBuilder();
-
-        while (index < replacement.length()) {
-            char ch = replacement.charAt(index);
-            if (ch == '$') {
-                index++;
-                int groupId = getIntValue(replacement.charAt(index++));
-                checkArgument(groupId >= 0 && groupId <= 9, "illegal group reference");
-
-                while (index < replacement.length()) {
-                    int n = getIntValue(replacement.charAt(index));
-
-                    if (n < 0 || n > 9)
-                        break;
-
-                    int count = groupId * 10 + n;
-
-                    if (count < groupCount()) {
-                        groupId = count;
-                        index++;
-                    } else
-                        break;
-                }
+        return appendReplacement(sb, CompiledReplacement.compile(replacement));
+    }
 
-                if (group(groupId) != null)
-                    result.append(group(groupId));
+    /**
+     * Reads the input string and appends to the specified string builder the substring starting from the last append
+     * position to the last character immediately preceding the previous match, followed by the given replacement.
+     * <p>
+     * The text of the groups referenced by the replacement is appended directly from the input string. This method is
+     * otherwise identical to {@link #appendReplacement(StringBuilder, String)}.
+     * 
+     * @param sb          the target string builder
+     * @param replacement the compiled replacement
+     * @return this {@code StringMatcher} object
+     */
+    public StringMatcher<T> appendReplacement(final StringBuilder sb, final CompiledReplacement replacement) {
+        checkNotNull(sb, "sb == null");
+        checkNotNull(replacement, "replacement == null");
+        checkArgument(match, "no match available");
 
-            } else if (ch == '\\') {
-                index++;
-                result.append(replacement.charAt(index++));
-            } else {
-                result.append(ch);
-                index++;
-            }
-        }
-        sb.append(result);
+        sb.append(getInput(), lastAppendPosition, start());
+        lastAppendPosition = end();
+        replacement.appendTo(this, sb);
         return this;
     }
 
@@ -236,7 +427,7 @@ public abstract class StringMatcher<T> implements MatchResult {
      */
     public String appendTail(final StringBuilder sb) {
         checkNotNull(sb, "sb == null");
-        return sb.append(getInput().substring(lastAppendPosition)).toString();
+        return sb.append(getInput(), lastAppendPosition, getInput().length()).toString();
     }
 
     /**
@@ -254,13 +445,22 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public String replaceAll(final String replacement) throws Throwable {
-        checkNotNull(replacement, "replacement == null");
-        reset();
-        final StringBuilder sb = new StringBuilder();
-        while (find())
-            appendReplacement(sb, replacement);
-        appendTail(sb);
-        return sb.toString();
+        return replaceAll(CompiledReplacement.compile(replacement));
+    }
+
+    /**
+     * Replaces every substring of the input string that matches the regular expression with the given replacement.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#replaceAll(String) Matcher.replaceAll(String)}.
+     * 
+     * @param replacement the compiled replacement
+     * @return the string constructed by replacing each match with the replacement
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceAll(final CompiledReplacement replacement) throws Throwable {
+        return replaceAll(replacement, Duration.ZERO);
     }
 
     /**
@@ -283,6 +483,26 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public String replaceAll(final String replacement, final Duration duration) throws Throwable {
+        return replaceAll(CompiledReplacement.compile(replacement), duration);
+    }
+
+    /**
+     * Spends at most {@code duration} time attempting to replace every substring of the input string that matches the
+     * regular-expression with the given replacement. If the specified duration is exceeded this method will throw a
+     * {@code TimeoutException}.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#replaceAll(String) Matcher.replaceAll(String)}.
+     * 
+     * @param replacement the compiled replacement
+     * @param duration    the time to wait for the operation to complete before abandoning it, a value of {@code 0}
+     *                    indicates to wait forever
+     * @return the string constructed by replacing each match with the replacement
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceAll(final CompiledReplacement replacement, final Duration duration) throws Throwable {
         checkNotNull(replacement, "replacement == null");
         reset();
         final StringBuilder sb = new StringBuilder();
@@ -308,13 +528,22 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public String replaceFirst(final String replacement) throws Throwable {
-        checkNotNull(replacement, "replacement == null");
-        final StringBuilder sb = new StringBuilder();
-        reset();
-        if (find())
-            appendReplacement(sb, replacement);
-        appendTail(sb);
-        return sb.toString();
+        return replaceFirst(CompiledReplacement.compile(replacement));
+    }
+
+    /**
+     * Replaces the first substring of the input string that matches the regular expression with the given replacement.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#replaceFirst(String) Matcher.replaceFirst(String)}.
+     * 
+     * @param replacement the compiled replacement
+     * @return the string constructed by replacing the first match with the replacement
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceFirst(final CompiledReplacement replacement) throws Throwable {
+        return replaceFirst(replacement, Duration.ZERO);
     }
 
     /**
@@ -337,6 +566,26 @@ public abstract class StringMatcher<T> implements MatchResult {
      * @throws Throwable            if any other errors occurs
      */
     public String replaceFirst(final String replacement, final Duration duration) throws Throwable {
+        return replaceFirst(CompiledReplacement.compile(replacement), duration);
+    }
+
+    /**
+     * Spends at most {@code duration} time attempting to replace the first substring of the input string that matches the
+     * regular-expression with the given replacement. If the specified duration is exceeded this method will throw a
+     * {@code TimeoutException}.
+     * <p>
+     * This method is modeled after {@link java.util.regex.Matcher#replaceFirst(String) Matcher.replaceFirst(String)}.
+     * 
+     * @param replacement the compiled replacement
+     * @param duration    the time to wait for the operation to complete before abandoning it, a value of {@code 0}
+     *                    indicates to wait forever
+     * @return the string constructed by replacing the first match with the replacement
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceFirst(final CompiledReplacement replacement, final Duration duration) throws Throwable {
         checkNotNull(replacement, "replacement == null");
         final StringBuilder sb = new StringBuilder();
         reset();
@@ -346,61 +595,307 @@ public abstract class StringMatcher<T> implements MatchResult {
         return sb.toString();
     }
 
-    private final MatchOperation matches = new MatchOperation(() -> matchesImpl());
-    private final MatchOperation find = new MatchOperation(() -> findImpl());
+    /**
+     * Replaces every substring of the input string that matches the regular expression with the result of applying the
+     * given replacer function to the match.
+     * <p>
+     * The replacer function is passed this {@code StringMatcher}, which reflects the current match only for the duration
+     * of the call. The function should not modify the state of the matcher. The string returned by the replacer function
+     * is appended literally; group references are not interpreted.
+     * <p>
+     * This method is modeled after {@code Matcher.replaceAll(Function)}.
+     * 
+     * @param replacer the function to be applied to each match
+     * @return the string constructed by replacing each match with the result of the replacer function
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceAll(final Function<? super MatchResult, String> replacer) throws Throwable {
+        return replaceAll(replacer, Duration.ZERO);
+    }
+
+    /**
+     * Spends at most {@code duration} time attempting to replace every substring of the input string that matches the
+     * regular-expression with the result of applying the given replacer function to the match. If the specified duration
+     * is exceeded this method will throw a {@code TimeoutException}.
+     * <p>
+     * The duration limits each individual match operation, not the time spent in the replacer function. See
+     * {@link #replaceAll(Function)} for details.
+     * 
+     * @param replacer the function to be applied to each match
+     * @param duration the time to wait for each match operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return the string constructed by replacing each match with the result of the replacer function
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceAll(final Function<? super MatchResult, String> replacer, final Duration duration) throws Throwable {
+        return replace(replacer, new StringBuilder(), duration, true).toString();
+    }
+
+    /**
+     * Replaces every substring of the input string that matches the regular expression with the result of applying the
+     * given replacer function to the match, appending the result to the specified target.
+     * <p>
+     * The output is written to the target as the input is matched, so the result is never held in memory in its entirety
+     * when the target is a {@code Writer}. See {@link #replaceAll(Function)} for details.
+     * 
+     * @param <A>      the type of the target
+     * @param replacer the function to be applied to each match
+     * @param target   the target to append the result to
+     * @return the specified target
+     * @throws IOException          if an I/O error occurs while appending to the target
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public <A extends Appendable> A replaceAll(final Function<? super MatchResult, String> replacer, final A target) throws Throwable {
+        return replaceAll(replacer, target, Duration.ZERO);
+    }
 
-    private final class MatchOperation implements Runnable {
+    /**
+     * Spends at most {@code duration} time attempting to replace every substring of the input string that matches the
+     * regular-expression with the result of applying the given replacer function to the match, appending the result to
+     * the specified target. If the specified duration is exceeded this method will throw a {@code TimeoutException}, and
+     * the target will contain the output written up to the last successful match.
+     * <p>
+     * See {@link #replaceAll(Function, Appendable)} for details.
+     * 
+     * @param <A>      the type of the target
+     * @param replacer the function to be applied to each match
+     * @param target   the target to append the result to
+     * @param duration the time to wait for each match operation to complete before abandoning it, a value of {@code 0}
+     *                 indicates to wait forever
+     * @return the specified target
+     * @throws IOException          if an I/O error occurs while appending to the target
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public <A extends Appendable> A replaceAll(final Function<? super MatchResult, String> replacer, final A target, final Duration duration) throws Throwable {
+        return replace(replacer, target, duration, true);
+    }
 
-        private final Supplier<Boolean> supplier;
-        private boolean result = false;
-        private Throwable t = null;
+    /**
+     * Replaces the first substring of the input string that matches the regular expression with the result of applying
+     * the given replacer function to the match.
+     * <p>
+     * See {@link #replaceAll(Function)} for details.
+     * <p>
+     * This method is modeled after {@code Matcher.replaceFirst(Function)}.
+     * 
+     * @param replacer the function to be applied to the match
+     * @return the string constructed by replacing the first match with the result of the replacer function
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceFirst(final Function<? super MatchResult, String> replacer) throws Throwable {
+        return replaceFirst(replacer, Duration.ZERO);
+    }
 
-        public MatchOperation(final Supplier<Boolean> supplier) {
-            this.supplier = supplier;
+    /**
+     * Spends at most {@code duration} time attempting to replace the first substring of the input string that matches the
+     * regular-expression with the result of applying the given replacer function to the match. If the specified duration
+     * is exceeded this method will throw a {@code TimeoutException}.
+     * <p>
+     * See {@link #replaceAll(Function)} for details.
+     * 
+     * @param replacer the function to be applied to the match
+     * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
+     *                 to wait forever
+     * @return the string constructed by replacing the first match with the result of the replacer function
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public String replaceFirst(final Function<? super MatchResult, String> replacer, final Duration duration) throws Throwable {
+        return replace(replacer, new StringBuilder(), duration, false).toString();
+    }
+
+    /**
+     * Replaces the first substring of the input string that matches the regular expression with the result of applying
+     * the given replacer function to the match, appending the result to the specified target.
+     * <p>
+     * See {@link #replaceAll(Function, Appendable)} for details.
+     * 
+     * @param <A>      the type of the target
+     * @param replacer the function to be applied to the match
+     * @param target   the target to append the result to
+     * @return the specified target
+     * @throws IOException          if an I/O error occurs while appending to the target
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public <A extends Appendable> A replaceFirst(final Function<? super MatchResult, String> replacer, final A target) throws Throwable {
+        return replaceFirst(replacer, target, Duration.ZERO);
+    }
+
+    /**
+     * Spends at most {@code duration} time attempting to replace the first substring of the input string that matches the
+     * regular-expression with the result of applying the given replacer function to the match, appending the result to the
+     * specified target. If the specified duration is exceeded this method will throw a {@code TimeoutException}.
+     * <p>
+     * See {@link #replaceAll(Function, Appendable)} for details.
+     * 
+     * @param <A>      the type of the target
+     * @param replacer the function to be applied to the match
+     * @param target   the target to append the result to
+     * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
+     *                 to wait forever
+     * @return the specified target
+     * @throws IOException          if an I/O error occurs while appending to the target
+     * @throws TimeoutException     if the time out has been exceeded while attempting to find the next match
+     * @throws InterruptedException if current thread is interrupted (the interrupted status of the current thread is
+     *                              cleared when this exception is thrown)
+     * @throws Throwable            if any other errors occurs
+     */
+    public <A extends Appendable> A replaceFirst(final Function<? super MatchResult, String> replacer, final A target, final Duration duration) throws Throwable {
+        return replace(replacer, target, duration, false);
+    }
+
+    private <A extends Appendable> A replace(final Function<? super MatchResult, String> replacer, final A target, final Duration duration, final boolean all) throws Throwable {
+        checkNotNull(replacer, "replacer == null");
+        checkNotNull(target, "target == null");
+        reset();
+
+        final CharSequence input = getInput();
+        int position = 0;
+        while (find(duration)) {
+            final int start = start();
+            final int end = end();
+            final String replacement = replacer.apply(this);
+            checkState(replacement != null, "replacer returned null");
+            target.append(input, position, start).append(replacement);
+            position = end;
+            if (!all)
+                break;
         }
+        target.append(input, position, input.length());
+        return target;
+    }
 
-        @Override
-        public void run() {
-            try {
-                result = supplier.get();
-            } catch (final Throwable x) {
-                t = x;
-            }
+    /**
+     * Attempts to find the next match, rethrowing checked exceptions as described in {@link #resultIterator()}.
+     * 
+     * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
+     *                 to wait forever
+     * @return {@code true} if, and only if, a substring of the input string is a match
+     */
+    boolean findUnchecked(final Duration duration) {
+        return unchecked(MetricsSink.Operation.FIND, this::findImpl, duration);
+    }
+
+    /**
+     * Attempts to match the entire input, rethrowing checked exceptions as described in {@link #resultIterator()}.
+     * 
+     * @param duration the time to wait for the operation to complete before abandoning it, a value of {@code 0} indicates
+     *                 to wait forever
+     * @return {@code true} if, and only if, the entire input string matches
+     */
+    boolean matchesUnchecked(final Duration duration) {
+        return unchecked(MetricsSink.Operation.MATCHES, this::matchesImpl, duration);
+    }
+
+    private boolean unchecked(final MetricsSink.Operation kind, final BooleanSupplier operation, final Duration duration) {
+        try {
+            return resultOf(kind, operation, duration);
+        } catch (final TimeoutException e) {
+            throw new UncheckedTimeoutException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final CancellationException cancellation = new CancellationException("match operation was interrupted");
+            cancellation.initCause(e);
+            throw cancellation;
+        } catch (final Throwable t) {
+            Throwables.throwIfUnchecked(t);
+            throw new UncheckedExecutionException(t);
         }
+    }
 
-        public boolean result() throws Throwable {
-            if (t != null)
-                throw t;
-            return result;
+    private boolean resultOf(final MetricsSink.Operation kind, final BooleanSupplier operation, final Duration requested) throws Throwable {
+        if (instrumentation == null)
+            return evaluate(operation, requested);
+
+        final long start = System.nanoTime();
+        final boolean result;
+        try {
+            result = evaluate(operation, requested);
+        } catch (final TimeoutException e) {
+            instrumentation.timedOut(kind, inputLength(), System.nanoTime() - start);
+            throw e;
         }
+        instrumentation.matched(kind, inputLength(), System.nanoTime() - start, result);
+        return result;
     }
 
-    @SuppressWarnings("deprecation")
-    private boolean resultOf(final MatchOperation operation, final Duration duration) throws Throwable {
-        checkNotNull(duration, "duration == null");
-        checkArgument(!duration.isNegative(), "duration < 0");
+    private boolean evaluate(final BooleanSupplier operation, final Duration requested) throws Throwable {
+        checkNotNull(requested, "duration == null");
+        checkArgument(!requested.isNegative(), "duration < 0");
+
+        if (prefilter != null) {
+            if (candidate == null)
+                candidate = prefilter.mayMatch(getInput());
+            if (!candidate) {
+                match = false;
+                return false;
+            }
+        }
+
+        final Duration duration = timeLimit != null && (requested.isZero() || requested.compareTo(timeLimit) > 0) ? timeLimit : requested;
+
+        if (duration.isZero())
+            try {
+                return operation.getAsBoolean();
+            } catch (final MatchInterruptedException e) {
+                match = false;
+                throw new InterruptedException();
+            }
+
+        if (Thread.interrupted())
+            throw new InterruptedException();
 
-        InterruptedException x = null;
+        final Deadline deadline = arm(duration);
 
-        final Thread t = new Thread(operation);
-        t.start();
+        boolean result = false;
+        boolean interrupted = false;
+        boolean expired;
 
         try {
-            t.join(duration.toMillis());
-        } catch (final InterruptedException e) {
-            x = e;
+            result = operation.getAsBoolean();
+        } catch (final MatchInterruptedException e) {
+            interrupted = true;
+        } finally {
+            expired = deadline.disarm();
         }
 
-        if (t.isAlive()) {
-            t.stop();
+        if (expired) {
             match = false;
-            throw x != null ? x : new TimeoutException("match operation exceeded " + duration);
+            throw new TimeoutException("match operation exceeded " + duration);
+        } else if (interrupted || Thread.interrupted()) {
+            match = false;
+            throw new InterruptedException();
         } else
-            return operation.result();
+            return result;
     }
 
-    private static int getIntValue(final int c) {
-        return c - '0';
+    /**
+     * Arms a deadline for a single timed match operation on the current thread.
+     * <p>
+     * By default the deadline is armed with the shared {@link Watchdog}. Implementations whose engine reads an
+     * {@link InterruptibleCharSequence} override this method to let the engine enforce the deadline cooperatively.
+     * 
+     * @param duration the time allowed for the match operation
+     * @return the armed deadline
+     */
+    Deadline arm(final Duration duration) {
+        return Watchdog.getDefault().arm(duration);
     }
 
 }
@@ -5,7 +5,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkPositionIndex;
 import static com.google.common.base.Preconditions.checkState;
 
+import java.time.Duration;
 import java.util.EnumSet;
+import java.util.Set;
 
 import com.basistech.tclre.ExecFlags;
 import com.basistech.tclre.HsrePattern;
@@ -14,6 +16,7 @@ import com.basistech.tclre.ReMatcher;
 import com.basistech.tclre.RePattern;
 import com.basistech.tclre.RegexException;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Sets;
 
 import software.leonov.common.base.Str;
 
@@ -82,28 +85,46 @@ public final class TCLRegularExpression implements RegularExpression {
     }
 
     /**
-     * Returns a {@code StringMatcher} object that will match the given string against this regular-expression.
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use.
+     *
+     * @param input the character sequence to use as an input
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
+     */
+    @Override
+    public StringMatcher<ReMatcher> matcher(final CharSequence input) {
+        return matcher(input, NO_EXEC_FLAGS);
+    }
+
+    /**
+     * Returns a {@code StringMatcher} object that will match the given character sequence against this regular-expression.
+     * <p>
+     * The input is not copied. Its contents must not change while the matcher is in use.
      * 
-     * @param input the string to use as an input
+     * @param input the character sequence to use as an input
      * @param flags optional flags which control the runtime behavior of {@code StringMatcher} that may include:
      *              <ul style="list-style-type:none">
      *              <li>{@link ExecFlags#LOOKING_AT LOOKING_AT}</li>
      *              <li>{@link ExecFlags#NOTBOL NOTBOL}</li>
      *              <li>{@link ExecFlags#NOTEOL NOTEOL}</li>
      *              </ul>
-     * @return a {@code StringMatcher} object that will match the given string against this regular-expression
+     * @return a {@code StringMatcher} object that will match the given character sequence against this regular-expression
      */
-    public StringMatcher<ReMatcher> matcher(final String input, final ExecFlags... flags) {
+    public StringMatcher<ReMatcher> matcher(final CharSequence input, final ExecFlags... flags) {
         checkNotNull(input, "input == null");
         checkNotNull(flags, "flags == null");
 
-        final ReMatcher matcher = pattern.matcher(input, flags);
+        final InterruptibleCharSequence interruptible = new InterruptibleCharSequence(input);
+        final ReMatcher matcher = pattern.matcher(interruptible, flags);
 
         return new StringMatcher<ReMatcher>() {
 
+            private CharSequence target = input;
+
             @Override
-            protected String getInput() {
-                return input;
+            protected CharSequence getInput() {
+                return target;
             }
 
             @Override
@@ -156,6 +177,12 @@ public final class TCLRegularExpression implements RegularExpression {
                 return match;
             }
 
+            @Override
+            boolean findImpl(final int from) {
+                match = matcher.find(from);
+                return match;
+            }
+
             @Override
             public int end(final int index) {
                 checkState(match, "no match available");
@@ -170,12 +197,24 @@ public final class TCLRegularExpression implements RegularExpression {
                 return matcher.end();
             }
 
+            @Override
+            Deadline arm(final Duration duration) {
+                return interruptible.arm(duration);
+            }
+
             @Override
             public void reset() {
                 super.reset();
                 matcher.reset();
             }
 
+            @Override
+            protected void resetImpl(final CharSequence input) {
+                target = input;
+                interruptible.reset(input);
+                matcher.reset(interruptible);
+            }
+
             @Override
             public ReMatcher delegate() {
                 return matcher;
@@ -204,4 +243,77 @@ public final class TCLRegularExpression implements RegularExpression {
         return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("flags()", flags()).toString();
     }
 
+    /**
+     * The {@link RegexEngine} backed by the Java port of the TCL Regular Expression library,
+     * registered under the name {@code "tcl"}.
+     * <p>
+     * Expressions are compiled as {@link PatternFlags#ADVANCED advanced} regular-expressions. {@link RegexOption#DOTALL}
+     * is accepted but has no effect, because TCL expressions match line terminators with {@code .} by default.
+     */
+    public static final class Engine implements RegexEngine {
+
+        private static final Set<Capability> CAPABILITIES = Sets.immutableEnumSet(Capability.ANCHORS, Capability.BACKREFERENCES, Capability.CAPTURING_GROUPS, Capability.INTERRUPTIBLE, Capability.LOOKAHEAD);
+        private static final Set<RegexOption> OPTIONS = Sets.immutableEnumSet(RegexOption.CASE_INSENSITIVE, RegexOption.COMMENTS, RegexOption.DOTALL, RegexOption.MULTILINE);
+
+        /**
+         * Creates a new {@code Engine}.
+         *
+         * @throws NoClassDefFoundError if the underlying library is not on the class path
+         */
+        public Engine() {
+            HsrePattern.class.getName(); // fail fast when loaded by the ServiceLoader
+        }
+
+        @Override
+        public String name() {
+            return "tcl";
+        }
+
+        @Override
+        public Set<Capability> capabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public Set<RegexOption> supportedOptions() {
+            return OPTIONS;
+        }
+
+        @Override
+        public TCLRegularExpression compile(final String regex, final Set<RegexOption> options) {
+            checkNotNull(regex, "regex == null");
+            checkNotNull(options, "options == null");
+
+            final EnumSet<PatternFlags> flags = EnumSet.of(PatternFlags.ADVANCED);
+
+            for (final RegexOption option : options)
+                switch (option) {
+                case CASE_INSENSITIVE:
+                    flags.add(PatternFlags.ICASE);
+                    break;
+                case COMMENTS:
+                    flags.add(PatternFlags.EXPANDED);
+                    break;
+                case DOTALL:
+                    break;
+                case MULTILINE:
+                    flags.add(PatternFlags.NLANCH);
+                    break;
+                default:
+                    throw RegexEngines.unsupported(this, option);
+                }
+
+            try {
+                return TCLRegularExpression.compile(regex, flags.toArray(new PatternFlags[flags.size()]));
+            } catch (final RegexException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name();
+        }
+    }
+
 }
@@ -0,0 +1,54 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+
+import com.google.common.base.MoreObjects;
+
+import software.leonov.common.base.Str;
+
+/**
+ * A {@code RegularExpression} whose matchers spend at most a fixed amount of time on any match operation, including the
+ * operations which are otherwise untimed, such as {@link StringMatcher#find()}. Operations which exceed the time limit
+ * throw a {@code TimeoutException}.
+ *
+ * @author Zhenya Leonov
+ */
+final class TimeLimitedRegularExpression implements RegularExpression {
+
+    private final RegularExpression delegate;
+    private final Duration timeLimit;
+
+    TimeLimitedRegularExpression(final RegularExpression delegate, final Duration timeLimit) {
+        this.delegate = delegate;
+        this.timeLimit = timeLimit;
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final String input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.timeLimit = timeLimit;
+        return matcher;
+    }
+
+    @Override
+    public StringMatcher<?> matcher(final CharSequence input) {
+        checkNotNull(input, "input == null");
+        final StringMatcher<?> matcher = delegate.matcher(input);
+        matcher.timeLimit = timeLimit;
+        return matcher;
+    }
+
+    @Override
+    public String pattern() {
+        return delegate.pattern();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("pattern()", Str.truncate(pattern(), 200, "...")).add("timeLimit", timeLimit).add("delegate", delegate).toString();
+    }
+
+}
@@ -0,0 +1,277 @@
+package software.leonov.regex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/**
+ * The union of several deterministic automata, each labeled with an identifier, which reports all the automata accepting
+ * an input in a single scan.
+ * <p>
+ * The automata are combined into one nondeterministic automaton which is determinized lazily, as the inputs are
+ * scanned: each deterministic state is the set of the combined automaton's states reachable after reading a prefix of
+ * the input, and its transitions are computed the first time they are taken. Deterministic states are shared by all
+ * scans, so the amortized cost of scanning an input is proportional to its length rather than to the number of
+ * automata. At most {@value #MAX_STATES} deterministic states are retained; once this limit is reached new states are
+ * computed on the fly without being cached.
+ * <p>
+ * Instances of this class are safe for use by multiple concurrent threads.
+ *
+ * @author Zhenya Leonov
+ */
+final class UnionAutomaton {
+
+    private static final int MAX_STATES = 10_000;
+    private static final int ASCII = 128;
+
+    /*
+     * The transitions of state s are min[i], max[i] and dest[i] for offsets[s] <= i < offsets[s + 1], sorted by min.
+     */
+    private final int[] offsets;
+    private final char[] min;
+    private final char[] max;
+    private final int[] dest;
+
+    /*
+     * The label of each accepting state, or -1.
+     */
+    private final int[] labels;
+
+    private final Dfa anchored;
+    private final Dfa unanchored;
+
+    /**
+     * Creates the union of the specified automata.
+     *
+     * @param automata the automata
+     * @param labels   the label of each automaton
+     */
+    UnionAutomaton(final List<Automaton> automata, final int[] labels) {
+        final Map<State, Integer> numbers = new IdentityHashMap<>();
+        final int[] starts = new int[automata.size()];
+        int transitions = 0;
+
+        for (int i = 0; i < automata.size(); i++) {
+            final Automaton automaton = automata.get(i);
+            starts[i] = number(automaton.getInitialState(), numbers);
+            for (final State state : automaton.getStates()) {
+                number(state, numbers);
+                transitions += state.getTransitions().size();
+            }
+        }
+
+        offsets = new int[numbers.size() + 1];
+        min = new char[transitions];
+        max = new char[transitions];
+        dest = new int[transitions];
+        this.labels = new int[numbers.size()];
+
+        final State[] states = new State[numbers.size()];
+        for (final Map.Entry<State, Integer> entry : numbers.entrySet())
+            states[entry.getValue()] = entry.getKey();
+
+        for (int i = 0; i < automata.size(); i++) {
+            final int label = labels[i];
+            for (final State state : automata.get(i).getStates())
+                this.labels[numbers.get(state)] = state.isAccept() ? label : -1;
+        }
+
+        int offset = 0;
+        for (int s = 0; s < states.length; s++) {
+            offsets[s] = offset;
+            for (final Transition transition : states[s].getSortedTransitions(false)) {
+                min[offset] = transition.getMin();
+                max[offset] = transition.getMax();
+                dest[offset] = numbers.get(transition.getDest());
+                offset++;
+            }
+        }
+        offsets[states.length] = offset;
+
+        final int[] initial = sortedUnique(starts, starts.length);
+        anchored = new Dfa(initial, null);
+        unanchored = new Dfa(initial, initial);
+    }
+
+    /**
+     * Returns the labels of the automata which accept the entire input.
+     *
+     * @param input the input
+     * @return the labels of the automata which accept the entire input
+     */
+    BitSet matches(final CharSequence input) {
+        DState state = anchored.start;
+        for (int i = 0; i < input.length() && state.states.length > 0; i++)
+            state = anchored.next(state, input.charAt(i));
+
+        final BitSet result = new BitSet();
+        for (final int label : state.labels)
+            result.set(label);
+        return result;
+    }
+
+    /**
+     * Returns the labels of the automata which accept a subsequence of the input.
+     *
+     * @param input the input
+     * @return the labels of the automata which accept a subsequence of the input
+     */
+    BitSet find(final CharSequence input) {
+        final BitSet result = new BitSet();
+        DState state = unanchored.start;
+        for (final int label : state.labels)
+            result.set(label);
+        for (int i = 0; i < input.length(); i++) {
+            state = unanchored.next(state, input.charAt(i));
+            for (final int label : state.labels)
+                result.set(label);
+        }
+        return result;
+    }
+
+    private static int number(final State state, final Map<State, Integer> numbers) {
+        final Integer number = numbers.get(state);
+        if (number != null)
+            return number;
+        numbers.put(state, numbers.size());
+        return numbers.size() - 1;
+    }
+
+    /*
+     * Returns the states of the combined automaton reachable from the specified states on the specified character.
+     */
+    private int[] step(final int[] states, final char c, final int[] restart) {
+        final int[] next = new int[states.length + (restart == null ? 0 : restart.length)];
+        int size = 0;
+
+        for (final int s : states) {
+            int lo = offsets[s];
+            int hi = offsets[s + 1] - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (c < min[mid])
+                    hi = mid - 1;
+                else if (c > max[mid])
+                    lo = mid + 1;
+                else {
+                    next[size++] = dest[mid];
+                    break;
+                }
+            }
+        }
+
+        if (restart != null) {
+            System.arraycopy(restart, 0, next, size, restart.length);
+            size += restart.length;
+        }
+        return sortedUnique(next, size);
+    }
+
+    private int[] labels(final int[] states) {
+        int count = 0;
+        final int[] result = new int[states.length];
+        for (final int s : states)
+            if (labels[s] != -1)
+                result[count++] = labels[s];
+        return sortedUnique(result, count);
+    }
+
+    private static int[] sortedUnique(final int[] values, final int size) {
+        Arrays.sort(values, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++)
+            if (unique == 0 || values[i] != values[unique - 1])
+                values[unique++] = values[i];
+        return Arrays.copyOf(values, unique);
+    }
+
+    /*
+     * A state of the lazily determinized automaton. Transitions are cached in a racy but safe manner: a DState is
+     * immutable apart from its transition caches, and any DState read from a cache is fully constructed.
+     */
+    private static final class DState {
+
+        private final int[] states;
+        private final int[] labels;
+        private final DState[] ascii = new DState[ASCII];
+        private final ConcurrentMap<Character, DState> other = new ConcurrentHashMap<>();
+
+        private DState(final int[] states, final int[] labels) {
+            this.states = states;
+            this.labels = labels;
+        }
+    }
+
+    private static final class Key {
+
+        private final int[] states;
+        private final int hash;
+
+        private Key(final int[] states) {
+            this.states = states;
+            hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && Arrays.equals(states, ((Key) obj).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /*
+     * A lazily determinized view of the combined automaton. An unanchored view restarts every automaton at each position
+     * of the input.
+     */
+    private final class Dfa {
+
+        private final int[] restart;
+        private final ConcurrentMap<Key, DState> cache = new ConcurrentHashMap<>();
+        private final DState start;
+
+        private Dfa(final int[] initial, final int[] restart) {
+            this.restart = restart;
+            start = intern(initial);
+        }
+
+        private DState next(final DState state, final char c) {
+            DState next = c < ASCII ? state.ascii[c] : state.other.get(c);
+            if (next != null)
+                return next;
+
+            next = intern(step(state.states, c, restart));
+            if (cache.size() < MAX_STATES) {
+                if (c < ASCII)
+                    state.ascii[c] = next;
+                else
+                    state.other.put(c, next);
+            }
+            return next;
+        }
+
+        private DState intern(final int[] states) {
+            final Key key = new Key(states);
+            final DState state = cache.get(key);
+            if (state != null)
+                return state;
+            final DState created = new DState(states, labels(states));
+            if (cache.size() >= MAX_STATES)
+                return created;
+            final DState previous = cache.putIfAbsent(key, created);
+            return previous == null ? created : previous;
+        }
+    }
+
+}
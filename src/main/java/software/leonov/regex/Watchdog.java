@@ -0,0 +1,159 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Enforces the time limits of timed {@link StringMatcher} operations.
+ * <p>
+ * Timed operations such as {@link StringMatcher#find(Duration)} run on the calling thread. Before the operation starts a
+ * deadline is armed with the watchdog's scheduler and it is disarmed as soon as the operation completes. If the deadline
+ * expires first, the watchdog interrupts the calling thread and the operation fails with a {@code TimeoutException}.
+ * Engines which read their input through a {@code CharSequence} check their deadlines cooperatively and do not use the
+ * watchdog.
+ * <p>
+ * A single watchdog is shared by all {@code StringMatcher}s. The {@link #getDefault() default} watchdog uses one daemon
+ * thread which is created on first use. Applications which manage their own threads can install a watchdog backed by a
+ * different scheduler by calling {@link #setDefault(Watchdog)}.
+ *
+ * @author Zhenya Leonov
+ */
+public final class Watchdog {
+
+    private static volatile Watchdog instance = null;
+
+    private final ScheduledExecutorService scheduler;
+
+    private Watchdog(final ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns a new {@code Watchdog} which arms deadlines using the specified scheduler.
+     * <p>
+     * The scheduler is not shut down by the watchdog. Cancelled deadlines should be removed from the scheduler's work queue
+     * (see {@link ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy(boolean)}), otherwise they will be retained until
+     * they expire.
+     *
+     * @param scheduler the scheduler used to arm deadlines
+     * @return a new {@code Watchdog} which arms deadlines using the specified scheduler
+     */
+    public static Watchdog create(final ScheduledExecutorService scheduler) {
+        checkNotNull(scheduler, "scheduler == null");
+        return new Watchdog(scheduler);
+    }
+
+    /**
+     * Returns the watchdog currently used by all {@code StringMatcher}s.
+     * <p>
+     * Unless {@link #setDefault(Watchdog) replaced}, the default watchdog is backed by a single daemon thread named
+     * {@code jrex-watchdog}.
+     *
+     * @return the watchdog currently used by all {@code StringMatcher}s
+     */
+    public static Watchdog getDefault() {
+        Watchdog watchdog = instance;
+        if (watchdog == null) {
+            synchronized (Watchdog.class) {
+                watchdog = instance;
+                if (watchdog == null)
+                    instance = watchdog = new Watchdog(newScheduler());
+            }
+        }
+        return watchdog;
+    }
+
+    /**
+     * Replaces the watchdog used by all {@code StringMatcher}s.
+     * <p>
+     * Deadlines which are already armed are unaffected. The previous watchdog's scheduler is not shut down.
+     *
+     * @param watchdog the new default watchdog
+     */
+    public static void setDefault(final Watchdog watchdog) {
+        checkNotNull(watchdog, "watchdog == null");
+        synchronized (Watchdog.class) {
+            instance = watchdog;
+        }
+    }
+
+    /**
+     * Arms a deadline which will interrupt the current thread if it is not {@link Deadline#disarm() disarmed} before the
+     * specified duration elapses.
+     *
+     * @param duration the time allowed before the current thread is interrupted
+     * @return the armed deadline
+     */
+    Deadline arm(final Duration duration) {
+        checkNotNull(duration, "duration == null");
+        checkArgument(!duration.isNegative(), "duration < 0");
+
+        final ScheduledDeadline deadline = new ScheduledDeadline(Thread.currentThread());
+        deadline.future = scheduler.schedule(deadline, duration.toNanos(), TimeUnit.NANOSECONDS);
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("scheduler", scheduler).toString();
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jrex-watchdog").build());
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * A deadline armed by a {@code Watchdog} on behalf of a single thread.
+     * <p>
+     * Expiring and disarming are mutually exclusive. Once {@link #disarm()} returns, the watchdog will never interrupt the
+     * thread on behalf of this deadline.
+     */
+    private static final class ScheduledDeadline implements Deadline, Runnable {
+
+        private final Thread thread;
+        private ScheduledFuture<?> future;
+        private boolean armed = true;
+        private boolean expired = false;
+
+        private ScheduledDeadline(final Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (armed) {
+                armed = false;
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * If the deadline has already expired the interrupt delivered by the watchdog is consumed, clearing the interrupted
+         * status of the current thread.
+         */
+        @Override
+        public synchronized boolean disarm() {
+            if (armed) {
+                armed = false;
+                future.cancel(false);
+            } else if (expired)
+                Thread.interrupted();
+            return expired;
+        }
+    }
+
+}
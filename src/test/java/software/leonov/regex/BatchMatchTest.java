@@ -0,0 +1,88 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class BatchMatchTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    private static final List<String> INPUTS = new ArrayList<>();
+
+    static {
+        final String[] words = { "ERROR", "WARN", "foo", "bar", "2019-03-17", "12:30", "a", "aa", " ", "x=1", "\u00e9t\u00e9" };
+        final Random random = new Random(42);
+        for (int i = 0; i < 3 * BatchMatch.BATCH + 100; i++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int j = random.nextInt(4); j > 0; j--)
+                sb.append(words[random.nextInt(words.length)]);
+            INPUTS.add(sb.toString());
+        }
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    /**
+     * Asserts that the batch results are the results of matching each input on its own.
+     */
+    private static void assertBatch(final RegularExpression regex, final List<? extends CharSequence> inputs) throws Throwable {
+        final BitSet matches = new BitSet();
+        final int[] offsets = new int[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            matches.set(i, regex.matcher(inputs.get(i)).matches());
+            final StringMatcher<?> matcher = regex.matcher(inputs.get(i));
+            offsets[i] = matcher.find() ? matcher.start() : -1;
+        }
+
+        assertEquals(regex.pattern(), matches, BatchMatch.matchesAll(regex, inputs));
+        assertEquals(regex.pattern(), matches, BatchMatch.matchesAll(regex, inputs, EXECUTOR));
+        assertArrayEquals(regex.pattern(), offsets, BatchMatch.findFirstAll(regex, inputs));
+        assertArrayEquals(regex.pattern(), offsets, BatchMatch.findFirstAll(regex, inputs, EXECUTOR));
+    }
+
+    @Test
+    public void test_jdk() throws Throwable {
+        for (final String pattern : new String[] { "ERROR", "(\\d{4})-(\\d{2})-(\\d{2})", "foo.*", "a*", "(?<=foo)bar", "\\bbar\\b", "" })
+            assertBatch(JDKRegularExpression.compile(pattern), INPUTS);
+    }
+
+    @Test
+    public void test_engines() throws Throwable {
+        for (final String name : new String[] { "re2j", "joni", "jregex", "automaton" }) {
+            final RegexEngine engine = RegexEngines.forName(name);
+            for (final String pattern : new String[] { "ERROR", "[0-9]{4}-[0-9]{2}", "foo.*", "a+" })
+                if (engine.capabilities().containsAll(RegexFeatures.required(pattern)))
+                    assertBatch(engine.compile(pattern, NONE), INPUTS);
+        }
+    }
+
+    @Test
+    public void test_sequential_access() throws Throwable {
+        assertBatch(JDKRegularExpression.compile("foo|bar"), new LinkedList<>(INPUTS));
+    }
+
+    @Test
+    public void test_empty() throws Throwable {
+        final RegularExpression regex = JDKRegularExpression.compile("a");
+        assertEquals(new BitSet(), BatchMatch.matchesAll(regex, new ArrayList<String>(), EXECUTOR));
+        assertEquals(0, BatchMatch.findFirstAll(regex, new ArrayList<String>(), EXECUTOR).length);
+    }
+
+}
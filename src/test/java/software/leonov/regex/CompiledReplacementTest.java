@@ -0,0 +1,67 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class CompiledReplacementTest {
+
+    private static final String REGEX = "(\\w)(\\w*)@(\\w+)?";
+    private static final String INPUT = "ann@example, bob@, carol@test!";
+
+    @Test
+    public void test_replace() throws Throwable {
+        final String[] replacements = { "", "x", "$0", "[$1|$2|$3]", "$3$2$1", "\\$1 \\\\ $10", "$2$", "${1}" };
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile(REGEX), RE2JRegularExpression.compile(REGEX), JoniRegularExpression.compile(REGEX), JRegexRegularExpression.compile(REGEX) })
+            for (final String replacement : replacements) {
+                final String message = regex + " " + replacement;
+                final String expected;
+                try {
+                    expected = Pattern.compile(REGEX).matcher(INPUT).replaceAll(replacement);
+                } catch (final IllegalArgumentException e) {
+                    continue;
+                }
+                final CompiledReplacement compiled = CompiledReplacement.compile(replacement);
+                assertEquals(message, expected, regex.matcher(INPUT).replaceAll(compiled));
+                assertEquals(message, expected, regex.matcher(INPUT).replaceAll(replacement));
+                assertEquals(message, Pattern.compile(REGEX).matcher(INPUT).replaceFirst(replacement), regex.matcher(INPUT).replaceFirst(compiled));
+            }
+    }
+
+    @Test
+    public void test_multi_digit_group_reference() throws Throwable {
+        final String regex = "(a)(b)(c)(d)(e)(f)(g)(h)(i)(j)";
+        final String input = "-abcdefghij-";
+
+        for (final String replacement : new String[] { "$10", "$1$10$100", "$11", "$01" }) {
+            final String expected = Pattern.compile(regex).matcher(input).replaceAll(replacement);
+            final CompiledReplacement compiled = CompiledReplacement.compile(replacement);
+            assertEquals(replacement, expected, JDKRegularExpression.compile(regex).matcher(input).replaceAll(compiled));
+            assertEquals(replacement, expected, JoniRegularExpression.compile(regex).matcher(input).replaceAll(compiled));
+        }
+    }
+
+    @Test
+    public void test_append_replacement() throws Throwable {
+        final CompiledReplacement replacement = CompiledReplacement.compile("<$2>");
+        final StringMatcher<?> matcher = JDKRegularExpression.compile("(a)|(b)").matcher("abc");
+        final StringBuilder sb = new StringBuilder();
+        while (matcher.find())
+            matcher.appendReplacement(sb, replacement);
+        assertEquals("<><b>c", matcher.appendTail(sb));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_illegal_group_reference() {
+        CompiledReplacement.compile("a$b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_missing_escaped_character() {
+        CompiledReplacement.compile("a\\");
+    }
+
+}
@@ -0,0 +1,352 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Runs every case of the shared {@link RegexTestCase corpus} against every engine, recording the latency and allocation
+ * of each case and whether the engine agrees with {@code java.util.regex}.
+ * <p>
+ * The {@code "jdk"} engine is checked against the expected results in the corpus and serves as the reference for all
+ * other engines. An engine agrees with the reference if it compiles the same patterns and reports the same results of
+ * {@link StringMatcher#matches()} and {@link StringMatcher#find()}; the boundaries of the match and of its groups are
+ * only compared if the engine has the {@link Capability#LEFTMOST_FIRST} and {@link Capability#CAPTURING_GROUPS}
+ * capabilities. Patterns which the reference compiles but an engine rejects are reported as unsupported rather than as
+ * disagreements, since the router falls through to the next engine in that case.
+ * <p>
+ * The report lists the pathological engine/pattern combinations, which disagree with the reference, fail, exceed the
+ * time limit or are much slower than the reference, followed by a summary of every engine. Run the {@link #main(String[])
+ * main} method to produce a report for all available engines.
+ *
+ * @author Zhenya Leonov
+ */
+final class DifferentialHarness {
+
+    /**
+     * The outcome of running a case against an engine.
+     */
+    enum Outcome {
+        AGREE, DISAGREE, UNSUPPORTED, ERROR, TIMEOUT
+    }
+
+    /**
+     * The outcome, latency and allocation of a case run against an engine.
+     */
+    static final class Result {
+
+        final RegexEngine engine;
+        final RegexTestCase testCase;
+        final Outcome outcome;
+
+        /**
+         * The fastest of the repeated runs in nanoseconds, or {@code -1} if the case was not run.
+         */
+        final long nanos;
+
+        /**
+         * The bytes allocated per run, or {@code -1} if unknown.
+         */
+        final long bytes;
+
+        final String detail;
+
+        private Result(final RegexEngine engine, final RegexTestCase testCase, final Outcome outcome, final long nanos, final long bytes, final String detail) {
+            this.engine = engine;
+            this.testCase = testCase;
+            this.outcome = outcome;
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.detail = detail;
+        }
+    }
+
+    private static final String REFERENCE = "jdk";
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    private final ImmutableList<RegexEngine> engines;
+    private final Duration timeLimit;
+    private final int repetitions;
+
+    /**
+     * Creates a new harness.
+     *
+     * @param engines     the engines to run, which must include the {@code "jdk"} engine
+     * @param timeLimit   the time allowed for each match operation
+     * @param repetitions the number of times each case is run
+     */
+    DifferentialHarness(final List<RegexEngine> engines, final Duration timeLimit, final int repetitions) {
+        checkNotNull(engines, "engines == null");
+        checkNotNull(timeLimit, "timeLimit == null");
+        checkArgument(repetitions > 0, "repetitions <= 0");
+        checkArgument(engines.stream().anyMatch(engine -> engine.name().equals(REFERENCE)), "the %s engine is required", REFERENCE);
+        this.engines = ImmutableList.copyOf(engines);
+        this.timeLimit = timeLimit;
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * Runs the specified cases against every engine.
+     *
+     * @param cases the cases
+     * @return the results, grouped by case in the order of the engines
+     */
+    List<Result> run(final List<RegexTestCase> cases) {
+        final List<Result> results = new ArrayList<>();
+        for (final RegexTestCase testCase : cases) {
+            final Observation reference = observe(RegexEngines.forName(REFERENCE), testCase);
+            for (final RegexEngine engine : engines)
+                results.add(compare(engine, testCase, engine.name().equals(REFERENCE) ? Observation.expected(testCase) : reference));
+        }
+        return results;
+    }
+
+    /**
+     * Writes a report of the pathological combinations and a summary of every engine.
+     * <p>
+     * A case is considered slow if it takes more than {@code ratio} times as long as the reference and at least
+     * {@code minNanos} nanoseconds.
+     *
+     * @param results  the results
+     * @param out      where to write the report
+     * @param ratio    the slowdown relative to the reference which is considered pathological
+     * @param minNanos the latency below which a case is never considered slow
+     */
+    static void report(final List<Result> results, final PrintStream out, final double ratio, final long minNanos) {
+        final Map<RegexTestCase, Long> reference = new LinkedHashMap<>();
+        for (final Result result : results)
+            if (result.engine.name().equals(REFERENCE))
+                reference.put(result.testCase, result.nanos);
+
+        final Map<String, EnumMap<Outcome, Integer>> outcomes = new LinkedHashMap<>();
+        final Map<String, Integer> slow = new LinkedHashMap<>();
+        final Map<String, long[]> totals = new LinkedHashMap<>();
+
+        out.println("engine\toutcome\tnanos\tbytes\tjdk nanos\tcase\tinput\tdetail");
+        for (final Result result : results) {
+            final String name = result.engine.name();
+            outcomes.computeIfAbsent(name, key -> new EnumMap<>(Outcome.class)).merge(result.outcome, 1, Integer::sum);
+            final long[] total = totals.computeIfAbsent(name, key -> new long[2]);
+            if (result.nanos >= 0) {
+                total[0] += result.nanos;
+                total[1] += Math.max(0, result.bytes);
+            }
+
+            final long baseline = reference.getOrDefault(result.testCase, -1L);
+            final boolean isSlow = result.nanos >= minNanos && baseline > 0 && result.nanos > ratio * baseline;
+            if (isSlow)
+                slow.merge(name, 1, Integer::sum);
+
+            if (isSlow || result.outcome == Outcome.DISAGREE || result.outcome == Outcome.ERROR || result.outcome == Outcome.TIMEOUT)
+                out.println(name + "\t" + (isSlow && result.outcome == Outcome.AGREE ? "SLOW" : result.outcome) + "\t" + result.nanos + "\t" + result.bytes + "\t" + baseline + "\t" + escape(result.testCase.toString()) + "\t" + escape(result.testCase.input) + "\t" + escape(result.detail));
+        }
+
+        out.println();
+        out.println("engine\tcases\tagree\tdisagree\tunsupported\terror\ttimeout\tslow\ttotal nanos\ttotal bytes");
+        for (final Map.Entry<String, EnumMap<Outcome, Integer>> entry : outcomes.entrySet()) {
+            final EnumMap<Outcome, Integer> counts = entry.getValue();
+            final int cases = counts.values().stream().mapToInt(Integer::intValue).sum();
+            final long[] total = totals.get(entry.getKey());
+            out.println(entry.getKey() + "\t" + cases + "\t" + counts.getOrDefault(Outcome.AGREE, 0) + "\t" + counts.getOrDefault(Outcome.DISAGREE, 0) + "\t" + counts.getOrDefault(Outcome.UNSUPPORTED, 0) + "\t" + counts.getOrDefault(Outcome.ERROR, 0) + "\t"
+                    + counts.getOrDefault(Outcome.TIMEOUT, 0) + "\t" + slow.getOrDefault(entry.getKey(), 0) + "\t" + total[0] + "\t" + total[1]);
+        }
+    }
+
+    /**
+     * Runs the shared corpus against all available engines and writes the report to the file specified as the first
+     * argument, or to standard output.
+     *
+     * @param args the optional path of the report
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(final String[] args) throws IOException {
+        final DifferentialHarness harness = new DifferentialHarness(RegexEngines.available(), Duration.ofSeconds(1), 5);
+        final List<Result> results = harness.run(RegexTestCase.load());
+
+        if (args.length == 0)
+            report(results, System.out, 10, 50_000);
+        else
+            try (final PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(args[0])), true, StandardCharsets.UTF_8.name())) {
+                report(results, out, 10, 50_000);
+            }
+    }
+
+    private Result compare(final RegexEngine engine, final RegexTestCase testCase, final Observation expected) {
+        final RegularExpression regex;
+        try {
+            regex = engine.compile(testCase.pattern, NONE);
+        } catch (final RuntimeException | StackOverflowError e) {
+            if (expected.error)
+                return new Result(engine, testCase, Outcome.AGREE, -1, -1, null);
+            return new Result(engine, testCase, Outcome.UNSUPPORTED, -1, -1, e.toString());
+        }
+        if (expected.error)
+            return new Result(engine, testCase, Outcome.DISAGREE, -1, -1, "compiled a pattern rejected by the reference");
+
+        final Observation observation;
+        long nanos = Long.MAX_VALUE;
+        final long before = allocatedBytes();
+        try {
+            Observation last = null;
+            for (int i = 0; i < repetitions; i++) {
+                final long start = System.nanoTime();
+                last = observe(regex, testCase.input, engine.capabilities());
+                nanos = Math.min(nanos, System.nanoTime() - start);
+            }
+            observation = last;
+        } catch (final TimeoutException e) {
+            return new Result(engine, testCase, Outcome.TIMEOUT, timeLimit.toNanos(), -1, e.getMessage());
+        } catch (final Throwable e) {
+            return new Result(engine, testCase, Outcome.ERROR, -1, -1, e.toString());
+        }
+        final long after = allocatedBytes();
+        final long bytes = before < 0 || after < 0 ? -1 : (after - before) / repetitions;
+
+        final String difference = observation.difference(expected, engine.capabilities());
+        return new Result(engine, testCase, difference == null ? Outcome.AGREE : Outcome.DISAGREE, nanos, bytes, difference);
+    }
+
+    private Observation observe(final RegexEngine engine, final RegexTestCase testCase) {
+        final RegularExpression regex;
+        try {
+            regex = engine.compile(testCase.pattern, NONE);
+        } catch (final RuntimeException e) {
+            return Observation.ERROR;
+        }
+        try {
+            return observe(regex, testCase.input, engine.capabilities());
+        } catch (final Throwable e) {
+            return Observation.ERROR;
+        }
+    }
+
+    private Observation observe(final RegularExpression regex, final String input, final Set<Capability> capabilities) throws Throwable {
+        final boolean matches = regex.matcher(input).matches(timeLimit);
+        final StringMatcher<?> matcher = regex.matcher(input);
+        if (!matcher.find(timeLimit))
+            return new Observation(false, matches, false, null, null);
+
+        final String group = matcher.group();
+        if (!capabilities.contains(Capability.CAPTURING_GROUPS))
+            return new Observation(false, matches, true, group, null);
+
+        final String[] groups = new String[matcher.groupCount() + 1];
+        for (int i = 0; i < groups.length; i++)
+            groups[i] = matcher.group(i);
+        return new Observation(false, matches, true, group, groups);
+    }
+
+    /*
+     * The bytes allocated by the current thread so far, or -1 if the JVM does not support measuring them.
+     */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static String escape(final String s) {
+        if (s == null)
+            return "";
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '\t')
+                sb.append("\\t");
+            else if (c == '\n')
+                sb.append("\\n");
+            else if (c == '\r')
+                sb.append("\\r");
+            else if (c < 0x20 || c >= 0x7f)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * What an engine reported for a case. matches is null when unknown and groups is null when not reported. The
+     * observations expected by the corpus are partial: groups which are not checked by the corpus are null.
+     */
+    private static final class Observation {
+
+        static final Observation ERROR = new Observation(true, null, false, null, null, false);
+
+        final boolean error;
+        final Boolean matches;
+        final boolean found;
+        final String group;
+        final String[] groups;
+        final boolean partial;
+
+        Observation(final boolean error, final Boolean matches, final boolean found, final String group, final String[] groups) {
+            this(error, matches, found, group, groups, false);
+        }
+
+        private Observation(final boolean error, final Boolean matches, final boolean found, final String group, final String[] groups, final boolean partial) {
+            this.error = error;
+            this.matches = matches;
+            this.found = found;
+            this.group = group;
+            this.groups = groups;
+            this.partial = partial;
+        }
+
+        static Observation expected(final RegexTestCase testCase) {
+            if (testCase.error)
+                return ERROR;
+            if (!testCase.found)
+                return new Observation(false, null, false, null, null, true);
+
+            final String[] groups = new String[testCase.groupCount + 1];
+            groups[0] = testCase.group;
+            for (final Map.Entry<Integer, String> entry : testCase.groups.entrySet())
+                groups[entry.getKey()] = entry.getValue();
+            return new Observation(false, null, true, testCase.group, groups, true);
+        }
+
+        /*
+         * Returns a description of the first difference from the expected observation, or null if there is none.
+         */
+        String difference(final Observation expected, final Set<Capability> capabilities) {
+            if (expected.matches != null && !expected.matches.equals(matches))
+                return "matches() returned " + matches + ", expected " + expected.matches;
+            if (found != expected.found)
+                return "find() returned " + found + ", expected " + expected.found;
+            if (!found || !capabilities.contains(Capability.LEFTMOST_FIRST))
+                return null;
+            if (!Objects.equals(group, expected.group))
+                return "group() returned " + group + ", expected " + expected.group;
+            if (groups == null || expected.groups == null)
+                return null;
+            if (groups.length != expected.groups.length)
+                return "groupCount() returned " + (groups.length - 1) + ", expected " + (expected.groups.length - 1);
+            for (int i = 1; i < groups.length; i++)
+                if ((!expected.partial || expected.groups[i] != null) && !Objects.equals(groups[i], expected.groups[i]))
+                    return "group(" + i + ") returned " + groups[i] + ", expected " + expected.groups[i];
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import software.leonov.regex.DifferentialHarness.Outcome;
+import software.leonov.regex.DifferentialHarness.Result;
+
+public class DifferentialHarnessTest {
+
+    private static final ImmutableList<RegexTestCase> CASES = RegexTestCase.load();
+
+    @Test
+    public void test_corpus() {
+        assertEquals(812, CASES.size());
+        assertEquals(15, CASES.stream().filter(testCase -> testCase.error).count());
+        assertEquals("\n", RegexTestCase.unescape("\\n"));
+        assertEquals("\\u", RegexTestCase.unescape("\\\\u"));
+        assertEquals("\uD800\uDC61", RegexTestCase.unescape("\\ud800\\udc61"));
+    }
+
+    @Test
+    public void test_reference_agrees_with_corpus() {
+        for (final Result result : new DifferentialHarness(Arrays.asList(RegexEngines.forName("jdk")), Duration.ofSeconds(1), 1).run(CASES))
+            assertEquals(result.testCase + " " + result.detail, Outcome.AGREE, result.outcome);
+    }
+
+    @Test
+    public void test_literal_engine() {
+        for (final Result result : new DifferentialHarness(Arrays.asList(RegexEngines.forName("jdk"), RegexEngines.forName("literal")), Duration.ofSeconds(1), 1).run(CASES))
+            assertTrue(result.testCase + " " + result.detail, result.outcome == Outcome.AGREE || result.outcome == Outcome.UNSUPPORTED);
+    }
+
+    @Test
+    public void test_report() throws Throwable {
+        final List<Result> results = new DifferentialHarness(Arrays.asList(RegexEngines.forName("jdk"), RegexEngines.forName("automaton")), Duration.ofSeconds(1), 1).run(CASES.subList(0, 50));
+        assertEquals(100, results.size());
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DifferentialHarness.report(results, new PrintStream(bytes, true, "UTF-8"), 10, 50_000);
+        final String report = bytes.toString("UTF-8");
+        assertTrue(report, report.contains("\njdk\t50\t50\t0\t0\t0\t0\t"));
+        assertTrue(report, report.contains("\nautomaton\t50\t"));
+    }
+
+}
@@ -0,0 +1,100 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import software.leonov.regex.LiteralSetRegularExpression.Semantics;
+
+public class LiteralSetRegularExpressionTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    @Test
+    public void test_leftmost_first() throws Throwable {
+        final String[] patterns = { "foo|foobar", "foobar|foo", "he|she|his|hers", "a|ab|abc|b|bc", "\\Qa.b\\E|a\\|b|x", "(?:cat|dog)", "((ab|b))", "\uD83D\uDE00|\u00e9t\u00e9", "aaa|aa" };
+        final String[] inputs = { "", "foobar", "xfoofoobar", "ushers", "abcbc", "a.b a|b axb", "hotdog catalog", "bab", "\u00e9t\u00e9 \uD83D\uDE00", "aaaaaaa" };
+
+        for (final String pattern : patterns) {
+            final LiteralSetRegularExpression regex = LiteralSetRegularExpression.compile(pattern);
+            for (final String input : inputs) {
+                final Matcher expected = Pattern.compile(pattern).matcher(input);
+                final StringMatcher<?> actual = regex.matcher(input);
+                assertEquals(pattern + " matches " + input, expected.matches(), actual.matches());
+                expected.reset();
+                while (expected.find()) {
+                    assertTrue(pattern + " find " + input, actual.find());
+                    assertEquals(pattern + " start " + input, expected.start(), actual.start());
+                    assertEquals(pattern + " end " + input, expected.end(), actual.end());
+                    assertEquals(pattern + " groupCount " + input, expected.groupCount(), actual.groupCount());
+                    for (int i = 0; i <= expected.groupCount(); i++)
+                        assertEquals(pattern + " group " + input, expected.group(i), actual.group(i));
+                }
+                assertFalse(pattern + " find " + input, actual.find());
+            }
+        }
+    }
+
+    @Test
+    public void test_leftmost_longest() throws Throwable {
+        final StringMatcher<?> matcher = LiteralSetRegularExpression.of(Arrays.asList("foo", "foobar", "ob", "barbaz"), Semantics.LEFTMOST_LONGEST).matcher("xfoobarbaz foo");
+        assertTrue(matcher.find());
+        assertEquals("foobar", matcher.group());
+        assertTrue(matcher.find());
+        assertEquals("foo", matcher.group());
+        assertEquals(11, matcher.start());
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    public void test_of() throws Throwable {
+        final LiteralSetRegularExpression regex = LiteralSetRegularExpression.of(Arrays.asList("a+b", "c", "d e"));
+        assertEquals("\\Qa+b\\E|c|\\Qd e\\E", regex.pattern());
+        assertEquals("x-y-z-", regex.matcher("xa+by d ez c").replaceAll("-").replace(" ", ""));
+        assertTrue(Pattern.compile(regex.pattern()).matcher("a+b").matches());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_not_literal() {
+        LiteralSetRegularExpression.compile("foo|ba+r");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_empty_literal() {
+        LiteralSetRegularExpression.compile("foo|");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unpaired_surrogate_literal() {
+        LiteralSetRegularExpression.of(Arrays.asList("x", "\uDE00"));
+    }
+
+    @Test
+    public void test_unpaired_surrogate() throws Throwable {
+        final String[] patterns = { "x|\uDE00", "x|a\uD83D", "(?:x|\uDE00y)" };
+        for (final String pattern : patterns) {
+            assertFalse(pattern, new LiteralSetRegularExpression.Engine().accepts(pattern, NONE));
+            final RegularExpression regex = RegexRouter.getDefault().compile(pattern, NONE, EnumSet.of(Capability.LEFTMOST_FIRST));
+            assertEquals(pattern, Pattern.compile(pattern).matcher("a\uD83D\uDE00y").find(), regex.matcher("a\uD83D\uDE00y").find());
+        }
+        assertTrue(new LiteralSetRegularExpression.Engine().accepts("x|\uD83D\uDE00", NONE));
+    }
+
+    @Test
+    public void test_router() {
+        assertEquals("literal", RegexRouter.getDefault().select("error|warning|fatal", NONE, EnumSet.of(Capability.CAPTURING_GROUPS)).name());
+        assertEquals("literal", RegexRouter.getDefault().select("(?:404|500)", EnumSet.of(RegexOption.CASE_INSENSITIVE), EnumSet.noneOf(Capability.class)).name());
+        assertEquals("automaton", RegexRouter.getDefault().select("error", NONE, EnumSet.noneOf(Capability.class)).name());
+        assertEquals("automaton", RegexRouter.getDefault().select("error|warn", EnumSet.of(RegexOption.CASE_INSENSITIVE), EnumSet.noneOf(Capability.class)).name());
+        assertTrue(RegexRouter.getDefault().compile("error|warning", NONE, EnumSet.of(Capability.LEFTMOST_FIRST)) instanceof LiteralSetRegularExpression);
+    }
+
+}
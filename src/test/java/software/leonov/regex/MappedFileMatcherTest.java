@@ -0,0 +1,120 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Strings;
+
+public class MappedFileMatcherTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static String input(final String... extra) {
+        final String[] common = { "ERROR", "WARN", "foo", "foobar", "bar", "2019-03-17", "12:30", "a", "aa", "\n", "\n", " ", " ", "x=1" };
+        final String[] words = new String[common.length + extra.length];
+        System.arraycopy(common, 0, words, 0, common.length);
+        System.arraycopy(extra, 0, words, common.length, extra.length);
+
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 20_000)
+            sb.append(words[random.nextInt(words.length)]);
+        return sb.toString();
+    }
+
+    /**
+     * Asserts that the matches found in the file are the matches found by the same expression in the entire input.
+     */
+    private void assertFinds(final RegularExpression regex, final String input, final Charset charset, final int segment) throws Throwable {
+        final Path file = folder.newFile().toPath();
+        Files.write(file, input.getBytes(charset));
+
+        final StringMatcher<?> expected = regex.matcher(input);
+        try (final MappedFileMatcher actual = MappedFileMatcher.of(regex, NONE, file, charset, segment)) {
+            while (expected.find()) {
+                assertTrue(regex.pattern() + " " + expected.start(), actual.find());
+                assertEquals(regex.pattern(), input.substring(0, expected.start()).getBytes(charset).length, actual.start());
+                assertEquals(regex.pattern(), input.substring(0, expected.end()).getBytes(charset).length, actual.end());
+                assertEquals(regex.pattern(), expected.group(), actual.group());
+                for (int i = 1; i <= expected.groupCount(); i++) {
+                    assertEquals(regex.pattern(), expected.group(i), actual.group(i));
+                    if (expected.start(i) != -1) {
+                        assertEquals(regex.pattern(), input.substring(0, expected.start(i)).getBytes(charset).length, actual.start(i));
+                        assertEquals(regex.pattern(), input.substring(0, expected.end(i)).getBytes(charset).length, actual.end(i));
+                    }
+                }
+            }
+            assertFalse(regex.pattern(), actual.find());
+        }
+    }
+
+    @Test
+    public void test_utf8() throws Throwable {
+        final String input = input("\u00e9t\u00e9", "\u65e5\u672c", "\ud83d\ude00");
+        final String[] patterns = { "ERROR", "foo|foobar", "(\\d{4})-(\\d{2})-(\\d{2})", "ERROR.*", "\\bbar\\b", "(?<=foo)bar", "(?m)^WARN.*$", "\u00e9t\u00e9|\ud83d\ude00" };
+        for (final String name : new String[] { "jdk", "re2j", "joni", "jregex" }) {
+            final RegexEngine engine = RegexEngines.forName(name);
+            for (final String pattern : patterns)
+                if (engine.capabilities().containsAll(RegexFeatures.required(pattern)))
+                    assertFinds(engine.compile(pattern, NONE), input, StandardCharsets.UTF_8, 512);
+        }
+    }
+
+    @Test
+    public void test_utf8_segments() throws Throwable {
+        final String input = input("\u00e9t\u00e9", "\u65e5\u672c", "\ud83d\ude00");
+        for (final String pattern : new String[] { "\\B\\w", "\\w{1,3}", "\u00e9t\u00e9|\ud83d\ude00", "(?<=\u00e9)t" })
+            for (final int segment : new int[] { 64, 301 }) {
+                assertFinds(JoniRegularExpression.compile(pattern), input, StandardCharsets.UTF_8, segment);
+                assertFinds(JDKRegularExpression.compile(pattern), input, StandardCharsets.UTF_8, segment);
+            }
+    }
+
+    @Test(timeout = 10000)
+    public void test_utf8_offsets() throws Throwable {
+        final String input = Strings.repeat("\u00e9t\u00e9 \u65e5\u672c \ud83d\ude00 ", 100_000) + "ERROR: disk";
+        final Path file = folder.newFile().toPath();
+        Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+
+        final long offset = input.substring(0, input.length() - 11).getBytes(StandardCharsets.UTF_8).length;
+        try (final MappedFileMatcher matcher = MappedFileMatcher.of(JDKRegularExpression.compile("ERROR: (\\w+)"), NONE, file, StandardCharsets.UTF_8, MappedFileMatcher.DEFAULT_SEGMENT)) {
+            assertTrue(matcher.find());
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals(offset + 11, matcher.end());
+                assertEquals(offset + 7, matcher.start(1));
+                assertEquals(offset, matcher.start());
+            }
+        }
+    }
+
+    @Test
+    public void test_single_byte() throws Throwable {
+        final String input = input("\u00e9t\u00e9");
+        for (final String pattern : new String[] { "foo|foobar", "\\bbar\\b", "\u00e9t\u00e9", "(\\d{2}):(\\d{2})", "a*" })
+            assertFinds(JDKRegularExpression.compile(pattern), input, StandardCharsets.ISO_8859_1, 256);
+        assertFinds(RegexEngines.forName("automaton").compile("foo|foobar", NONE), input(), StandardCharsets.US_ASCII, 256);
+        assertFinds(RegexEngines.forName("joni").compile("(\\d{2}):(\\d{2})", NONE), input(), StandardCharsets.US_ASCII, 256);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unsupported_charset() throws Throwable {
+        MappedFileMatcher.of(JDKRegularExpression.compile("a"), NONE, folder.newFile().toPath(), StandardCharsets.UTF_16);
+    }
+
+}
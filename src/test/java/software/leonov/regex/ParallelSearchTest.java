@@ -0,0 +1,78 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.MatchResult;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class ParallelSearchTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final String INPUT;
+
+    static {
+        final String[] words = { "ERROR", "WARN", "foo", "foobar", "bar", "2019-03-17", "12:30", "a", "aa", "\n", "\n", "\r\n", "\r", " ", " ", "x=1", "\u00e9t\u00e9", "b" };
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 20_000)
+            sb.append(words[random.nextInt(words.length)]);
+        INPUT = sb.toString();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    /**
+     * Asserts that the matches found concurrently are the matches found by a single find loop.
+     */
+    private static void assertFinds(final RegularExpression regex, final int chunk) throws Throwable {
+        final StringMatcher<?> expected = regex.matcher(INPUT);
+        final List<MatchResult> actual = ParallelSearch.findAll(regex, NONE, INPUT, POOL, chunk);
+        int i = 0;
+        while (expected.find()) {
+            final MatchResult match = actual.get(i++);
+            assertEquals(regex.pattern(), expected.start(), match.start());
+            assertEquals(regex.pattern(), expected.end(), match.end());
+            assertEquals(regex.pattern(), expected.groupCount(), match.groupCount());
+            assertEquals(regex.pattern(), expected.group(), match.group());
+            for (int group = 1; group <= expected.groupCount(); group++)
+                assertEquals(regex.pattern(), expected.group(group), match.group(group));
+        }
+        assertEquals(regex.pattern(), i, actual.size());
+    }
+
+    @Test
+    public void test_jdk() throws Throwable {
+        final String[] patterns = { "ERROR", "foo|foobar", "(\\d{4})-(\\d{2})-(\\d{2})", "ERROR.*", "(?m)^WARN.*$", "\\bbar\\b", "(?<=foo)bar", "a*", "b\\s{1,3}a", "(?s)a.{0,20}b", "(a|aa)+", "(?m)$", "(?m)$\\n" };
+        for (final String pattern : patterns)
+            for (final int chunk : new int[] { 97, 1000, 1 << 20 })
+                assertFinds(JDKRegularExpression.compile(pattern), chunk);
+    }
+
+    @Test
+    public void test_engines() throws Throwable {
+        for (final String name : new String[] { "re2j", "joni", "jregex", "automaton" }) {
+            final RegexEngine engine = RegexEngines.forName(name);
+            for (final String pattern : new String[] { "foo|foobar", "[0-9]{4}-[0-9]{2}", "b\\s{1,3}a", "a+", "\\bbar\\b" })
+                if (engine.capabilities().containsAll(RegexFeatures.required(pattern)))
+                    assertFinds(engine.compile(pattern, NONE), 257);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unbounded() throws Throwable {
+        ParallelSearch.findAll(JDKRegularExpression.compile("(?s)a.*b"), NONE, INPUT, POOL, 100);
+    }
+
+}
@@ -0,0 +1,105 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+
+import software.leonov.regex.MetricsSink.Operation;
+
+public class PatternMetricsTest {
+
+    @Test
+    public void test_noop() {
+        final RegularExpression regex = JDKRegularExpression.compile("a+");
+        assertSame(regex, MetricsSink.instrumented(regex, MetricsSink.noop()));
+    }
+
+    @Test
+    public void test_counts() throws Throwable {
+        final PatternMetrics metrics = new PatternMetrics();
+        final RegularExpression regex = MetricsSink.compile(RegexEngines.forName("jdk"), "a+", EnumSet.noneOf(RegexOption.class), metrics);
+        assertEquals("a+", regex.pattern());
+
+        final StringMatcher<?> matcher = regex.matcher("xaxaax");
+        while (matcher.find())
+            ;
+        assertTrue(regex.matcher("aaa").matches());
+        assertFalse(regex.matcher("b").matches());
+        assertEquals("x-x-x", regex.matcher("xaxaax").replaceAll("-"));
+
+        final PatternMetrics.Statistics stats = metrics.statistics("a+");
+        assertEquals(1, stats.compileTime().count());
+        assertEquals(6, stats.invocations(Operation.FIND));
+        assertEquals(4, stats.hits(Operation.FIND));
+        assertEquals(2, stats.invocations(Operation.MATCHES));
+        assertEquals(0.5, stats.hitRate(Operation.MATCHES), 0);
+        assertEquals(0, stats.timeouts(Operation.FIND));
+        assertEquals(6, stats.latency(Operation.FIND).count());
+        assertEquals(8, stats.inputLength().count());
+        assertEquals(6, stats.inputLength().max());
+        assertEquals(ImmutableSet.of("a+"), metrics.asMap().keySet());
+        assertNull(metrics.statistics("b+"));
+
+        metrics.clear();
+        assertTrue(metrics.asMap().isEmpty());
+    }
+
+    @Test
+    public void test_timeouts() throws Throwable {
+        final PatternMetrics metrics = new PatternMetrics();
+        final RegularExpression regex = MetricsSink.instrumented(JoniRegularExpression.compile("((a+)+)+b"), metrics);
+        try {
+            regex.matcher(Strings.repeat("a", 32)).find(Duration.ofMillis(100));
+            fail();
+        } catch (final TimeoutException e) {
+        }
+
+        final PatternMetrics.Statistics stats = metrics.statistics("((a+)+)+b");
+        assertEquals(1, stats.invocations(Operation.FIND));
+        assertEquals(1, stats.timeouts(Operation.FIND));
+        assertEquals(0, stats.hits(Operation.FIND));
+        assertTrue(stats.latency(Operation.FIND).max() >= Duration.ofMillis(100).toNanos());
+    }
+
+    @Test
+    public void test_histogram() {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(50));
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i);
+
+        assertEquals(1000, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500.5, histogram.mean(), 0);
+        assertEquals(1, histogram.percentile(0));
+        assertEquals(1000, histogram.percentile(100));
+        final long median = histogram.percentile(50);
+        assertTrue(String.valueOf(median), median >= 500 && median < 500 * 17 / 16);
+    }
+
+    @Test
+    public void test_histogram_buckets() {
+        long previous = -1;
+        for (int index = 0; index < 960; index++) {
+            final long highest = Histogram.highest(index);
+            assertTrue(highest > previous);
+            assertEquals(index, Histogram.index(highest));
+            assertEquals(index, Histogram.index(previous + 1));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+}
@@ -0,0 +1,140 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import dk.brics.automaton.RegExp;
+
+public class PrefilterTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    @Test
+    public void test_literals() {
+        assertEquals(ImmutableSet.of("ERROR: "), Prefilter.of("ERROR: \\w+", NONE).literals());
+        assertEquals(ImmutableSet.of("user="), Prefilter.of("\\buser=(\\w+)", NONE).literals());
+        assertEquals(ImmutableSet.of("color", "colour"), Prefilter.of("colou?r", NONE).literals());
+        assertEquals(ImmutableSet.of("cat", "dog"), Prefilter.of("(?:cat|dog)s?", NONE).literals());
+        assertEquals(ImmutableSet.of("ms timeout", "timeout after "), Prefilter.of("\\d+ms timeout|timeout after \\d+", NONE).literals());
+        assertEquals(16, Prefilter.of("warn", EnumSet.of(RegexOption.CASE_INSENSITIVE)).literals().size());
+        assertEquals(ImmutableSet.of("abcabc"), Prefilter.of("(?:abc){2}", NONE).literals());
+        assertEquals(ImmutableSet.of("a.b"), Prefilter.of("a.b", EnumSet.of(RegexOption.LITERAL)).literals());
+    }
+
+    @Test
+    public void test_accepts_all() {
+        for (final String regex : new String[] { "\\w+", "a?b?", "x", "(a)\\1", "ab|c", "(", "\\p{L}+" })
+            assertTrue(regex, Prefilter.of(regex, NONE).acceptsAll());
+    }
+
+    @Test
+    public void test_sound() {
+        final String[] patterns = { "ERROR: \\w+", "colou?r", "(?:cat|dog)s?", "(?i)warn(ing)?", "[ab]{2}c", "x(?=yz)yz+", "(?:ab)+c", "ab.c|cd.e", "\\Qa+b\\E", "(?>foo|foobar)baz", "id=[0-9]+;" };
+        final String[] inputs = { "", "ERROR: disk", "ERROR:x", "color", "colr", "cats", "WaRnInG", "bac", "xyzz", "ababc", "cd-e", "a+b", "foobarbaz", "foobaz", "id=42;", "ID=42;" };
+
+        for (final String pattern : patterns) {
+            final Prefilter prefilter = Prefilter.of(pattern, NONE);
+            assertFalse(pattern, prefilter.acceptsAll());
+            for (final String input : inputs)
+                if (Pattern.compile(pattern).matcher(input).find())
+                    assertTrue(pattern + " " + input, prefilter.mayMatch(input) && prefilter.mayMatch(new StringBuilder(input)));
+        }
+    }
+
+    @Test
+    public void test_unicode_case() {
+        final Set<RegexOption> options = EnumSet.of(RegexOption.CASE_INSENSITIVE, RegexOption.UNICODE_CASE);
+        final String[] patterns = { "ok", "is", "\u00e5", "[a-z]k", "(?:sk|ks)y" };
+        final String[] inputs = { "o\u212a", "i\u017f", "\u212b", "\u0130s", "x\u212a", "\u017f\u212aY" };
+
+        for (final String pattern : patterns) {
+            final Prefilter prefilter = Prefilter.of(pattern, options);
+            for (final String input : inputs)
+                if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).matcher(input).find())
+                    assertTrue(pattern + " " + input, prefilter.mayMatch(input));
+        }
+        assertTrue(Prefilter.of("ok", options).mayMatch("o\u212a"));
+    }
+
+    @Test
+    public void test_prefiltered() throws Throwable {
+        final RegularExpression regex = Prefilter.prefiltered(JDKRegularExpression.compile("ERROR: (\\w+)"), NONE);
+        assertFalse(regex.matcher("WARN: disk").find());
+        assertEquals("WARN: disk", regex.matcher("WARN: disk").replaceAll("-"));
+
+        final StringMatcher<?> matcher = regex.matcher("ERROR: disk");
+        assertTrue(matcher.find());
+        assertEquals("disk", matcher.group(1));
+
+        final RegularExpression unfiltered = JDKRegularExpression.compile("\\w+");
+        assertSame(unfiltered, Prefilter.prefiltered(unfiltered, NONE));
+    }
+
+    @Test
+    public void test_prefiltered_syntax() throws Throwable {
+        final RegularExpression automaton = AutomatonRegularExpression.compile("x<1-10>y", RegExp.ALL);
+        assertSame(automaton, Prefilter.prefiltered(automaton, NONE));
+        assertTrue(Prefilter.prefiltered(automaton, NONE).matcher("x7y").matches());
+
+        final RegularExpression translated = Prefilter.prefiltered(RegexEngines.forName("automaton").compile("id=[0-9]+;", NONE), NONE);
+        assertTrue(translated instanceof PrefilteredRegularExpression);
+        assertTrue(translated.matcher("id=7;").matches());
+        assertFalse(translated.matcher("ix=7;").matches());
+
+        final RegularExpression jregex = JRegexRegularExpression.compile("ERROR: (\\w+)");
+        assertSame(jregex, Prefilter.prefiltered(jregex, NONE));
+
+        final RegularExpression compiled = Prefilter.prefiltered(RegexEngines.forName("jregex"), "ERROR: (\\w+)", NONE);
+        assertTrue(compiled instanceof PrefilteredRegularExpression);
+        assertFalse(compiled.matcher("WARN: disk").find());
+        assertTrue(compiled.matcher("ERROR: disk").find());
+    }
+
+    @Test
+    public void test_prefiltered_unicode_case() throws Throwable {
+        final String[] patterns = { "(?i)\u00e9t\u00e9", "(?i)kelvin", "(?i)ss" };
+        final String[] inputs = { "\u00c9T\u00c9", "\u212aelvin", "\u017fs", "KELVIN" };
+
+        for (final String name : new String[] { "re2j", "joni" }) {
+            final RegexEngine engine = RegexEngines.forName(name);
+            for (final String pattern : patterns) {
+                final RegularExpression regex = engine.compile(pattern, NONE);
+                for (final RegularExpression prefiltered : Arrays.asList(Prefilter.prefiltered(regex, NONE), Prefilter.prefiltered(engine, pattern, NONE)))
+                    for (final String input : inputs)
+                        assertEquals(name + " " + pattern + " " + input, regex.matcher(input).find(), prefiltered.matcher(input).find());
+            }
+        }
+    }
+
+    @Test
+    public void test_prefiltered_compiled_flags() throws Throwable {
+        final Set<RegexOption> options = EnumSet.of(RegexOption.CASE_INSENSITIVE);
+        for (final String name : new String[] { "jdk", "re2j", "joni" }) {
+            final RegularExpression regex = Prefilter.prefiltered(RegexEngines.forName(name).compile("error: ", options), NONE);
+            assertTrue(name, regex instanceof PrefilteredRegularExpression);
+            assertTrue(name, regex.matcher("ERROR: disk").find());
+            assertFalse(name, regex.matcher("WARN: disk").find());
+        }
+    }
+
+    @Test
+    public void test_aho_corasick() {
+        final AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers", "she"));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 3)), automaton.occurrences("ushers").stream().boxed().collect(java.util.stream.Collectors.toSet()));
+        assertTrue(automaton.containsAny("this"));
+        assertFalse(automaton.containsAny("hi s"));
+    }
+
+}
@@ -0,0 +1,49 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+public class RegexEnginesTest {
+
+    @Test
+    public void test_available() {
+        for (final String name : new String[] { "jdk", "re2j", "joni", "jregex", "automaton", "literal" })
+            assertEquals(name, RegexEngines.forName(name).name());
+        assertFalse(RegexEngines.isAvailable("perl"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_not_available() {
+        RegexEngines.forName("perl");
+    }
+
+    @Test
+    public void test_compile() throws Throwable {
+        for (final String name : new String[] { "jdk", "re2j", "joni", "jregex" }) {
+            final RegularExpression regex = RegexEngines.forName(name).compile("a+b", EnumSet.of(RegexOption.CASE_INSENSITIVE));
+            final StringMatcher<?> matcher = regex.matcher("xxAaB");
+            assertTrue(name, matcher.find());
+            assertEquals(name, "AaB", matcher.group());
+        }
+    }
+
+    @Test
+    public void test_capabilities() {
+        assertTrue(RegexEngines.forName("re2j").capabilities().contains(Capability.LINEAR_TIME));
+        assertFalse(RegexEngines.forName("re2j").capabilities().contains(Capability.BACKREFERENCES));
+        assertFalse(RegexEngines.forName("automaton").capabilities().contains(Capability.CAPTURING_GROUPS));
+        assertTrue(RegexEngines.forName("joni").capabilities().contains(Capability.INTERRUPTIBLE));
+        assertFalse(RegexEngines.forName("jregex").capabilities().contains(Capability.INTERRUPTIBLE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unsupported_option() {
+        RegexEngines.forName("re2j").compile("a+b", EnumSet.of(RegexOption.COMMENTS));
+    }
+
+}
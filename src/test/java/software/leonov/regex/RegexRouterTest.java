@@ -0,0 +1,150 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class RegexRouterTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+    private static final Set<Capability> MATCH_ONLY = EnumSet.noneOf(Capability.class);
+
+    @Test
+    public void test_required() {
+        assertEquals(EnumSet.noneOf(Capability.class), RegexFeatures.required("(a|b)*c{2,3}[^x-z]\\d\\w+?"));
+        assertEquals(EnumSet.of(Capability.ANCHORS), RegexFeatures.required("^a\\z"));
+        assertEquals(EnumSet.of(Capability.ANCHORS, Capability.JAVA_SEMANTICS), RegexFeatures.required("^a$"));
+        assertEquals(EnumSet.of(Capability.ATOMIC_GROUPS), RegexFeatures.required("(?>a)b++"));
+        assertEquals(EnumSet.of(Capability.BACKREFERENCES), RegexFeatures.required("(a)\\1"));
+        assertEquals(EnumSet.of(Capability.LOOKAHEAD, Capability.LOOKBEHIND), RegexFeatures.required("(?=a)(?<!b)"));
+        assertEquals(EnumSet.of(Capability.UNICODE_CLASSES), RegexFeatures.required("\\p{L}"));
+        assertEquals(EnumSet.noneOf(Capability.class), RegexFeatures.required("\\p{Alpha}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_required_malformed() {
+        RegexFeatures.required("(a");
+    }
+
+    @Test
+    public void test_deeply_nested() {
+        final String[] patterns = { Strings.repeat("(", 3000) + "a" + Strings.repeat(")", 3000), Strings.repeat("(?:", 3000) + "a" + Strings.repeat(")", 3000), "a" + Strings.repeat("{1}", 3000), Strings.repeat("[", 3000) + "a" + Strings.repeat("]", 3000) };
+        for (final String pattern : patterns) {
+            assertRejected(() -> RegexFeatures.required(pattern));
+            assertRejected(() -> RegexRouter.getDefault().compile(pattern, NONE, MATCH_ONLY));
+            assertRejected(() -> SafeCompiler.rejecting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR).compile(pattern, NONE));
+            assertTrue(Prefilter.of(pattern, NONE).acceptsAll());
+            try {
+                RegexSet.compile(Arrays.asList(pattern, "b"));
+            } catch (final IllegalArgumentException e) { // rejected by java.util.regex
+            }
+        }
+
+        final String nested = Strings.repeat("(", RegexParser.MAX_DEPTH) + "a" + Strings.repeat(")", RegexParser.MAX_DEPTH);
+        assertEquals(MATCH_ONLY, RegexFeatures.required(nested));
+    }
+
+    @Test
+    public void test_empty_intersection() throws Throwable {
+        for (final String pattern : new String[] { "[a-m&&m-z&&a-c]", "[a-c&&d-f]", "[a-c&&[d-f]]", "[a-z&&[^a-z]]" })
+            assertTrue(pattern, ((RegexNode.CharClass) RegexParser.parse(pattern, NONE)).set.isEmpty());
+
+        final String[] patterns = { "[a-m&&m-z&&a-c]", "[a-m&&m-z]", "[a-c&&d-f]x", "[a&&]", "[a-z&&[^b-y]&&[a-c]]" };
+        final RegexSet set = RegexSet.compile(Arrays.asList(patterns));
+        for (final String pattern : patterns) {
+            final RegularExpression automaton;
+            try {
+                automaton = RegexEngines.forName("automaton").compile(pattern, NONE);
+            } catch (final IllegalArgumentException e) { // empty classes cannot be translated
+                continue;
+            }
+            for (final String input : new String[] { "a", "b", "m", "ax", "z" })
+                assertEquals(pattern + " " + input, Pattern.compile(pattern).matcher(input).matches(), automaton.matcher(input).matches());
+        }
+        for (final String input : new String[] { "a", "b", "m", "ax", "z" }) {
+            final BitSet expected = new BitSet();
+            for (int i = 0; i < patterns.length; i++)
+                expected.set(i, Pattern.compile(patterns[i]).matcher(input).matches());
+            assertEquals(input, expected, set.matches(input));
+        }
+    }
+
+    private static void assertRejected(final Runnable runnable) {
+        try {
+            runnable.run();
+            fail();
+        } catch (final IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void test_default_prefers_linear_time() {
+        assertEquals("automaton", RegexRouter.getDefault().select("[a-z]+@[a-z]+\\.com", NONE, MATCH_ONLY).name());
+        assertEquals("re2j", RegexRouter.getDefault().select("([a-z]+)@", NONE, EnumSet.of(Capability.CAPTURING_GROUPS)).name());
+        assertEquals("jdk", RegexRouter.getDefault().select("(a+)\\1", NONE, MATCH_ONLY).name());
+        assertEquals("jdk", RegexRouter.getDefault().select("(a", NONE, MATCH_ONLY).name());
+    }
+
+    @Test
+    public void test_options() {
+        assertEquals("automaton", RegexRouter.getDefault().select("abc", EnumSet.of(RegexOption.CASE_INSENSITIVE), MATCH_ONLY).name());
+        assertEquals("jdk", RegexRouter.getDefault().select("abc", EnumSet.of(RegexOption.UNICODE_CASE), EnumSet.of(Capability.CAPTURING_GROUPS)).name());
+    }
+
+    @Test
+    public void test_compile_automaton() throws Throwable {
+        final String[] patterns = { "[a-z]+@[a-z]+\\.com", "(?i)ab?c", "a.c", "x{2,3}", "[^a]\\d\\W", "\\Q.*\\E", "\uD83D\uDE00+", "[\\x{1F600}-\\x{1F64F}]", "[a-z&&[^aeiou]]+" };
+        final String[] inputs = { "", "abc", "AC", "a\nc", "xxxx", "b1 ", ".*", "\uD83D\uDE00\uD83D\uDE00", "\uD83D\uDE4F", "bcd", "joe@example.com" };
+
+        for (final String pattern : patterns) {
+            final RegularExpression regex = RegexRouter.getDefault().compile(pattern, NONE, MATCH_ONLY);
+            assertTrue(pattern, regex instanceof AutomatonRegularExpression);
+            assertEquals(pattern, regex.pattern());
+            for (final String input : inputs) {
+                assertEquals(pattern + " matches " + input, Pattern.compile(pattern).matcher(input).matches(), regex.matcher(input).matches());
+                assertEquals(pattern + " find " + input, Pattern.compile(pattern).matcher(input).find(), regex.matcher(input).find());
+            }
+        }
+    }
+
+    @Test
+    public void test_compile_falls_through() {
+        final RegexRouter router = RegexRouter.create(Arrays.asList(RegexEngines.forName("re2j"), RegexEngines.forName("jdk")));
+        assertEquals("re2j", router.select("\\Ga", NONE, MATCH_ONLY).name());
+        assertTrue(router.compile("\\Ga", NONE, MATCH_ONLY) instanceof JDKRegularExpression);
+    }
+
+    @Test
+    public void test_java_semantics() throws Throwable {
+        final String[] patterns = { "abc$", "^a.c", "a.c", "^a\\sb", "a\\vb", "[a-c&&d-f]", "[a[b]]", "(?m)^b", "(?m)a$", "\\b\u00E9", "(?i)\u00E9", "(?i)k", "\\S", "[[:alpha:]]" };
+        final String[] inputs = { "abc\n", "a\rc", "a\u0085c", "a\u000Bb", "a", "b", "[", "a\rb", "x\u00E9", "\u00C9", "\u212A", "\u000B", "x" };
+
+        for (final String pattern : patterns) {
+            assertTrue(pattern, RegexFeatures.required(pattern).contains(Capability.JAVA_SEMANTICS));
+            for (final Set<Capability> capabilities : Arrays.asList(MATCH_ONLY, EnumSet.of(Capability.CAPTURING_GROUPS))) {
+                final RegularExpression regex = RegexRouter.getDefault().compile(pattern, NONE, capabilities);
+                for (final String input : inputs)
+                    assertEquals(pattern + " find " + input, Pattern.compile(pattern).matcher(input).find(), regex.matcher(input).find());
+            }
+        }
+        assertEquals(EnumSet.noneOf(Capability.class), RegexFeatures.required("(?i)abc"));
+        assertEquals(EnumSet.noneOf(Capability.class), RegexFeatures.required("(?iu)\u00E9"));
+        assertEquals(EnumSet.noneOf(Capability.class), RegexFeatures.required("(?s)a.c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_no_engine() {
+        RegexRouter.create(Arrays.asList(RegexEngines.forName("re2j"))).select("(a)\\1", NONE, MATCH_ONLY);
+    }
+
+}
@@ -0,0 +1,77 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RegexSetTest {
+
+    private static final List<String> PATTERNS = Arrays.asList("ERROR", "user=\\w+", "[0-9]{3}-[0-9]{4}", "^WARN", "(a+)\\1", "caf\u00e9|tea", "", "x*", "(?i)timeout", "\\d+ms$");
+    private static final String[] INPUTS = { "", "ERROR", "WARN: user=joe took 15ms", "call 555-1234 now", "aa", "aaaa", "caf\u00e9 TIMEOUT", "xxx", "warn ERRORS", "ERROR 10ms\n" };
+
+    @Test
+    public void test_matches_and_find() {
+        final RegexSet set = RegexSet.compile(PATTERNS);
+        assertEquals(PATTERNS.size(), set.size());
+
+        for (final String input : INPUTS) {
+            final BitSet matches = new BitSet();
+            final BitSet find = new BitSet();
+            for (int i = 0; i < PATTERNS.size(); i++) {
+                if (Pattern.compile(PATTERNS.get(i)).matcher(input).matches())
+                    matches.set(i);
+                if (Pattern.compile(PATTERNS.get(i)).matcher(input).find())
+                    find.set(i);
+            }
+            assertEquals(input, matches, set.matches(input));
+            assertEquals(input, find, set.find(new StringBuilder(input)));
+        }
+    }
+
+    @Test
+    public void test_options() {
+        final RegexSet set = RegexSet.compile(Arrays.asList("error", "^warn"), EnumSet.of(RegexOption.CASE_INSENSITIVE, RegexOption.MULTILINE));
+        final BitSet expected = new BitSet();
+        expected.set(0, 2);
+        assertEquals(expected, set.find("ok\nWARN: ERROR"));
+    }
+
+    @Test
+    public void test_unicode_case() {
+        final RegexSet set = RegexSet.compile(Arrays.asList("ok", "is", "x"), EnumSet.of(RegexOption.CASE_INSENSITIVE, RegexOption.UNICODE_CASE));
+        final BitSet expected = new BitSet();
+        expected.set(0, 2);
+        assertEquals(expected, set.find("O\u212a, thi\u017f"));
+    }
+
+    @Test
+    public void test_many_patterns() {
+        final List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            patterns.add("id=" + i + "\\b|code" + i + "[a-z]");
+        final RegexSet set = RegexSet.compile(patterns);
+
+        final BitSet expected = new BitSet();
+        expected.set(7);
+        expected.set(1234);
+        expected.set(12);
+        for (int i = 0; i < 100; i++)
+            assertEquals(expected, set.find("x id=7 y code12z id=1234"));
+    }
+
+    @Test
+    public void test_regular_expression() throws Throwable {
+        final RegexSet set = RegexSet.compile(Arrays.asList("user=(\\w+)"));
+        final StringMatcher<?> matcher = set.regularExpression(0).matcher("user=joe");
+        assertEquals(true, matcher.find());
+        assertEquals("joe", matcher.group(1));
+    }
+
+}
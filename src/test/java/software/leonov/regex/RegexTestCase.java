@@ -0,0 +1,160 @@
+package software.leonov.regex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A pattern, an input and the expected result of {@link StringMatcher#find()}, read from the shared
+ * {@code TestCases.txt} corpus.
+ * <p>
+ * The corpus contains the cases of the {@code JDKRegularExpressionTest}, {@code JoniRegularExpressionTest} and
+ * {@code JRegexRegularExpressionTest} suites, which were generated from the same source, in a form which can be run
+ * against any engine. See the header of the file for its format.
+ *
+ * @author Zhenya Leonov
+ */
+final class RegexTestCase {
+
+    private static final String RESOURCE = "TestCases.txt";
+
+    final int line;
+    final String pattern;
+    final String input;
+
+    /**
+     * {@code true} if the pattern must not compile.
+     */
+    final boolean error;
+
+    final boolean found;
+    final int groupCount;
+
+    /**
+     * The expected {@link StringMatcher#group()}, or {@code null} if {@code found} is {@code false}.
+     */
+    final String group;
+
+    /**
+     * The expected {@link StringMatcher#group(int)} for the groups which are checked.
+     */
+    final ImmutableMap<Integer, String> groups;
+
+    private RegexTestCase(final int line, final String pattern, final String input, final boolean error, final boolean found, final int groupCount, final String group, final ImmutableMap<Integer, String> groups) {
+        this.line = line;
+        this.pattern = pattern;
+        this.input = input;
+        this.error = error;
+        this.found = found;
+        this.groupCount = groupCount;
+        this.group = group;
+        this.groups = groups;
+    }
+
+    /**
+     * Returns all the cases in the shared corpus.
+     *
+     * @return all the cases in the shared corpus
+     */
+    static ImmutableList<RegexTestCase> load() {
+        try (final InputStream in = RegexTestCase.class.getResourceAsStream(RESOURCE)) {
+            checkArgument(in != null, "%s not found", RESOURCE);
+            return parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII)));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ImmutableList<RegexTestCase> parse(final BufferedReader reader) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (String line = reader.readLine(); line != null; line = reader.readLine())
+            lines.add(line);
+
+        int i = 0;
+        while (i < lines.size() && lines.get(i).startsWith("#"))
+            i++;
+
+        final ImmutableList.Builder<RegexTestCase> cases = ImmutableList.builder();
+        for (i++; i < lines.size(); i += 4) {
+            checkArgument(i + 2 < lines.size(), "truncated case at line %s", i + 1);
+            cases.add(parse(i + 1, lines.get(i), lines.get(i + 1), lines.get(i + 2)));
+            checkArgument(i + 3 == lines.size() || lines.get(i + 3).isEmpty(), "expected an empty line at line %s", i + 4);
+        }
+        return cases.build();
+    }
+
+    private static RegexTestCase parse(final int line, final String pattern, final String input, final String result) {
+        if (result.equals("error"))
+            return new RegexTestCase(line, unescape(pattern), null, true, false, 0, null, ImmutableMap.of());
+
+        final String[] fields = result.split("\t", -1);
+        final boolean found = Boolean.parseBoolean(fields[0]);
+        final int groupCount = Integer.parseInt(fields[1]);
+        if (!found)
+            return new RegexTestCase(line, unescape(pattern), unescape(input), false, false, groupCount, null, ImmutableMap.of());
+
+        final Map<Integer, String> groups = new TreeMap<>();
+        for (int i = 3; i < fields.length; i++) {
+            final int equals = fields[i].indexOf('=');
+            groups.put(Integer.parseInt(fields[i].substring(0, equals)), unescape(fields[i].substring(equals + 1)));
+        }
+        return new RegexTestCase(line, unescape(pattern), unescape(input), false, true, groupCount, unescape(fields[2]), ImmutableMap.copyOf(groups));
+    }
+
+    /*
+     * Replaces the escape sequences of Java string literals.
+     */
+    static String unescape(final String s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            final char next = s.charAt(++i);
+            switch (next) {
+            case 'b':
+                sb.append('\b');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'u':
+                sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                i += 4;
+                break;
+            default:
+                sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return RESOURCE + ":" + line + " " + pattern;
+    }
+
+}
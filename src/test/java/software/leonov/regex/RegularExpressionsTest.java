@@ -0,0 +1,77 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class RegularExpressionsTest {
+
+    @Test
+    public void test_hit() {
+        final RegularExpressions cache = RegularExpressions.withMaximumSize(10);
+        final JDKRegularExpression regex = cache.jdk("a+b", 0);
+        assertSame(regex, cache.jdk("a+b", 0));
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void test_key_includes_engine_and_flags() {
+        final RegularExpressions cache = RegularExpressions.withMaximumSize(10);
+        assertNotSame(cache.jdk("a+b", 0), cache.jdk("a+b", Pattern.CASE_INSENSITIVE));
+        cache.re2j("a+b", 0);
+        cache.automaton("a+b", 0);
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void test_eviction() {
+        final RegularExpressions cache = RegularExpressions.withMaximumSize(1);
+        cache.jdk("a", 0);
+        cache.jdk("b", 0);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void test_maximum_weight() {
+        final RegularExpressions cache = RegularExpressions.withMaximumWeight(5);
+        cache.jdk("abc", 0);
+        cache.jdk("def", 0);
+        assertEquals(1, cache.size());
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void test_syntax_error() {
+        RegularExpressions.withMaximumSize(10).jdk("(", 0);
+    }
+
+    @Test
+    public void test_concurrent_compilation() throws Exception {
+        final RegularExpressions cache = RegularExpressions.withMaximumSize(10);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Callable<RegularExpression>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+                tasks.add(() -> cache.joni("(\\w+)@(\\w+)\\.com", 0));
+            final List<Future<RegularExpression>> results = executor.invokeAll(tasks);
+            for (final Future<RegularExpression> result : results)
+                assertSame(results.get(0).get(), result.get());
+            assertEquals(1, cache.stats().loadCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class SafeCompilerTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+    private static final String INPUT = Strings.repeat("a", 32);
+
+    @Test
+    public void test_complexity() {
+        assertEquals(RegexComplexity.LINEAR, RegexFeatures.complexity("(a+b)+", NONE));
+        assertEquals(RegexComplexity.LINEAR, RegexFeatures.complexity("(?>a+)+b", NONE));
+        assertEquals(RegexComplexity.LINEAR, RegexFeatures.complexity("^[\\w.+-]+@[\\w-]+\\.[\\w.-]+$", NONE));
+        assertEquals(RegexComplexity.POLYNOMIAL, RegexFeatures.complexity("\\d+\\d+", NONE));
+        assertEquals(RegexComplexity.POLYNOMIAL, RegexFeatures.complexity(".*.*=.*", NONE));
+        assertEquals(RegexComplexity.EXPONENTIAL, RegexFeatures.complexity("(a+)+b", NONE));
+        assertEquals(RegexComplexity.EXPONENTIAL, RegexFeatures.complexity("(a|ab|b)*c", NONE));
+        assertEquals(RegexComplexity.EXPONENTIAL, RegexFeatures.complexity("(\\w+\\s?)+$", NONE));
+        assertEquals(RegexComplexity.EXPONENTIAL, RegexFeatures.complexity("(?=(a*)*b)", NONE));
+    }
+
+    @Test
+    public void test_safe_expression_uses_preferred_engine() {
+        final SafeCompiler compiler = SafeCompiler.rejecting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR);
+        assertTrue(compiler.compile("(a+b)+", NONE) instanceof JDKRegularExpression);
+    }
+
+    @Test
+    public void test_unsafe_expression_uses_linear_time_engine() throws Throwable {
+        final SafeCompiler compiler = SafeCompiler.rejecting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR);
+        assertTrue(compiler.compile("((a+)+)+b", NONE) instanceof RE2JRegularExpression);
+        assertTrue(compiler.compile("((a+)+)+b", NONE, EnumSet.noneOf(Capability.class)) instanceof AutomatonRegularExpression);
+        assertFalse(compiler.compile("((a+)+)+b", NONE).matcher(INPUT).find());
+    }
+
+    @Test
+    public void test_unsafe_expression_keeps_java_semantics() throws Throwable {
+        final SafeCompiler compiler = SafeCompiler.limiting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR, Duration.ofSeconds(10));
+        for (final String pattern : new String[] { "(a+)+$", "(a|.)+c", "((a+)+\\s)+b", "((a+)+[a-c&&b-d])+" }) {
+            final RegularExpression regex = compiler.compile(pattern, NONE);
+            for (final String input : new String[] { "aa\n", "a\rc", "a\u000Bb", "ab", "aa" })
+                assertEquals(pattern + " find " + input, Pattern.compile(pattern).matcher(input).find(), regex.matcher(input).find());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unsafe_expression_not_rerouted() {
+        SafeCompiler.rejecting(RegexEngines.forName("joni"), RegexComplexity.LINEAR).compile("(a+)+$", NONE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_unsafe_expression_rejected() {
+        SafeCompiler.rejecting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR).compile("(a)((a+)+)+\\1b", NONE);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_unsafe_expression_time_limited() throws Throwable {
+        final SafeCompiler compiler = SafeCompiler.limiting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR, Duration.ofMillis(50));
+        compiler.compile("(a)((a+)+)+\\1b", NONE).matcher(INPUT).find();
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_time_limit_caps_longer_durations() throws Throwable {
+        final SafeCompiler compiler = SafeCompiler.limiting(RegexEngines.forName("jdk"), RegexComplexity.LINEAR, Duration.ofMillis(50));
+        compiler.compile("(a)((a+)+)+\\1b", NONE).matcher(INPUT).matches(Duration.ofMinutes(1));
+    }
+
+    @Test(expected = TimeoutException.class, timeout = 10000)
+    public void test_unsafe_expression_time_limited_by_interruptible_engine() throws Throwable {
+        final SafeCompiler compiler = SafeCompiler.limiting(RegexEngines.forName("jregex"), RegexComplexity.LINEAR, Duration.ofMillis(50));
+        assertTrue(compiler.compile("(a+b)+", NONE) instanceof JRegexRegularExpression);
+        compiler.compile("((a+)+)+\\2b", NONE).matcher(INPUT).find();
+    }
+
+}
@@ -0,0 +1,63 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class SplitIteratorTest {
+
+    private static final String[] INPUTS = { "", ",", ",,", "a", "a,b", ",a,,b,,", "a,,b,c,,,", "::a::b::" };
+    private static final int[] LIMITS = { -1, 0, 1, 2, 3, 10 };
+
+    @Test
+    public void test_split() throws Throwable {
+        final String[] patterns = { ",", ",+", "::", "x", "(?=b)", "" };
+
+        for (final String pattern : patterns)
+            for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile(pattern), JoniRegularExpression.compile(pattern), JRegexRegularExpression.compile(pattern) })
+                for (final String input : INPUTS)
+                    for (final int limit : LIMITS) {
+                        final String message = regex + " " + input + " " + limit;
+                        final List<String> expected = Arrays.asList(Pattern.compile(pattern).split(input, limit));
+                        assertEquals(message, expected, toList(regex.split(input, limit)));
+                        assertEquals(message, expected, toList(regex.split(new StringBuilder(input), limit)));
+                        assertEquals(message, expected, regex.splitAsStream(input, limit).map(CharSequence::toString).collect(Collectors.toList()));
+                    }
+    }
+
+    @Test
+    public void test_split_literal() throws Throwable {
+        for (final String pattern : new String[] { ",", "::", "a.b" })
+            for (final int flags : new int[] { 0, Pattern.LITERAL })
+                for (final String input : new String[] { "x,y::za.bcaXb", "" }) {
+                    final JDKRegularExpression regex = JDKRegularExpression.compile(pattern, flags);
+                    for (final int limit : LIMITS)
+                        assertEquals(Arrays.asList(Pattern.compile(pattern, flags).split(input, limit)), toList(regex.split(new StringBuilder(input), limit)));
+                }
+    }
+
+    @Test
+    public void test_views() {
+        final StringBuilder input = new StringBuilder("key=value");
+        final CharSequence value = JDKRegularExpression.compile("=").split(input, 0).iterator().next();
+        assertEquals(3, value.length());
+        assertEquals('y', value.charAt(2));
+        assertEquals("ey", value.subSequence(1, 3).toString());
+        input.setCharAt(1, 'E');
+        assertEquals("kEy", value.toString());
+    }
+
+    private static List<String> toList(final Iterable<CharSequence> pieces) {
+        final List<String> list = new ArrayList<>();
+        for (final CharSequence piece : pieces)
+            list.add(piece.toString());
+        return list;
+    }
+
+}
@@ -0,0 +1,159 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class StreamingMatcherTest {
+
+    private static final Set<RegexOption> NONE = EnumSet.noneOf(RegexOption.class);
+
+    private static final String INPUT;
+
+    static {
+        final String[] words = { "ERROR", "WARN", "foo", "foobar", "bar", "2019-03-17", "12:30", "a", "aa", "\n", "\n", "\r\n", "\r", " ", " ", "x=1", "\u00e9t\u00e9", "\ud83d\ude00" };
+        final Random random = new Random(42);
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < 20_000)
+            sb.append(words[random.nextInt(words.length)]);
+        INPUT = sb.toString();
+    }
+
+    /**
+     * Returns a reader which returns at most a random number of characters from every read.
+     */
+    private static Reader trickle(final String input) {
+        final Random random = new Random(7);
+        return new StringReader(input) {
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) throws java.io.IOException {
+                return super.read(buffer, offset, Math.min(length, 1 + random.nextInt(37)));
+            }
+        };
+    }
+
+    /**
+     * Asserts that the matches found in the stream are the matches found by the same expression in the entire input.
+     */
+    private static void assertFinds(final RegularExpression regex, final int window) throws Throwable {
+        assertFinds(regex, INPUT, window);
+    }
+
+    private static void assertFinds(final RegularExpression regex, final String input, final int window) throws Throwable {
+        final StringMatcher<?> expected = regex.matcher(input);
+        try (final StreamingMatcher actual = StreamingMatcher.of(regex, NONE, trickle(input), window)) {
+            while (expected.find()) {
+                assertTrue(regex.pattern() + " " + expected.start(), actual.find());
+                assertEquals(regex.pattern(), expected.start(), actual.start());
+                assertEquals(regex.pattern(), expected.end(), actual.end());
+                assertEquals(regex.pattern(), expected.group(), actual.group());
+                for (int i = 1; i <= expected.groupCount(); i++) {
+                    assertEquals(regex.pattern(), expected.start(i), actual.start(i));
+                    assertEquals(regex.pattern(), expected.group(i), actual.group(i));
+                }
+            }
+            assertFalse(regex.pattern(), actual.find());
+        }
+    }
+
+    @Test
+    public void test_jdk() throws Throwable {
+        final String[] patterns = { "ERROR", "foo|foobar", "(\\d{4})-(\\d{2})-(\\d{2})", "ERROR.*", "(?m)^WARN.*$", "\\bbar\\b", "(?<=foo)bar", "(?<!foo)bar", "a*", "x?", "(?m)$", "foo(?=bar)", "[^\\n]{3,}", "(?m)$\\n" };
+        for (final String pattern : patterns)
+            for (final int window : new int[] { 512, 4096 })
+                assertFinds(JDKRegularExpression.compile(pattern), window);
+    }
+
+    @Test
+    public void test_line_terminators() throws Throwable {
+        final String input = Strings.repeat("ab\r\n\r\n\n\r", 500);
+        for (final String pattern : new String[] { "(?m)$", "(?m)$\\n", "(?m)^", "(?m)b$", "$", "\\Z" })
+            for (final int window : new int[] { 64, 512 })
+                assertFinds(JDKRegularExpression.compile(pattern), input, window);
+    }
+
+    @Test
+    public void test_re2j() throws Throwable {
+        final String[] patterns = { "ERROR", "foo|foobar", "(\\d{4})-(\\d{2})-(\\d{2})", "ERROR.*", "\\bbar\\b", "(?m)^WARN" };
+        for (final String pattern : patterns)
+            assertFinds(RE2JRegularExpression.compile(pattern), 512);
+    }
+
+    @Test
+    public void test_lookbehind() throws Throwable {
+        for (final String engine : new String[] { "joni", "jregex" })
+            for (final String pattern : new String[] { "\\bbar\\b", "(?<=foo)bar", "(?m)^WARN.*", "(\\d{2}):(\\d{2})" })
+                assertFinds(RegexEngines.forName(engine).compile(pattern, NONE), 512);
+    }
+
+    @Test
+    public void test_automaton() throws Throwable {
+        for (final String pattern : new String[] { "foo|foobar", "[0-9]{4}-[0-9]{2}-[0-9]{2}", "a+" })
+            assertFinds(RegexEngines.forName("automaton").compile(pattern, NONE), 512);
+    }
+
+    @Test
+    public void test_literal() throws Throwable {
+        assertFinds(LiteralSetRegularExpression.compile("ERROR|WARN|foobar|foo"), 64);
+    }
+
+    @Test
+    public void test_channel() throws Throwable {
+        final RegularExpression regex = JDKRegularExpression.compile("\u00e9t\u00e9|\ud83d\ude00");
+        final Matcher expected = Pattern.compile(regex.pattern()).matcher(INPUT);
+        try (final StreamingMatcher actual = StreamingMatcher.of(regex, NONE, Channels.newChannel(new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8))), StandardCharsets.UTF_8, 100)) {
+            while (expected.find()) {
+                assertTrue(actual.find());
+                assertEquals(expected.start(), actual.start());
+                assertEquals(expected.group(), actual.group());
+            }
+            assertFalse(actual.find());
+        }
+    }
+
+    @Test
+    public void test_unsupported() {
+        for (final String pattern : new String[] { "\\Afoo", "^foo", "(?s)BEGIN.*END", "a[\\s\\S]*b", "\\Gfoo" })
+            try {
+                StreamingMatcher.of(JDKRegularExpression.compile(pattern), NONE, new StringReader(""));
+                fail(pattern);
+            } catch (final IllegalArgumentException e) {
+            }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_window_too_small() throws Throwable {
+        try (final StreamingMatcher matcher = StreamingMatcher.of(JDKRegularExpression.compile("x.*"), NONE, new StringReader("abc x" + INPUT.replace('\n', ' ')), 256)) {
+            matcher.find();
+        }
+    }
+
+    @Test
+    public void test_bounds() {
+        final MatchBounds bounds = MatchBounds.of(RegexParser.parse("(?<=ab)c{2,3}(?=de)", NONE));
+        assertEquals(3, bounds.maxLength);
+        assertEquals(2 + MatchBounds.MARGIN, bounds.lookbehind);
+        assertEquals(2, bounds.lookahead);
+        assertFalse(bounds.spansLines);
+        assertTrue(MatchBounds.of(RegexParser.parse("(a+)\\1", NONE)).maxLength == MatchBounds.UNBOUNDED);
+        assertEquals(4, MatchBounds.of(RegexParser.parse("(ab)\\1", NONE)).maxLength);
+        assertEquals(MatchBounds.MARGIN, MatchBounds.of(RegexParser.parse("(?m)$", NONE)).lookbehind);
+    }
+
+}
@@ -0,0 +1,359 @@
+package software.leonov.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.MatchResult;
+import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+public class StringMatcherTest {
+
+    private static final String CATASTROPHIC = "((a+)+)+b";
+    private static final String INPUT = Strings.repeat("a", 32);
+
+    @Test
+    public void test_untimed_find_runs_on_calling_thread() throws Throwable {
+        final Thread caller = Thread.currentThread();
+        final Thread[] runner = new Thread[1];
+
+        final StringMatcher<?> matcher = new DelegatingStringMatcher(JDKRegularExpression.compile("a").matcher("aaa")) {
+            @Override
+            protected boolean findImpl() {
+                runner[0] = Thread.currentThread();
+                return super.findImpl();
+            }
+        };
+
+        assertTrue(matcher.find());
+        assertEquals(caller, runner[0]);
+    }
+
+    @Test
+    public void test_timed_find_runs_on_calling_thread() throws Throwable {
+        final Thread caller = Thread.currentThread();
+        final Thread[] runner = new Thread[1];
+
+        final StringMatcher<?> matcher = new DelegatingStringMatcher(JDKRegularExpression.compile("a").matcher("aaa")) {
+            @Override
+            protected boolean findImpl() {
+                runner[0] = Thread.currentThread();
+                return super.findImpl();
+            }
+        };
+
+        assertTrue(matcher.find(Duration.ofSeconds(10)));
+        assertEquals(caller, runner[0]);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_joni_find_timeout() throws Throwable {
+        final StringMatcher<?> matcher = JoniRegularExpression.compile(CATASTROPHIC).matcher(INPUT);
+        try {
+            matcher.find(Duration.ofMillis(100));
+        } finally {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_joni_matches_timeout() throws Throwable {
+        JoniRegularExpression.compile(CATASTROPHIC).matcher(INPUT).matches(Duration.ofMillis(100));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_jdk_find_timeout() throws Throwable {
+        final StringMatcher<?> matcher = JDKRegularExpression.compile(CATASTROPHIC).matcher(INPUT);
+        try {
+            matcher.find(Duration.ofMillis(100));
+        } finally {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void test_jdk_matches_timeout() throws Throwable {
+        JDKRegularExpression.compile(CATASTROPHIC).matcher(INPUT).matches(Duration.ofMillis(100));
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void test_jdk_find_interrupted_while_matching() throws Throwable {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Watchdog.create(scheduler).arm(Duration.ofMillis(100));
+            JDKRegularExpression.compile(CATASTROPHIC).matcher(INPUT).find();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_char_sequence_input() throws Throwable {
+        final CharBuffer buffer = CharBuffer.wrap("--one cat, two cats--".toCharArray(), 2, 17).slice();
+        final CharSequence[] inputs = { new StringBuilder("one cat, two cats"), new StringBuffer("one cat, two cats"), buffer, CharBuffer.wrap("one cat, two cats"), CharBuffer.wrap(new StringBuilder("one cat, two cats")) };
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile("c(a)t"), RE2JRegularExpression.compile("c(a)t"), JoniRegularExpression.compile("c(a)t"), JRegexRegularExpression.compile("c(a)t") })
+            for (final CharSequence input : inputs) {
+                final String message = regex + " " + input.getClass();
+                final StringMatcher<?> matcher = regex.matcher(input);
+                assertTrue(message, matcher.find());
+                assertEquals(message, 4, matcher.start());
+                assertEquals(message, "a", matcher.group(1));
+                assertTrue(message, matcher.find());
+                assertEquals(message, 16, matcher.end());
+                assertFalse(message, matcher.find());
+                assertEquals(message, "one dog, two dogs", matcher.replaceAll("dog"));
+            }
+
+        final StringMatcher<?> matcher = AutomatonRegularExpression.compile("[a-z ,]+").matcher(new StringBuilder("one cat, two cats"));
+        assertTrue(matcher.matches());
+    }
+
+    @Test
+    public void test_reset_input() throws Throwable {
+        final CharSequence[] inputs = { "one cat, two cats", new StringBuilder("a cat"), CharBuffer.wrap("--\u00fcber cat--".toCharArray(), 2, 10).slice(), CharBuffer.wrap("dog"), "", "cats and cats and cats" };
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile("cats?"), RE2JRegularExpression.compile("cats?"), JoniRegularExpression.compile("cats?"), JRegexRegularExpression.compile("cats?"), AutomatonRegularExpression.compile("cats?"), LiteralSetRegularExpression.compile("cats|cat") }) {
+            final StringMatcher<?> matcher = regex.matcher("cat");
+            assertTrue(regex.toString(), matcher.find());
+            for (final CharSequence input : inputs) {
+                final String message = regex + " " + input;
+                final StringMatcher<?> expected = regex.matcher(input);
+                assertSame(message, matcher, matcher.reset(input));
+                while (expected.find()) {
+                    assertTrue(message, matcher.find());
+                    assertEquals(message, expected.start(), matcher.start());
+                    assertEquals(message, expected.end(), matcher.end());
+                    assertEquals(message, expected.group(), matcher.group());
+                }
+                assertFalse(message, matcher.find());
+                assertEquals(message, regex.matcher(input).matches(), matcher.reset(input).matches());
+                if (!(regex instanceof AutomatonRegularExpression)) // the automaton does not support appendReplacement
+                    assertEquals(message, input.toString().replace("cats", "-").replace("cat", "-"), matcher.replaceAll("-"));
+            }
+        }
+    }
+
+    @Test
+    public void test_reset_input_prefiltered() throws Throwable {
+        final StringMatcher<?> matcher = Prefilter.prefiltered(JDKRegularExpression.compile("ERROR: (\\w+)"), EnumSet.noneOf(RegexOption.class)).matcher("WARN: disk");
+        assertFalse(matcher.find());
+        assertTrue(matcher.reset("ERROR: disk").find());
+        assertEquals("disk", matcher.group(1));
+        assertFalse(matcher.reset("INFO: disk").find());
+
+        final StringMatcher<?> bytes = JoniRegularExpression.compile("c(a)t").matcher("a cat".getBytes(StandardCharsets.UTF_8), 0, 5);
+        assertTrue(bytes.reset("\u00fcber cat").find());
+        assertEquals(5, bytes.start());
+        assertEquals("a", bytes.group(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void test_reset_input_unsupported() throws Throwable {
+        new DelegatingStringMatcher(JDKRegularExpression.compile("a").matcher("a")).reset("b");
+    }
+
+    @Test
+    public void test_joni_byte_input() throws Throwable {
+        final byte[] bytes = "--\u00fcber cat, \u00fcber cats--".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(bytes.length - 2);
+        final JoniRegularExpression regex = JoniRegularExpression.compile("c(a)t(s)?");
+
+        for (final StringMatcher<?> matcher : new StringMatcher<?>[] { regex.matcher(bytes, 2, bytes.length - 4), regex.matcher(ByteBuffer.wrap(bytes, 2, bytes.length - 4)), regex.matcher(direct) }) {
+            assertTrue(matcher.find());
+            assertEquals(6, matcher.start());
+            assertEquals("a", matcher.group(1));
+            assertEquals(null, matcher.group(2));
+            assertEquals(-1, matcher.start(2));
+            assertTrue(matcher.find());
+            assertEquals("cats", matcher.group());
+            assertEquals(21, matcher.end());
+            assertFalse(matcher.find());
+            matcher.reset();
+            assertTrue(matcher.find());
+            assertEquals(9, matcher.end());
+        }
+
+        assertEquals(2, direct.position());
+        assertTrue(JoniRegularExpression.compile("\\u00fcber").matcher(bytes, 2, 5).matches());
+    }
+
+    @Test
+    public void test_joni_utf16_offsets() throws Throwable {
+        final String text = "caf\u00e9 \u65e5\u672c\u8a9e \uD83D\uDE00 \u0436\u0443\u0440\u043d\u0430\u043b ";
+        final String[] inputs = { "plain ascii text", text, Strings.repeat(text, 40), Strings.repeat("x", 300) + text, "a\uD800b c\u00e9" };
+        final String regex = "(\\S)(\\S*)\\s?";
+
+        for (final String input : inputs)
+            for (final CharSequence sequence : new CharSequence[] { input, new StringBuilder(input) }) {
+                final java.util.regex.Matcher expected = java.util.regex.Pattern.compile(regex).matcher(input);
+                final StringMatcher<?> actual = JoniRegularExpression.compile(regex).matcher(sequence);
+                while (expected.find()) {
+                    assertTrue(input, actual.find());
+                    assertEquals(input, expected.start(), actual.start());
+                    assertEquals(input, expected.end(), actual.end());
+                    assertEquals(input, expected.end(1), actual.end(1));
+                    assertEquals(input, expected.group(2), actual.group(2));
+                }
+                assertFalse(input, actual.find());
+            }
+
+        assertEquals("na\u65e5 \u65e5!", JoniRegularExpression.compile("\u00efve").matcher("na\u00efve \u00efve!").replaceAll("\u65e5"));
+    }
+
+    @Test
+    public void test_replace_function() throws Throwable {
+        final String input = "card 4111-1111-1111-1234, pin 0000";
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile("(\\d{4}-){3}(\\d{4})"), RE2JRegularExpression.compile("(\\d{4}-){3}(\\d{4})"), JoniRegularExpression.compile("(\\d{4}-){3}(\\d{4})"), JRegexRegularExpression.compile("(\\d{4}-){3}(\\d{4})") }) {
+            assertEquals(regex.toString(), "card ****-$2, pin 0000", regex.matcher(input).replaceAll(result -> "****-$2"));
+            assertEquals(regex.toString(), "card ****-1234, pin 0000", regex.matcher(input).replaceFirst(result -> "****-" + result.group(2)));
+
+            final StringWriter writer = new StringWriter();
+            assertTrue(writer == regex.matcher(input).replaceAll(result -> Strings.repeat("*", result.end() - result.start()), writer, Duration.ofSeconds(10)));
+            assertEquals(regex.toString(), "card *******************, pin 0000", writer.toString());
+
+            assertEquals(regex.toString(), "card ****-1234, pin 0000", regex.matcher(input).replaceFirst(result -> "****-" + result.group(2), Duration.ofSeconds(10)));
+            final StringBuilder sb = new StringBuilder("> ");
+            assertSame(sb, regex.matcher(input).replaceFirst(result -> "****-" + result.group(2), sb));
+            assertEquals(regex.toString(), "> card ****-1234, pin 0000", sb.toString());
+        }
+
+        assertEquals("a", JDKRegularExpression.compile("x").matcher("a").replaceAll(result -> null));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_replace_function_null() throws Throwable {
+        JDKRegularExpression.compile("a").matcher("a").replaceAll(result -> null);
+    }
+
+    @Test
+    public void test_results() throws Throwable {
+        final String input = "k1=v1; k2=; k3=v\u00e93";
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile("(\\w+)=([^;\\s]+)?;?"), RE2JRegularExpression.compile("(\\w+)=([^;\\s]+)?;?"), JoniRegularExpression.compile("(\\w+)=([^;\\s]+)?;?"), JRegexRegularExpression.compile("(\\w+)=([^;\\s]+)?;?") }) {
+            final List<MatchResult> results = regex.matcher(input).results().collect(Collectors.toList());
+            assertEquals(regex.toString(), 3, results.size());
+            assertEquals(regex.toString(), Arrays.asList("k1", "k2", "k3"), results.stream().map(result -> result.group(1)).collect(Collectors.toList()));
+            assertEquals(regex.toString(), "v1", results.get(0).group(2));
+            assertNull(regex.toString(), results.get(1).group(2));
+            assertEquals(regex.toString(), -1, results.get(1).start(2));
+            assertEquals(regex.toString(), 12, results.get(2).start());
+            assertEquals(regex.toString(), input.length(), results.get(2).end());
+            assertEquals(regex.toString(), 2, results.get(2).groupCount());
+        }
+
+        for (final RegularExpression regex : new RegularExpression[] { JDKRegularExpression.compile("a*"), JoniRegularExpression.compile("a*") })
+            assertEquals(regex.toString(), Arrays.asList("", "aaa", "", ""), regex.matcher("\u00e9aaa\u00e9").results().map(MatchResult::group).collect(Collectors.toList()));
+
+        final StringMatcher<?> matcher = JDKRegularExpression.compile("\\d").matcher("1a2b3");
+        assertTrue(matcher.find());
+        final Iterator<MatchResult> iterator = matcher.resultIterator();
+        assertEquals("2", iterator.next().group());
+        assertEquals("3", iterator.next().group());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_to_match_result_no_match() throws Throwable {
+        JDKRegularExpression.compile("a").matcher("b").toMatchResult();
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void test_find_interrupted() throws Throwable {
+        Thread.currentThread().interrupt();
+        JDKRegularExpression.compile("a").matcher("aaa").find(Duration.ofSeconds(10));
+    }
+
+    private static class DelegatingStringMatcher extends StringMatcher<Object> {
+
+        private final StringMatcher<?> delegate;
+
+        DelegatingStringMatcher(final StringMatcher<?> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int end() {
+            return delegate.end();
+        }
+
+        @Override
+        public int end(final int index) {
+            return delegate.end(index);
+        }
+
+        @Override
+        public String group() {
+            return delegate.group();
+        }
+
+        @Override
+        public String group(final int index) {
+            return delegate.group(index);
+        }
+
+        @Override
+        public int groupCount() {
+            return delegate.groupCount();
+        }
+
+        @Override
+        public int start() {
+            return delegate.start();
+        }
+
+        @Override
+        public int start(final int index) {
+            return delegate.start(index);
+        }
+
+        @Override
+        protected CharSequence getInput() {
+            return delegate.getInput();
+        }
+
+        @Override
+        protected boolean findImpl() {
+            match = delegate.findImpl();
+            return match;
+        }
+
+        @Override
+        protected boolean matchesImpl() {
+            match = delegate.matchesImpl();
+            return match;
+        }
+
+        @Override
+        public RegularExpression pattern() {
+            return delegate.pattern();
+        }
+
+        @Override
+        public Object delegate() {
+            return delegate;
+        }
+    }
+
+}